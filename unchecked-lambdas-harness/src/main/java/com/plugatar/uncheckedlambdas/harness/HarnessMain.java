@@ -0,0 +1,130 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas.harness;
+
+import com.plugatar.uncheckedlambdas.Deadline;
+import com.plugatar.uncheckedlambdas.RateLimiter;
+import com.plugatar.uncheckedlambdas.ThSupplier;
+import com.plugatar.uncheckedlambdas.UncheckedLambdas;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the local stand-in workloads at several rates and worker thread counts and writes the report table.
+ * <pre>{@code
+ * java -cp unchecked-lambdas.jar:unchecked-lambdas-harness.jar \
+ *   com.plugatar.uncheckedlambdas.harness.HarnessMain load-report.txt 5000
+ * }</pre>
+ * The first argument is the report file, {@code load-report.txt} by default. The second argument is the measurement
+ * duration of each run in milliseconds, 5000 by default, the warmup is a fifth of it. The workloads don't use network
+ * or external services.
+ */
+public final class HarnessMain {
+
+  /**
+   * Target requests per second of the runs.
+   */
+  private static final double[] RATES = {1_000.0, 10_000.0};
+
+  /**
+   * Worker threads of the runs.
+   */
+  private static final int[] THREADS = {4, LoadGenerator.VIRTUAL_THREADS};
+
+  /**
+   * Utility class ctor.
+   */
+  private HarnessMain() {
+  }
+
+  /**
+   * Entry point.
+   *
+   * @param args the report file and the measurement duration in milliseconds
+   * @throws IOException          if the report cannot be written
+   * @throws InterruptedException if the current thread was interrupted
+   */
+  public static void main(final String[] args) throws IOException, InterruptedException {
+    final Path reportFile = Paths.get(args.length > 0 ? args[0] : "load-report.txt");
+    final Duration duration = Duration.ofMillis(args.length > 1 ? Long.parseLong(args[1]) : 5_000L);
+    final List<LoadReport> reports = new ArrayList<>();
+    for (final Map.Entry<String, ThSupplier<?, ?>> workload : workloads().entrySet()) {
+      for (final double rate : RATES) {
+        for (final int threads : THREADS) {
+          final LoadReport report = LoadGenerator.builder(workload.getKey(), workload.getValue())
+            .rate(rate)
+            .threads(threads)
+            .warmup(duration.dividedBy(5L))
+            .duration(duration)
+            .build()
+            .run();
+          System.out.println(report);
+          reports.add(report);
+        }
+      }
+    }
+    final String table = LoadReport.table(reports);
+    final Path parent = reportFile.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    Files.write(reportFile, table.getBytes(StandardCharsets.UTF_8));
+    System.out.print(table);
+  }
+
+  /**
+   * Returns the local stand-in workloads.
+   *
+   * @return workloads by name
+   */
+  static Map<String, ThSupplier<?, ?>> workloads() {
+    final AtomicLong counter = new AtomicLong();
+    final ThSupplier<Long, RuntimeException> cpu = () -> cpuWork(counter.incrementAndGet());
+    final RateLimiter limiter = RateLimiter.of(1_000_000.0, 1_000);
+    final Map<String, ThSupplier<?, ?>> workloads = new LinkedHashMap<>();
+    workloads.put("cpu", cpu);
+    workloads.put("cpu-unchecked", () -> UncheckedLambdas.uncheckedRes(cpu));
+    workloads.put("cpu-deadline", () -> Deadline.within(Duration.ofSeconds(1L), cpu));
+    workloads.put("cpu-rate-limited", limiter.limitRes(cpu));
+    workloads.put("io-1ms", () -> {
+      LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1L));
+      return null;
+    });
+    return workloads;
+  }
+
+  private static long cpuWork(final long seed) {
+    long hash = seed;
+    for (int idx = 0; idx < 1_000; idx++) {
+      hash ^= hash << 13;
+      hash ^= hash >>> 7;
+      hash ^= hash << 17;
+    }
+    return hash;
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas.harness;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent latency histogram with HDR-style log-linear buckets.
+ * <p>
+ * Values below 256 are counted exactly. Larger values are counted in 128 linear sub-buckets per power of two, so the
+ * relative error of the reported values is below 1%. Recording is a few atomic increments, no locks are taken and no
+ * objects are allocated.
+ */
+public final class LatencyHistogram {
+
+  /**
+   * Number of linear sub-buckets bits.
+   */
+  private static final int SUB_BUCKET_BITS = 8;
+
+  /**
+   * Half of the linear sub-buckets count.
+   */
+  private static final int SUB_BUCKET_HALF = 1 << (SUB_BUCKET_BITS - 1);
+
+  /**
+   * Total number of buckets.
+   */
+  private static final int BUCKETS = (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKET_HALF + (1 << SUB_BUCKET_BITS);
+
+  private final AtomicLongArray counts;
+  private final AtomicLong count;
+  private final AtomicLong sum;
+  private final AtomicLong max;
+
+  /**
+   * Ctor.
+   */
+  public LatencyHistogram() {
+    this.counts = new AtomicLongArray(BUCKETS);
+    this.count = new AtomicLong();
+    this.sum = new AtomicLong();
+    this.max = new AtomicLong();
+  }
+
+  /**
+   * Records given value, negative values are recorded as 0.
+   *
+   * @param value the value
+   */
+  public void record(final long value) {
+    final long nonNegative = Math.max(0L, value);
+    this.counts.incrementAndGet(index(nonNegative));
+    this.count.incrementAndGet();
+    this.sum.addAndGet(nonNegative);
+    this.max.accumulateAndGet(nonNegative, Math::max);
+  }
+
+  /**
+   * Returns the number of recorded values.
+   *
+   * @return number of recorded values
+   */
+  public long count() {
+    return this.count.get();
+  }
+
+  /**
+   * Returns the max recorded value or 0 if there are no values.
+   *
+   * @return max recorded value
+   */
+  public long max() {
+    return this.max.get();
+  }
+
+  /**
+   * Returns the mean of the recorded values or 0 if there are no values.
+   *
+   * @return mean of the recorded values
+   */
+  public double mean() {
+    final long currentCount = this.count.get();
+    return currentCount == 0L ? 0.0 : (double) this.sum.get() / currentCount;
+  }
+
+  /**
+   * Returns the value at given percentile, that is the highest value equivalent to the bucket containing the
+   * percentile, but not greater than the max recorded value. Returns 0 if there are no values.
+   *
+   * @param percentile the percentile from 0 to 100
+   * @return value at given percentile
+   * @throws IllegalArgumentException if {@code percentile} arg is not in range from 0 to 100
+   */
+  public long percentile(final double percentile) {
+    if (!(percentile >= 0.0 && percentile <= 100.0)) {
+      throw new IllegalArgumentException("percentile arg is not in range from 0 to 100");
+    }
+    final long total = this.count.get();
+    if (total == 0L) {
+      return 0L;
+    }
+    final long target = Math.max(1L, (long) Math.ceil(percentile / 100.0 * total));
+    long cumulative = 0L;
+    for (int idx = 0; idx < BUCKETS; idx++) {
+      cumulative += this.counts.get(idx);
+      if (cumulative >= target) {
+        return Math.min(highestEquivalentValue(idx), this.max.get());
+      }
+    }
+    return this.max.get();
+  }
+
+  /**
+   * Adds the recorded values of given histogram to this histogram.
+   *
+   * @param other the other histogram
+   * @throws NullPointerException if {@code other} arg is null
+   */
+  public void add(final LatencyHistogram other) {
+    if (other == null) { throw new NullPointerException("other arg is null"); }
+    for (int idx = 0; idx < BUCKETS; idx++) {
+      final long bucketCount = other.counts.get(idx);
+      if (bucketCount != 0L) {
+        this.counts.addAndGet(idx, bucketCount);
+      }
+    }
+    this.count.addAndGet(other.count.get());
+    this.sum.addAndGet(other.sum.get());
+    this.max.accumulateAndGet(other.max.get(), Math::max);
+  }
+
+  static int index(final long value) {
+    final int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    if (shift <= 0) {
+      return (int) value;
+    }
+    return shift * SUB_BUCKET_HALF + (int) (value >>> shift);
+  }
+
+  static long highestEquivalentValue(final int index) {
+    if (index < (1 << SUB_BUCKET_BITS)) {
+      return index;
+    }
+    final int shift = index / SUB_BUCKET_HALF - 1;
+    final long subBucket = index - (long) shift * SUB_BUCKET_HALF;
+    return ((subBucket + 1L) << shift) - 1L;
+  }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas.harness;
+
+import com.plugatar.uncheckedlambdas.ThSupplier;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open arrival model load generator of {@link ThSupplier} workloads.
+ * <pre>{@code
+ * final LoadReport report = LoadGenerator.builder("lookup", () -> cache.get(key))
+ *   .rate(5_000.0)
+ *   .threads(8)
+ *   .warmup(Duration.ofSeconds(5))
+ *   .duration(Duration.ofSeconds(30))
+ *   .build()
+ *   .run();
+ * }</pre>
+ * Requests are started at the fixed rate independently of the completion of the previous requests. The latency of
+ * each request is measured from its intended start time, so the time the request waited for a free worker or for the
+ * lagging scheduler is counted and the coordinated omission is corrected. The service time from the actual start is
+ * recorded separately.
+ */
+public final class LoadGenerator {
+
+  /**
+   * Virtual threads workers marker.
+   */
+  public static final int VIRTUAL_THREADS = 0;
+
+  private final String name;
+  private final ThSupplier<?, ?> workload;
+  private final double rate;
+  private final int threads;
+  private final Duration warmup;
+  private final Duration duration;
+
+  /**
+   * Ctor.
+   *
+   * @param name     the workload name
+   * @param workload the workload
+   * @param rate     the requests per second
+   * @param threads  the number of worker threads or {@link #VIRTUAL_THREADS}
+   * @param warmup   the warmup duration
+   * @param duration the measurement duration
+   */
+  private LoadGenerator(final String name,
+                        final ThSupplier<?, ?> workload,
+                        final double rate,
+                        final int threads,
+                        final Duration warmup,
+                        final Duration duration) {
+    this.name = name;
+    this.workload = workload;
+    this.rate = rate;
+    this.threads = threads;
+    this.warmup = warmup;
+    this.duration = duration;
+  }
+
+  /**
+   * Returns new load generator builder. Defaults are 1000 requests per second, virtual thread per request (cached
+   * platform threads before Java 21), 1 second warmup and 10 seconds measurement.
+   *
+   * @param name     the workload name
+   * @param workload the workload
+   * @return builder
+   * @throws NullPointerException if {@code name} arg or {@code workload} arg is null
+   */
+  public static Builder builder(final String name,
+                                final ThSupplier<?, ?> workload) {
+    if (name == null) { throw new NullPointerException("name arg is null"); }
+    if (workload == null) { throw new NullPointerException("workload arg is null"); }
+    return new Builder(name, workload);
+  }
+
+  /**
+   * Runs the load and waits for the started requests to complete.
+   *
+   * @return report
+   * @throws InterruptedException if the current thread was interrupted
+   */
+  public LoadReport run() throws InterruptedException {
+    final LatencyHistogram latency = new LatencyHistogram();
+    final LatencyHistogram serviceTime = new LatencyHistogram();
+    final AtomicLong failures = new AtomicLong();
+    final AtomicLong lastCompletion = new AtomicLong();
+    final double intervalNanos = TimeUnit.SECONDS.toNanos(1L) / this.rate;
+    final ThSupplier<?, RuntimeException> unchecked = this.workload.asUnchecked();
+    final ExecutorService executor = this.createExecutor();
+    final long start = System.nanoTime();
+    final long measurementStart = start + this.warmup.toNanos();
+    final long end = measurementStart + this.duration.toNanos();
+    lastCompletion.set(measurementStart);
+    try {
+      for (long idx = 0L; ; idx++) {
+        final long intendedStart = start + (long) (idx * intervalNanos);
+        if (intendedStart - end >= 0L) { break; }
+        parkUntil(intendedStart);
+        final boolean measured = intendedStart - measurementStart >= 0L;
+        executor.execute(() -> {
+          final long actualStart = System.nanoTime();
+          boolean failed = false;
+          try {
+            unchecked.get();
+          } catch (final Throwable ex) {
+            failed = true;
+          }
+          final long completion = System.nanoTime();
+          if (measured) {
+            latency.record(completion - intendedStart);
+            serviceTime.record(completion - actualStart);
+            lastCompletion.accumulateAndGet(completion, (prev, next) -> next - prev > 0L ? next : prev);
+            if (failed) {
+              failures.incrementAndGet();
+            }
+          }
+        });
+      }
+    } finally {
+      executor.shutdown();
+    }
+    while (!executor.awaitTermination(1L, TimeUnit.SECONDS)) {
+      /* waits for the started requests */
+    }
+    final long elapsedNanos = Math.max(this.duration.toNanos(), lastCompletion.get() - measurementStart);
+    return new LoadReport(
+      this.name, this.rate, this.threads, this.duration, elapsedNanos, failures.get(), latency, serviceTime
+    );
+  }
+
+  private ExecutorService createExecutor() {
+    if (this.threads == VIRTUAL_THREADS) {
+      try {
+        return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      } catch (final ReflectiveOperationException | RuntimeException ex) {
+        return Executors.newCachedThreadPool(new WorkerThreadFactory(this.name));
+      }
+    }
+    return Executors.newFixedThreadPool(this.threads, new WorkerThreadFactory(this.name));
+  }
+
+  private static void parkUntil(final long wakeUpNanos) throws InterruptedException {
+    long remaining;
+    while ((remaining = wakeUpNanos - System.nanoTime()) > 0L) {
+      LockSupport.parkNanos(remaining);
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+    }
+  }
+
+  /**
+   * Load generator builder.
+   */
+  public static final class Builder {
+    private final String name;
+    private final ThSupplier<?, ?> workload;
+    private double rate;
+    private int threads;
+    private Duration warmup;
+    private Duration duration;
+
+    /**
+     * Ctor.
+     *
+     * @param name     the workload name
+     * @param workload the workload
+     */
+    private Builder(final String name,
+                    final ThSupplier<?, ?> workload) {
+      this.name = name;
+      this.workload = workload;
+      this.rate = 1_000.0;
+      this.threads = VIRTUAL_THREADS;
+      this.warmup = Duration.ofSeconds(1L);
+      this.duration = Duration.ofSeconds(10L);
+    }
+
+    /**
+     * Sets the target requests per second.
+     *
+     * @param requestsPerSecond the requests per second
+     * @return this builder
+     * @throws IllegalArgumentException if {@code requestsPerSecond} arg is not positive or not finite
+     */
+    public Builder rate(final double requestsPerSecond) {
+      if (!(requestsPerSecond > 0.0) || Double.isInfinite(requestsPerSecond)) {
+        throw new IllegalArgumentException("requestsPerSecond arg is not positive or not finite");
+      }
+      this.rate = requestsPerSecond;
+      return this;
+    }
+
+    /**
+     * Sets the number of worker threads, {@link #VIRTUAL_THREADS} to start a virtual thread per request on Java 21+
+     * or a cached platform thread on older versions.
+     *
+     * @param threads the number of worker threads
+     * @return this builder
+     * @throws IllegalArgumentException if {@code threads} arg is negative
+     */
+    public Builder threads(final int threads) {
+      if (threads < 0) { throw new IllegalArgumentException("threads arg is negative"); }
+      this.threads = threads;
+      return this;
+    }
+
+    /**
+     * Sets the warmup duration, the requests started during the warmup are not recorded.
+     *
+     * @param warmup the warmup duration
+     * @return this builder
+     * @throws NullPointerException     if {@code warmup} arg is null
+     * @throws IllegalArgumentException if {@code warmup} arg is negative
+     */
+    public Builder warmup(final Duration warmup) {
+      if (warmup == null) { throw new NullPointerException("warmup arg is null"); }
+      if (warmup.isNegative()) { throw new IllegalArgumentException("warmup arg is negative"); }
+      this.warmup = warmup;
+      return this;
+    }
+
+    /**
+     * Sets the measurement duration.
+     *
+     * @param duration the measurement duration
+     * @return this builder
+     * @throws NullPointerException     if {@code duration} arg is null
+     * @throws IllegalArgumentException if {@code duration} arg is not positive
+     */
+    public Builder duration(final Duration duration) {
+      if (duration == null) { throw new NullPointerException("duration arg is null"); }
+      if (duration.isNegative() || duration.isZero()) {
+        throw new IllegalArgumentException("duration arg is not positive");
+      }
+      this.duration = duration;
+      return this;
+    }
+
+    /**
+     * Builds the load generator.
+     *
+     * @return load generator
+     */
+    public LoadGenerator build() {
+      return new LoadGenerator(this.name, this.workload, this.rate, this.threads, this.warmup, this.duration);
+    }
+  }
+
+  /**
+   * Worker daemon thread factory.
+   */
+  private static final class WorkerThreadFactory implements ThreadFactory {
+    private final String name;
+    private final AtomicInteger counter;
+
+    /**
+     * Ctor.
+     *
+     * @param name the workload name
+     */
+    private WorkerThreadFactory(final String name) {
+      this.name = name;
+      this.counter = new AtomicInteger();
+    }
+
+    @Override
+    public Thread newThread(final Runnable runnable) {
+      final Thread thread = new Thread(runnable, "load-" + this.name + "-" + this.counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas.harness;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link LoadGenerator} run report. Latencies are in nanoseconds.
+ */
+public final class LoadReport {
+
+  /**
+   * Reported percentiles.
+   */
+  private static final double[] PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+
+  private final String name;
+  private final double targetRate;
+  private final int threads;
+  private final Duration duration;
+  private final long elapsedNanos;
+  private final long failures;
+  private final LatencyHistogram latency;
+  private final LatencyHistogram serviceTime;
+
+  /**
+   * Ctor.
+   *
+   * @param name         the workload name
+   * @param targetRate   the target requests per second
+   * @param threads      the number of worker threads or {@link LoadGenerator#VIRTUAL_THREADS}
+   * @param duration     the measurement duration
+   * @param elapsedNanos the elapsed time from the measurement start to the last completion
+   * @param failures     the number of failed requests
+   * @param latency      the latency from the intended start histogram
+   * @param serviceTime  the latency from the actual start histogram
+   */
+  LoadReport(final String name,
+             final double targetRate,
+             final int threads,
+             final Duration duration,
+             final long elapsedNanos,
+             final long failures,
+             final LatencyHistogram latency,
+             final LatencyHistogram serviceTime) {
+    this.name = name;
+    this.targetRate = targetRate;
+    this.threads = threads;
+    this.duration = duration;
+    this.elapsedNanos = elapsedNanos;
+    this.failures = failures;
+    this.latency = latency;
+    this.serviceTime = serviceTime;
+  }
+
+  /**
+   * Returns the report table of given reports.
+   *
+   * @param reports the reports
+   * @return report table
+   * @throws NullPointerException if {@code reports} arg is null
+   */
+  public static String table(final List<LoadReport> reports) {
+    if (reports == null) { throw new NullPointerException("reports arg is null"); }
+    final StringBuilder builder = new StringBuilder();
+    builder.append(String.format(Locale.ROOT, "%-24s %10s %8s %10s %8s %12s %10s %10s %10s %10s %10s %12s %12s%n",
+      "workload", "rate", "threads", "completed", "failed", "throughput", "p50 us", "p90 us", "p99 us", "p99.9 us",
+      "max us", "svc p50 us", "svc p99 us"));
+    for (final LoadReport report : reports) {
+      builder.append(report.row()).append(System.lineSeparator());
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Returns the workload name.
+   *
+   * @return workload name
+   */
+  public String name() {
+    return this.name;
+  }
+
+  /**
+   * Returns the target requests per second.
+   *
+   * @return target requests per second
+   */
+  public double targetRate() {
+    return this.targetRate;
+  }
+
+  /**
+   * Returns the number of worker threads or {@link LoadGenerator#VIRTUAL_THREADS}.
+   *
+   * @return number of worker threads
+   */
+  public int threads() {
+    return this.threads;
+  }
+
+  /**
+   * Returns the measurement duration.
+   *
+   * @return measurement duration
+   */
+  public Duration duration() {
+    return this.duration;
+  }
+
+  /**
+   * Returns the number of completed measured requests, including failed requests.
+   *
+   * @return number of completed requests
+   */
+  public long completed() {
+    return this.latency.count();
+  }
+
+  /**
+   * Returns the number of failed measured requests.
+   *
+   * @return number of failed requests
+   */
+  public long failures() {
+    return this.failures;
+  }
+
+  /**
+   * Returns the achieved requests per second.
+   *
+   * @return achieved requests per second
+   */
+  public double throughput() {
+    return this.latency.count() * (double) TimeUnit.SECONDS.toNanos(1L) / this.elapsedNanos;
+  }
+
+  /**
+   * Returns the latency histogram, the latency is measured from the intended start time of the request.
+   *
+   * @return latency histogram
+   */
+  public LatencyHistogram latency() {
+    return this.latency;
+  }
+
+  /**
+   * Returns the service time histogram, the service time is measured from the actual start time of the request.
+   *
+   * @return service time histogram
+   */
+  public LatencyHistogram serviceTime() {
+    return this.serviceTime;
+  }
+
+  @Override
+  public String toString() {
+    return "LoadReport[" + this.row().trim().replaceAll(" +", " ") + "]";
+  }
+
+  private String row() {
+    final StringBuilder builder = new StringBuilder();
+    builder.append(String.format(Locale.ROOT, "%-24s %10.1f %8s %10d %8d %12.1f", this.name, this.targetRate,
+      this.threads == LoadGenerator.VIRTUAL_THREADS ? "virtual" : String.valueOf(this.threads), this.completed(),
+      this.failures, this.throughput()));
+    for (final double percentile : PERCENTILES) {
+      builder.append(String.format(Locale.ROOT, " %10.1f", micros(this.latency.percentile(percentile))));
+    }
+    builder.append(String.format(Locale.ROOT, " %10.1f %12.1f %12.1f", micros(this.latency.max()),
+      micros(this.serviceTime.percentile(50.0)), micros(this.serviceTime.percentile(99.0))));
+    return builder.toString();
+  }
+
+  private static double micros(final long nanos) {
+    return nanos / 1_000.0;
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas.harness;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link HarnessMain}.
+ */
+final class HarnessMainTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void mainMethodWritesReportForAllWorkloadsAndRuns() throws Exception {
+    final Path reportFile = this.dir.resolve("reports").resolve("load-report.txt");
+    HarnessMain.main(new String[]{reportFile.toString(), "20"});
+
+    final List<String> lines = Files.readAllLines(reportFile, StandardCharsets.UTF_8);
+    assertThat(lines).hasSize(1 + HarnessMain.workloads().size() * 4);
+    assertThat(lines.get(1)).startsWith("cpu ");
+  }
+}
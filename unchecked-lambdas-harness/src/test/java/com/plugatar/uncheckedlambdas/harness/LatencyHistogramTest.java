@@ -0,0 +1,116 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas.harness;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Tests for {@link LatencyHistogram}.
+ */
+final class LatencyHistogramTest {
+
+  @Test
+  void percentileMethodThrowsIAEForIncorrectPercentile() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    assertThatThrownBy(() -> histogram.percentile(-1.0))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> histogram.percentile(100.1))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void emptyHistogramReturnsZeros() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+
+    assertThat(histogram.count()).isZero();
+    assertThat(histogram.max()).isZero();
+    assertThat(histogram.mean()).isZero();
+    assertThat(histogram.percentile(99.0)).isZero();
+  }
+
+  @Test
+  void smallValuesAreRecordedExactly() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    for (long value = 1L; value <= 100L; value++) {
+      histogram.record(value);
+    }
+
+    assertThat(histogram.count()).isEqualTo(100L);
+    assertThat(histogram.percentile(50.0)).isEqualTo(50L);
+    assertThat(histogram.percentile(99.0)).isEqualTo(99L);
+    assertThat(histogram.percentile(100.0)).isEqualTo(100L);
+    assertThat(histogram.mean()).isEqualTo(50.5);
+  }
+
+  @Test
+  void largeValuesAreRecordedWithinRelativeError() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    for (long value = 1L; value <= 10_000L; value++) {
+      histogram.record(value * 1_000L);
+    }
+
+    assertThat((double) histogram.percentile(50.0)).isCloseTo(5_000_000.0, within(50_000.0));
+    assertThat((double) histogram.percentile(99.9)).isCloseTo(9_990_000.0, within(99_900.0));
+    assertThat(histogram.max()).isEqualTo(10_000_000L);
+    assertThat(histogram.percentile(100.0)).isEqualTo(10_000_000L);
+  }
+
+  @Test
+  void bucketIndexesAreContiguousAndMonotonic() {
+    int previous = LatencyHistogram.index(0L);
+    for (long value = 1L; value < 1_000_000L; value++) {
+      final int index = LatencyHistogram.index(value);
+      assertThat(index - previous).isBetween(0, 1);
+      assertThat(LatencyHistogram.highestEquivalentValue(index)).isGreaterThanOrEqualTo(value);
+      previous = index;
+    }
+    assertThat(LatencyHistogram.highestEquivalentValue(LatencyHistogram.index(Long.MAX_VALUE)))
+      .isEqualTo(Long.MAX_VALUE);
+  }
+
+  @Test
+  void concurrentRecordsAndAddAreCounted() throws Exception {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    final List<Thread> threads = new ArrayList<>();
+    for (int idx = 0; idx < 4; idx++) {
+      final Thread thread = new Thread(() -> {
+        for (long value = 0L; value < 10_000L; value++) {
+          histogram.record(value);
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+    final LatencyHistogram total = new LatencyHistogram();
+    total.record(-5L);
+    total.add(histogram);
+
+    assertThat(histogram.count()).isEqualTo(40_000L);
+    assertThat(total.count()).isEqualTo(40_001L);
+    assertThat(total.percentile(0.0)).isZero();
+    assertThat(total.max()).isEqualTo(9_999L);
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas.harness;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link LoadGenerator}.
+ */
+final class LoadGeneratorTest {
+
+  @Test
+  void builderMethodsThrowExceptionsForIncorrectArgs() {
+    assertThatThrownBy(() -> LoadGenerator.builder(null, () -> 1))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> LoadGenerator.builder("name", null))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> LoadGenerator.builder("name", () -> 1).rate(0.0))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> LoadGenerator.builder("name", () -> 1).threads(-1))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> LoadGenerator.builder("name", () -> 1).duration(Duration.ZERO))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> LoadGenerator.builder("name", () -> 1).warmup(Duration.ofMillis(-1L)))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void runMethodStartsRequestsAtTargetRate() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    final LoadReport report = LoadGenerator.builder("counter", calls::incrementAndGet)
+      .rate(1_000.0)
+      .threads(2)
+      .warmup(Duration.ofMillis(100L))
+      .duration(Duration.ofMillis(500L))
+      .build()
+      .run();
+
+    assertThat(calls.get()).isBetween(590, 600);
+    assertThat(report.completed()).isBetween(495L, 500L);
+    assertThat(report.failures()).isZero();
+    assertThat(report.throughput()).isBetween(800.0, 1_001.0);
+    assertThat(report.name()).isEqualTo("counter");
+  }
+
+  @Test
+  void runMethodCountsFailures() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    final LoadReport report = LoadGenerator.builder("failing", () -> {
+      if (calls.incrementAndGet() % 2 == 0) { throw new IOException(); }
+      return null;
+    })
+      .rate(1_000.0)
+      .warmup(Duration.ZERO)
+      .duration(Duration.ofMillis(200L))
+      .build()
+      .run();
+
+    assertThat(report.completed()).isEqualTo(200L);
+    assertThat(report.failures()).isEqualTo(100L);
+  }
+
+  @Test
+  void latencyIncludesQueueingTimeOfStalledWorker() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    final LoadReport report = LoadGenerator.builder("stall", () -> {
+      if (calls.incrementAndGet() == 1) {
+        Thread.sleep(200L);
+      }
+      return null;
+    })
+      .rate(1_000.0)
+      .threads(1)
+      .warmup(Duration.ZERO)
+      .duration(Duration.ofMillis(400L))
+      .build()
+      .run();
+
+    assertThat(report.latency().percentile(90.0)).isGreaterThan(TimeUnit.MILLISECONDS.toNanos(100L));
+    assertThat(report.latency().max()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(190L));
+    assertThat(report.serviceTime().percentile(50.0)).isLessThan(TimeUnit.MILLISECONDS.toNanos(10L));
+  }
+
+  @Test
+  void reportTableContainsAllReports() throws Exception {
+    final LoadReport report = LoadGenerator.builder("table", () -> 1)
+      .rate(100.0)
+      .warmup(Duration.ZERO)
+      .duration(Duration.ofMillis(50L))
+      .build()
+      .run();
+
+    final String table = LoadReport.table(Collections.singletonList(report));
+    assertThat(table.split(System.lineSeparator())).hasSize(2);
+    assertThat(table).contains("workload", "p99.9 us", "table", "virtual");
+  }
+}
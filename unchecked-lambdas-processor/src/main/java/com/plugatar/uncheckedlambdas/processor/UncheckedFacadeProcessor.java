@@ -0,0 +1,289 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas.processor;
+
+import com.plugatar.uncheckedlambdas.UncheckedFacade;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Annotation processor that generates unchecked facades of the interfaces annotated with {@link UncheckedFacade}.
+ * <p>
+ * The facade of the {@code com.example.StorageClient} interface is the {@code com.example.StorageClientUnchecked}
+ * final class (the enclosing type names are prepended for nested interfaces). The facade implements the interface,
+ * has the static {@code of} factory method and delegates each method to the origin instance:
+ * <pre>{@code
+ * @Override
+ * public byte[] read(final String key) {
+ *   try {
+ *     return this.origin.read(key);
+ *   } catch (final Throwable ex) {
+ *     throw StorageClientUnchecked.<RuntimeException>sneakyThrow(ex);
+ *   }
+ * }
+ * }</pre>
+ * Methods without {@code throws} clause are delegated without {@code try} block. Static methods and methods of
+ * {@link Object} are not delegated.
+ */
+public final class UncheckedFacadeProcessor extends AbstractProcessor {
+
+  /**
+   * The default generated class name suffix.
+   */
+  private static final String SUFFIX = "Unchecked";
+
+  /**
+   * Ctor.
+   */
+  public UncheckedFacadeProcessor() {
+  }
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return Collections.singleton(UncheckedFacade.class.getCanonicalName());
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(final Set<? extends TypeElement> annotations,
+                         final RoundEnvironment roundEnv) {
+    for (final Element element : roundEnv.getElementsAnnotatedWith(UncheckedFacade.class)) {
+      if (element.getKind() != ElementKind.INTERFACE) {
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+          "@UncheckedFacade is applicable only to interfaces", element);
+        continue;
+      }
+      if (element.getModifiers().contains(Modifier.PRIVATE)) {
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+          "@UncheckedFacade is not applicable to private interfaces", element);
+        continue;
+      }
+      final TypeElement type = (TypeElement) element;
+      try {
+        this.generate(type);
+      } catch (final IOException ex) {
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+          "Cannot generate unchecked facade: " + ex.getMessage(), element);
+      }
+    }
+    return true;
+  }
+
+  private void generate(final TypeElement type) throws IOException {
+    final PackageElement pkg = this.processingEnv.getElementUtils().getPackageOf(type);
+    final String name = facadeName(type);
+    final String qualifiedName = pkg.isUnnamed() ? name : pkg.getQualifiedName() + "." + name;
+    final String typeParams = typeParameters(type.getTypeParameters());
+    final String typeArgs = typeArguments(type.getTypeParameters());
+    final String originType = type.getQualifiedName() + typeArgs;
+    try (final Writer writer = this.processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter();
+         final PrintWriter out = new PrintWriter(writer)) {
+      if (!pkg.isUnnamed()) {
+        out.println("package " + pkg.getQualifiedName() + ";");
+        out.println();
+      }
+      out.println("/**");
+      out.println(" * Unchecked facade of {@link " + type.getQualifiedName() + "}, generated by "
+        + UncheckedFacadeProcessor.class.getSimpleName() + ".");
+      out.println(" */");
+      out.println("public final class " + name + typeParams + " implements " + originType + " {");
+      out.println("  private final " + originType + " origin;");
+      out.println();
+      out.println("  private " + name + "(final " + originType + " origin) {");
+      out.println("    this.origin = origin;");
+      out.println("  }");
+      out.println();
+      out.println("  /**");
+      out.println("   * Returns unchecked facade of given origin.");
+      out.println("   *");
+      out.println("   * @param origin the origin");
+      out.println("   * @return unchecked facade");
+      out.println("   * @throws NullPointerException if {@code origin} arg is null");
+      out.println("   */");
+      out.println("  public static " + (typeParams.isEmpty() ? "" : typeParams + " ") + name + typeArgs
+        + " of(final " + originType + " origin) {");
+      out.println("    if (origin == null) { throw new NullPointerException(\"origin arg is null\"); }");
+      out.println("    return new " + name + (typeArgs.isEmpty() ? "" : "<>") + "(origin);");
+      out.println("  }");
+      final DeclaredType declaredType = (DeclaredType) type.asType();
+      final Set<String> signatures = new HashSet<>();
+      for (final ExecutableElement method
+        : ElementFilter.methodsIn(this.processingEnv.getElementUtils().getAllMembers(type))) {
+        if (method.getModifiers().contains(Modifier.STATIC) || isObjectMethod(method)) {
+          continue;
+        }
+        final ExecutableType methodType =
+          (ExecutableType) this.processingEnv.getTypeUtils().asMemberOf(declaredType, method);
+        if (signatures.add(this.signature(method, methodType))) {
+          out.println();
+          writeMethod(out, name, method, methodType);
+        }
+      }
+      out.println();
+      out.println("  @SuppressWarnings(\"unchecked\")");
+      out.println("  private static <E extends Throwable> RuntimeException sneakyThrow(final Throwable ex) throws E {");
+      out.println("    throw (E) ex;");
+      out.println("  }");
+      out.println("}");
+    }
+  }
+
+  private static void writeMethod(final PrintWriter out,
+                                  final String facadeName,
+                                  final ExecutableElement method,
+                                  final ExecutableType methodType) {
+    final List<? extends VariableElement> params = method.getParameters();
+    final List<? extends TypeMirror> paramTypes = methodType.getParameterTypes();
+    final Set<String> paramNames = new HashSet<>();
+    final StringBuilder declaration = new StringBuilder();
+    final StringBuilder arguments = new StringBuilder();
+    for (int idx = 0; idx < params.size(); idx++) {
+      final String paramName = params.get(idx).getSimpleName().toString();
+      paramNames.add(paramName);
+      final TypeMirror paramType = paramTypes.get(idx);
+      if (idx > 0) {
+        declaration.append(", ");
+        arguments.append(", ");
+      }
+      if (method.isVarArgs() && idx == params.size() - 1 && paramType.getKind() == TypeKind.ARRAY) {
+        declaration.append("final ").append(((ArrayType) paramType).getComponentType()).append("... ");
+      } else {
+        declaration.append("final ").append(paramType).append(' ');
+      }
+      declaration.append(paramName);
+      arguments.append(paramName);
+    }
+    final String typeParams = typeParameters(method.getTypeParameters());
+    final boolean isVoid = methodType.getReturnType().getKind() == TypeKind.VOID;
+    final String call = (isVoid ? "" : "return ") + "this.origin." + method.getSimpleName() + "(" + arguments + ");";
+    out.println("  @Override");
+    out.println("  public " + (typeParams.isEmpty() ? "" : typeParams + " ") + methodType.getReturnType() + " "
+      + method.getSimpleName() + "(" + declaration + ") {");
+    if (methodType.getThrownTypes().isEmpty()) {
+      out.println("    " + call);
+    } else {
+      String exName = "ex";
+      while (paramNames.contains(exName)) {
+        exName = exName + "_";
+      }
+      out.println("    try {");
+      out.println("      " + call);
+      out.println("    } catch (final Throwable " + exName + ") {");
+      out.println("      throw " + facadeName + ".<RuntimeException>sneakyThrow(" + exName + ");");
+      out.println("    }");
+    }
+    out.println("  }");
+  }
+
+  private String signature(final ExecutableElement method,
+                           final ExecutableType methodType) {
+    final StringBuilder builder = new StringBuilder(method.getSimpleName()).append('(');
+    for (final TypeMirror paramType : methodType.getParameterTypes()) {
+      builder.append(this.processingEnv.getTypeUtils().erasure(paramType)).append(',');
+    }
+    return builder.append(')').toString();
+  }
+
+  private static boolean isObjectMethod(final ExecutableElement method) {
+    final Element enclosing = method.getEnclosingElement();
+    if (enclosing instanceof TypeElement
+      && ((TypeElement) enclosing).getQualifiedName().contentEquals(Object.class.getName())) {
+      return true;
+    }
+    final String name = method.getSimpleName().toString();
+    final List<? extends VariableElement> params = method.getParameters();
+    return params.isEmpty() && (name.equals("toString") || name.equals("hashCode"))
+      || params.size() == 1 && name.equals("equals")
+      && params.get(0).asType().toString().equals(Object.class.getName());
+  }
+
+  private static String facadeName(final TypeElement type) {
+    final String customName = type.getAnnotation(UncheckedFacade.class).name();
+    if (!customName.isEmpty()) {
+      return customName;
+    }
+    final StringBuilder builder = new StringBuilder(type.getSimpleName());
+    Element enclosing = type.getEnclosingElement();
+    while (enclosing instanceof TypeElement) {
+      builder.insert(0, enclosing.getSimpleName());
+      enclosing = enclosing.getEnclosingElement();
+    }
+    return builder.append(SUFFIX).toString();
+  }
+
+  private static String typeParameters(final List<? extends TypeParameterElement> typeParams) {
+    if (typeParams.isEmpty()) {
+      return "";
+    }
+    final StringBuilder builder = new StringBuilder("<");
+    for (int idx = 0; idx < typeParams.size(); idx++) {
+      final TypeParameterElement typeParam = typeParams.get(idx);
+      if (idx > 0) {
+        builder.append(", ");
+      }
+      builder.append(typeParam.getSimpleName());
+      final List<? extends TypeMirror> bounds = typeParam.getBounds();
+      if (!(bounds.size() == 1 && bounds.get(0).toString().equals(Object.class.getName()))) {
+        for (int boundIdx = 0; boundIdx < bounds.size(); boundIdx++) {
+          builder.append(boundIdx == 0 ? " extends " : " & ").append(bounds.get(boundIdx));
+        }
+      }
+    }
+    return builder.append('>').toString();
+  }
+
+  private static String typeArguments(final List<? extends TypeParameterElement> typeParams) {
+    if (typeParams.isEmpty()) {
+      return "";
+    }
+    final StringBuilder builder = new StringBuilder("<");
+    for (int idx = 0; idx < typeParams.size(); idx++) {
+      if (idx > 0) {
+        builder.append(", ");
+      }
+      builder.append(typeParams.get(idx).getSimpleName());
+    }
+    return builder.append('>').toString();
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas.processor;
+
+import com.plugatar.uncheckedlambdas.UncheckedFacade;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link UncheckedFacadeProcessor}.
+ */
+final class UncheckedFacadeProcessorTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void generatedFacadeDeclaresNoCheckedExceptionsAndDelegatesToOrigin() throws Exception {
+    final Compilation compilation = this.compile("example.StorageClient", String.join("\n",
+      "package example;",
+      "",
+      "import com.plugatar.uncheckedlambdas.UncheckedFacade;",
+      "import java.io.IOException;",
+      "",
+      "@UncheckedFacade",
+      "public interface StorageClient {",
+      "  byte[] read(String key) throws IOException;",
+      "  void write(String key, byte... value) throws IOException, InterruptedException;",
+      "  int size();",
+      "  default String describe(String ex) throws Exception { return ex + size(); }",
+      "}"
+    ));
+    assertThat(compilation.errors()).isEmpty();
+    final String source = compilation.generatedSource("example/StorageClientUnchecked.java");
+    assertThat(source).doesNotContain("->").doesNotContain("::");
+
+    final Class<?> clientClass = compilation.loader.loadClass("example.StorageClient");
+    final Class<?> facadeClass = compilation.loader.loadClass("example.StorageClientUnchecked");
+    for (final Method method : facadeClass.getDeclaredMethods()) {
+      if (Modifier.isPublic(method.getModifiers())) {
+        assertThat(method.getExceptionTypes()).as(method.getName()).isEmpty();
+      }
+    }
+    assertThat(facadeClass.getMethod("write", String.class, byte[].class).isVarArgs()).isTrue();
+
+    final IOException exception = new IOException();
+    final Object origin = Proxy.newProxyInstance(compilation.loader, new Class<?>[]{clientClass},
+      (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "read":
+            throw exception;
+          case "size":
+            return 42;
+          case "describe":
+            return "described " + args[0];
+          default:
+            return null;
+        }
+      });
+    final Object facade = facadeClass.getMethod("of", clientClass).invoke(null, origin);
+
+    assertThat(clientClass.isInstance(facade)).isTrue();
+    assertThat(facadeClass.getMethod("size").invoke(facade)).isEqualTo(42);
+    assertThat(facadeClass.getMethod("describe", String.class).invoke(facade, "it")).isEqualTo("described it");
+    assertThatThrownBy(() -> invoke(facadeClass.getMethod("read", String.class), facade, "key"))
+      .isSameAs(exception);
+    assertThatThrownBy(() -> facadeClass.getMethod("of", clientClass).invoke(null, new Object[]{null}))
+      .hasCauseInstanceOf(NullPointerException.class);
+  }
+
+  @Test
+  void generatedFacadeSupportsGenericsInheritanceAndCustomName() throws Exception {
+    final Compilation compilation = this.compile("example.Repositories", String.join("\n",
+      "package example;",
+      "",
+      "import com.plugatar.uncheckedlambdas.UncheckedFacade;",
+      "import java.util.List;",
+      "",
+      "public final class Repositories {",
+      "  public interface Base<T> {",
+      "    T find(int id) throws Exception;",
+      "  }",
+      "",
+      "  @UncheckedFacade",
+      "  public interface Repo<T extends CharSequence & Comparable<T>> extends Base<T> {",
+      "    <R extends Comparable<? super R>> R max(List<? extends R> values) throws java.sql.SQLException;",
+      "    @Override",
+      "    String toString();",
+      "  }",
+      "",
+      "  @UncheckedFacade(name = \"Files\")",
+      "  public interface FileStore {",
+      "    void delete(String path) throws java.io.IOException;",
+      "  }",
+      "}"
+    ));
+
+    assertThat(compilation.errors()).isEmpty();
+    final Class<?> repoFacade = compilation.loader.loadClass("example.RepositoriesRepoUnchecked");
+    assertThat(repoFacade.getTypeParameters()).hasSize(1);
+    assertThat(repoFacade.getMethod("find", int.class).getExceptionTypes()).isEmpty();
+    assertThat(compilation.loader.loadClass("example.Files").getMethod("delete", String.class).getExceptionTypes())
+      .isEmpty();
+  }
+
+  @Test
+  void processorReportsErrorForNotInterface() throws Exception {
+    final Compilation compilation = this.compile("example.NotInterface", String.join("\n",
+      "package example;",
+      "",
+      "@com.plugatar.uncheckedlambdas.UncheckedFacade",
+      "public class NotInterface {",
+      "}"
+    ));
+
+    assertThat(compilation.errors()).containsExactly("@UncheckedFacade is applicable only to interfaces");
+  }
+
+  private static Object invoke(final Method method,
+                               final Object target,
+                               final Object... args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (final InvocationTargetException ex) {
+      throw ex.getCause();
+    }
+  }
+
+  private Compilation compile(final String className,
+                              final String source) throws Exception {
+    final Path sources = Files.createDirectories(this.dir.resolve("src"));
+    final Path classes = Files.createDirectories(this.dir.resolve("classes"));
+    final Path sourceFile = sources.resolve(className.replace('.', '/') + ".java");
+    Files.createDirectories(sourceFile.getParent());
+    Files.write(sourceFile, source.getBytes(StandardCharsets.UTF_8));
+    final String classpath = new File(UncheckedFacade.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+      .getPath();
+
+    final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    try (final StandardJavaFileManager fileManager =
+           compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+      final JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+        Arrays.asList("-classpath", classpath, "-d", classes.toString(), "-s", classes.toString()), null,
+        fileManager.getJavaFileObjects(sourceFile.toFile()));
+      task.setProcessors(Collections.singletonList(new UncheckedFacadeProcessor()));
+      task.call();
+    }
+    final List<String> errors = new ArrayList<>();
+    for (final Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+      if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+        errors.add(diagnostic.getMessage(null));
+      }
+    }
+    return new Compilation(
+      errors, classes, new URLClassLoader(new URL[]{classes.toUri().toURL()}, UncheckedFacade.class.getClassLoader())
+    );
+  }
+
+  /**
+   * Compilation result.
+   */
+  private static final class Compilation {
+    private final List<String> errors;
+    private final Path classes;
+    private final ClassLoader loader;
+
+    private Compilation(final List<String> errors,
+                        final Path classes,
+                        final ClassLoader loader) {
+      this.errors = errors;
+      this.classes = classes;
+      this.loader = loader;
+    }
+
+    private List<String> errors() {
+      return this.errors;
+    }
+
+    private String generatedSource(final String path) throws IOException {
+      return new String(Files.readAllBytes(this.classes.resolve(path)), StandardCharsets.UTF_8);
+    }
+  }
+}
@@ -0,0 +1,553 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Fault and latency injector for the performance and resilience testing. The lambdas decorated by the injector
+ * perform the origin lambdas unchanged until a {@link Fault} is activated.
+ * <pre>{@code
+ * final ChaosInjector chaos = ChaosInjector.create();
+ * final ThFunction<Request, Response, IOException> send = chaos.wrapRes(client::send);
+ *
+ * chaos.activate(ChaosInjector.Fault.builder()
+ *   .latency(0.2, ChaosInjector.Latency.exponential(Duration.ofMillis(50)))
+ *   .failure(0.01, () -> new SocketTimeoutException("injected"))
+ *   .build());
+ * // ...
+ * chaos.deactivate();
+ * }</pre>
+ * The active fault is kept in a volatile field, so the inactive decorated lambda costs only one volatile read. The
+ * fault can be activated and deactivated at runtime from any thread, the change is visible to all lambdas decorated
+ * by the injector. The injected latency is waited before the origin lambda call, the wait stops early if the thread
+ * is interrupted and the interrupt status is kept. The injected exceptions are thrown instead of the origin lambda
+ * call without declaration, like by the {@code asUnchecked()} lambdas.
+ */
+public final class ChaosInjector {
+  private final AtomicLong injectedLatencyCount;
+  private final AtomicLong injectedFailureCount;
+  private volatile Fault fault;
+
+  /**
+   * Ctor.
+   */
+  private ChaosInjector() {
+    this.injectedLatencyCount = new AtomicLong();
+    this.injectedFailureCount = new AtomicLong();
+    this.fault = null;
+  }
+
+  /**
+   * Returns new inactive injector.
+   *
+   * @return injector
+   */
+  public static ChaosInjector create() {
+    return new ChaosInjector();
+  }
+
+  /**
+   * Activates given fault, the previous active fault is replaced.
+   *
+   * @param fault the fault
+   * @throws NullPointerException if {@code fault} arg is null
+   */
+  public void activate(final Fault fault) {
+    if (fault == null) { throw new NullPointerException("fault arg is null"); }
+    this.fault = fault;
+  }
+
+  /**
+   * Deactivates the active fault.
+   */
+  public void deactivate() {
+    this.fault = null;
+  }
+
+  /**
+   * Returns {@code true} if a fault is active.
+   *
+   * @return {@code true} if a fault is active
+   */
+  public boolean isActive() {
+    return this.fault != null;
+  }
+
+  /**
+   * Returns the number of the injected latencies.
+   *
+   * @return number of the injected latencies
+   */
+  public long injectedLatencyCount() {
+    return this.injectedLatencyCount.get();
+  }
+
+  /**
+   * Returns the number of the injected exceptions.
+   *
+   * @return number of the injected exceptions
+   */
+  public long injectedFailureCount() {
+    return this.injectedFailureCount.get();
+  }
+
+  /**
+   * Returns runnable that injects the active fault before each call of given runnable.
+   *
+   * @param runnable the runnable
+   * @param <E>      the type of the throwing exception
+   * @return decorated runnable
+   * @throws NullPointerException if {@code runnable} arg is null
+   */
+  public <E extends Throwable> ThRunnable<E> wrap(
+    final ThRunnable<? extends E> runnable
+  ) {
+    if (runnable == null) { throw new NullPointerException("runnable arg is null"); }
+    return () -> {
+      final Fault current = this.fault;
+      if (current != null) { this.inject(current); }
+      runnable.run();
+    };
+  }
+
+  /**
+   * Returns consumer that injects the active fault before each call of given consumer.
+   *
+   * @param consumer the consumer
+   * @param <T>      the type of the argument
+   * @param <E>      the type of the throwing exception
+   * @return decorated consumer
+   * @throws NullPointerException if {@code consumer} arg is null
+   */
+  public <T, E extends Throwable> ThConsumer<T, E> wrap(
+    final ThConsumer<? super T, ? extends E> consumer
+  ) {
+    if (consumer == null) { throw new NullPointerException("consumer arg is null"); }
+    return t -> {
+      final Fault current = this.fault;
+      if (current != null) { this.inject(current); }
+      consumer.accept(t);
+    };
+  }
+
+  /**
+   * Returns consumer that injects the active fault before each call of given consumer.
+   *
+   * @param consumer the consumer
+   * @param <T>      the type of the first argument
+   * @param <U>      the type of the second argument
+   * @param <E>      the type of the throwing exception
+   * @return decorated consumer
+   * @throws NullPointerException if {@code consumer} arg is null
+   */
+  public <T, U, E extends Throwable> ThBiConsumer<T, U, E> wrap(
+    final ThBiConsumer<? super T, ? super U, ? extends E> consumer
+  ) {
+    if (consumer == null) { throw new NullPointerException("consumer arg is null"); }
+    return (t, u) -> {
+      final Fault current = this.fault;
+      if (current != null) { this.inject(current); }
+      consumer.accept(t, u);
+    };
+  }
+
+  /**
+   * Returns consumer that injects the active fault before each call of given consumer.
+   *
+   * @param consumer the consumer
+   * @param <T>      the type of the first argument
+   * @param <U>      the type of the second argument
+   * @param <V>      the type of the third argument
+   * @param <E>      the type of the throwing exception
+   * @return decorated consumer
+   * @throws NullPointerException if {@code consumer} arg is null
+   */
+  public <T, U, V, E extends Throwable> ThTriConsumer<T, U, V, E> wrap(
+    final ThTriConsumer<? super T, ? super U, ? super V, ? extends E> consumer
+  ) {
+    if (consumer == null) { throw new NullPointerException("consumer arg is null"); }
+    return (t, u, v) -> {
+      final Fault current = this.fault;
+      if (current != null) { this.inject(current); }
+      consumer.accept(t, u, v);
+    };
+  }
+
+  /**
+   * Returns supplier that injects the active fault before each call of given supplier.
+   *
+   * @param supplier the supplier
+   * @param <R>      the type of the result
+   * @param <E>      the type of the throwing exception
+   * @return decorated supplier
+   * @throws NullPointerException if {@code supplier} arg is null
+   */
+  public <R, E extends Throwable> ThSupplier<R, E> wrapRes(
+    final ThSupplier<? extends R, ? extends E> supplier
+  ) {
+    if (supplier == null) { throw new NullPointerException("supplier arg is null"); }
+    return () -> {
+      final Fault current = this.fault;
+      if (current != null) { this.inject(current); }
+      return supplier.get();
+    };
+  }
+
+  /**
+   * Returns function that injects the active fault before each call of given function.
+   *
+   * @param function the function
+   * @param <T>      the type of the argument
+   * @param <R>      the type of the result
+   * @param <E>      the type of the throwing exception
+   * @return decorated function
+   * @throws NullPointerException if {@code function} arg is null
+   */
+  public <T, R, E extends Throwable> ThFunction<T, R, E> wrapRes(
+    final ThFunction<? super T, ? extends R, ? extends E> function
+  ) {
+    if (function == null) { throw new NullPointerException("function arg is null"); }
+    return t -> {
+      final Fault current = this.fault;
+      if (current != null) { this.inject(current); }
+      return function.apply(t);
+    };
+  }
+
+  /**
+   * Returns function that injects the active fault before each call of given function.
+   *
+   * @param function the function
+   * @param <T>      the type of the first argument
+   * @param <U>      the type of the second argument
+   * @param <R>      the type of the result
+   * @param <E>      the type of the throwing exception
+   * @return decorated function
+   * @throws NullPointerException if {@code function} arg is null
+   */
+  public <T, U, R, E extends Throwable> ThBiFunction<T, U, R, E> wrapRes(
+    final ThBiFunction<? super T, ? super U, ? extends R, ? extends E> function
+  ) {
+    if (function == null) { throw new NullPointerException("function arg is null"); }
+    return (t, u) -> {
+      final Fault current = this.fault;
+      if (current != null) { this.inject(current); }
+      return function.apply(t, u);
+    };
+  }
+
+  /**
+   * Returns function that injects the active fault before each call of given function.
+   *
+   * @param function the function
+   * @param <T>      the type of the first argument
+   * @param <U>      the type of the second argument
+   * @param <V>      the type of the third argument
+   * @param <R>      the type of the result
+   * @param <E>      the type of the throwing exception
+   * @return decorated function
+   * @throws NullPointerException if {@code function} arg is null
+   */
+  public <T, U, V, R, E extends Throwable> ThTriFunction<T, U, V, R, E> wrapRes(
+    final ThTriFunction<? super T, ? super U, ? super V, ? extends R, ? extends E> function
+  ) {
+    if (function == null) { throw new NullPointerException("function arg is null"); }
+    return (t, u, v) -> {
+      final Fault current = this.fault;
+      if (current != null) { this.inject(current); }
+      return function.apply(t, u, v);
+    };
+  }
+
+  @Override
+  public String toString() {
+    return "ChaosInjector[fault=" + this.fault + "]";
+  }
+
+  @SuppressWarnings("unchecked")
+  private <E extends Throwable> void inject(final Fault current) throws E {
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    if (current.latency != null && random.nextDouble() < current.latencyProbability) {
+      this.injectedLatencyCount.incrementAndGet();
+      parkUntil(System.nanoTime() + current.latency.sampleNanos(random));
+    }
+    if (!current.failures.isEmpty()) {
+      double threshold = random.nextDouble();
+      for (final Failure failure : current.failures) {
+        threshold -= failure.probability;
+        if (threshold < 0.0) {
+          final Throwable exception = failure.exception.get();
+          if (exception == null) { throw new NullPointerException("exception supplier returned null"); }
+          this.injectedFailureCount.incrementAndGet();
+          throw (E) exception;
+        }
+      }
+    }
+  }
+
+  private static void parkUntil(final long wakeUpNanos) {
+    long remaining;
+    while ((remaining = wakeUpNanos - System.nanoTime()) > 0L && !Thread.currentThread().isInterrupted()) {
+      LockSupport.parkNanos(remaining);
+    }
+  }
+
+  /**
+   * The fault: injected latency and exceptions with their probabilities.
+   */
+  public static final class Fault {
+    private final double latencyProbability;
+    private final Latency latency;
+    private final List<Failure> failures;
+
+    /**
+     * Ctor.
+     *
+     * @param latencyProbability the latency probability
+     * @param latency            the latency or null
+     * @param failures           the failures
+     */
+    private Fault(final double latencyProbability,
+                  final Latency latency,
+                  final List<Failure> failures) {
+      this.latencyProbability = latencyProbability;
+      this.latency = latency;
+      this.failures = failures;
+    }
+
+    /**
+     * Returns new fault builder.
+     *
+     * @return builder
+     */
+    public static Builder builder() {
+      return new Builder();
+    }
+
+    @Override
+    public String toString() {
+      return "Fault[latencyProbability=" + this.latencyProbability + ", latency=" + this.latency
+        + ", failures=" + this.failures.size() + "]";
+    }
+
+    /**
+     * Fault builder.
+     */
+    public static final class Builder {
+
+      /**
+       * Tolerance of the exceptions probabilities sum check.
+       */
+      private static final double PROBABILITY_SUM_EPSILON = 1e-9;
+
+      private final List<Failure> failures;
+      private double latencyProbability;
+      private Latency latency;
+      private double failuresProbability;
+
+      /**
+       * Ctor.
+       */
+      private Builder() {
+        this.failures = new ArrayList<>();
+        this.latencyProbability = 0.0;
+        this.latency = null;
+        this.failuresProbability = 0.0;
+      }
+
+      /**
+       * Sets the latency injected with given probability.
+       *
+       * @param probability the probability from 0 to 1
+       * @param latency     the latency distribution
+       * @return this builder
+       * @throws NullPointerException     if {@code latency} arg is null
+       * @throws IllegalArgumentException if {@code probability} arg is not in range from 0 to 1
+       */
+      public Builder latency(final double probability,
+                             final Latency latency) {
+        if (latency == null) { throw new NullPointerException("latency arg is null"); }
+        checkProbability(probability);
+        this.latencyProbability = probability;
+        this.latency = latency;
+        return this;
+      }
+
+      /**
+       * Adds the exception thrown with given probability. The probabilities of the exceptions are exclusive, at most
+       * one exception is thrown per call.
+       *
+       * @param probability the probability from 0 to 1
+       * @param exception   the exception supplier
+       * @return this builder
+       * @throws NullPointerException     if {@code exception} arg is null
+       * @throws IllegalArgumentException if {@code probability} arg is not in range from 0 to 1 or the sum of the
+       *                                  exceptions probabilities is greater than 1
+       */
+      public Builder failure(final double probability,
+                             final Supplier<? extends Throwable> exception) {
+        if (exception == null) { throw new NullPointerException("exception arg is null"); }
+        checkProbability(probability);
+        if (this.failuresProbability + probability > 1.0 + PROBABILITY_SUM_EPSILON) {
+          throw new IllegalArgumentException("sum of the exceptions probabilities is greater than 1");
+        }
+        this.failuresProbability += probability;
+        this.failures.add(new Failure(probability, exception));
+        return this;
+      }
+
+      /**
+       * Builds the fault.
+       *
+       * @return fault
+       */
+      public Fault build() {
+        return new Fault(this.latencyProbability, this.latency, new ArrayList<>(this.failures));
+      }
+
+      private static void checkProbability(final double probability) {
+        if (!(probability >= 0.0 && probability <= 1.0)) {
+          throw new IllegalArgumentException("probability arg is not in range from 0 to 1");
+        }
+      }
+    }
+  }
+
+  /**
+   * The injected latency distribution.
+   */
+  public static final class Latency {
+    private final String description;
+    private final Sampler sampler;
+
+    /**
+     * Ctor.
+     *
+     * @param description the description
+     * @param sampler     the sampler
+     */
+    private Latency(final String description,
+                    final Sampler sampler) {
+      this.description = description;
+      this.sampler = sampler;
+    }
+
+    /**
+     * Returns fixed latency.
+     *
+     * @param latency the latency
+     * @return latency distribution
+     * @throws NullPointerException     if {@code latency} arg is null
+     * @throws IllegalArgumentException if {@code latency} arg is negative
+     */
+    public static Latency fixed(final Duration latency) {
+      final long nanos = nonNegativeNanos(latency, "latency");
+      return new Latency("fixed " + latency, random -> nanos);
+    }
+
+    /**
+     * Returns latency uniformly distributed between given min and max.
+     *
+     * @param min the min latency
+     * @param max the max latency
+     * @return latency distribution
+     * @throws NullPointerException     if {@code min} arg or {@code max} arg is null
+     * @throws IllegalArgumentException if {@code min} arg is negative or {@code max} arg is less than {@code min}
+     *                                  arg
+     */
+    public static Latency uniform(final Duration min,
+                                  final Duration max) {
+      final long minNanos = nonNegativeNanos(min, "min");
+      final long maxNanos = nonNegativeNanos(max, "max");
+      if (maxNanos < minNanos) { throw new IllegalArgumentException("max arg is less than min arg"); }
+      return new Latency("uniform " + min + ".." + max,
+        random -> minNanos == maxNanos ? minNanos : random.nextLong(minNanos, maxNanos + 1L));
+    }
+
+    /**
+     * Returns exponentially distributed latency with given mean, the max latency is 20 means.
+     *
+     * @param mean the mean latency
+     * @return latency distribution
+     * @throws NullPointerException     if {@code mean} arg is null
+     * @throws IllegalArgumentException if {@code mean} arg is negative
+     */
+    public static Latency exponential(final Duration mean) {
+      final long meanNanos = nonNegativeNanos(mean, "mean");
+      return new Latency("exponential " + mean,
+        random -> (long) Math.min(meanNanos * 20.0, -meanNanos * Math.log(1.0 - random.nextDouble())));
+    }
+
+    @Override
+    public String toString() {
+      return this.description;
+    }
+
+    private long sampleNanos(final ThreadLocalRandom random) {
+      return this.sampler.sampleNanos(random);
+    }
+
+    private static long nonNegativeNanos(final Duration duration,
+                                         final String name) {
+      if (duration == null) { throw new NullPointerException(name + " arg is null"); }
+      if (duration.isNegative()) { throw new IllegalArgumentException(name + " arg is negative"); }
+      return duration.compareTo(Duration.ofNanos(Long.MAX_VALUE / 2L)) > 0
+        ? Long.MAX_VALUE / 2L
+        : duration.toNanos();
+    }
+
+    /**
+     * Latency sampler.
+     */
+    private interface Sampler {
+
+      /**
+       * Returns the latency sample.
+       *
+       * @param random the random
+       * @return latency in nanoseconds
+       */
+      long sampleNanos(ThreadLocalRandom random);
+    }
+  }
+
+  /**
+   * The injected exception.
+   */
+  private static final class Failure {
+    private final double probability;
+    private final Supplier<? extends Throwable> exception;
+
+    /**
+     * Ctor.
+     *
+     * @param probability the probability
+     * @param exception   the exception supplier
+     */
+    private Failure(final double probability,
+                    final Supplier<? extends Throwable> exception) {
+      this.probability = probability;
+      this.exception = exception;
+    }
+  }
+}
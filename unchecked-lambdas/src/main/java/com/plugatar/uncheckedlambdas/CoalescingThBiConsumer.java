@@ -0,0 +1,265 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@link ThBiConsumer} decorator that coalesces bursts of events into invocations of the origin bi consumer with
+ * the latest arguments. The semantics are the same as for {@link CoalescingThConsumer}. Both arguments are written to
+ * the two fields of the pending slot guarded by a sequence counter, so no objects are allocated per event and the
+ * origin bi consumer always gets a pair of arguments published together.
+ *
+ * @param <T> the type of the first input argument
+ * @param <U> the type of the second input argument
+ * @param <E> the type of the throwing exception
+ */
+public final class CoalescingThBiConsumer<T, U, E extends Throwable> implements ThBiConsumer<T, U, E> {
+  private final Slot<T, U> slot;
+  private final CoalescingThConsumer<Object, E> consumer;
+
+  /**
+   * Ctor.
+   *
+   * @param slot     the pending arguments slot
+   * @param consumer the coalescing consumer of the slot
+   */
+  private CoalescingThBiConsumer(final Slot<T, U> slot,
+                                 final CoalescingThConsumer<Object, E> consumer) {
+    this.slot = slot;
+    this.consumer = consumer;
+  }
+
+  /**
+   * Returns new bi consumer that invokes the origin bi consumer with the latest arguments on the shared executor. On
+   * Java 21+ it is a virtual thread per drain.
+   *
+   * @param origin the origin bi consumer
+   * @param <T>    the type of the first input argument
+   * @param <U>    the type of the second input argument
+   * @param <E>    the type of the throwing exception
+   * @return coalescing bi consumer
+   * @throws NullPointerException if {@code origin} arg is null
+   */
+  public static <T, U, E extends Throwable> CoalescingThBiConsumer<T, U, E> coalesceLatest(
+    final ThBiConsumer<? super T, ? super U, ? extends E> origin
+  ) {
+    return coalesceLatest(origin, SharedExecutor.get());
+  }
+
+  /**
+   * Returns new bi consumer that invokes the origin bi consumer with the latest arguments on given executor.
+   *
+   * @param origin   the origin bi consumer
+   * @param executor the executor
+   * @param <T>      the type of the first input argument
+   * @param <U>      the type of the second input argument
+   * @param <E>      the type of the throwing exception
+   * @return coalescing bi consumer
+   * @throws NullPointerException if {@code origin} arg or {@code executor} arg is null
+   */
+  public static <T, U, E extends Throwable> CoalescingThBiConsumer<T, U, E> coalesceLatest(
+    final ThBiConsumer<? super T, ? super U, ? extends E> origin,
+    final Executor executor
+  ) {
+    final Slot<T, U> slot = new Slot<>();
+    return new CoalescingThBiConsumer<>(slot, CoalescingThConsumer.coalesceLatest(slot.draining(origin), executor));
+  }
+
+  /**
+   * Returns new bi consumer that invokes the origin bi consumer on the shared executor at most once per given
+   * interval. On Java 21+ it is a virtual thread per drain.
+   *
+   * @param origin   the origin bi consumer
+   * @param interval the interval
+   * @param <T>      the type of the first input argument
+   * @param <U>      the type of the second input argument
+   * @param <E>      the type of the throwing exception
+   * @return throttling bi consumer
+   * @throws NullPointerException     if {@code origin} arg or {@code interval} arg is null
+   * @throws IllegalArgumentException if {@code interval} arg is not positive
+   */
+  public static <T, U, E extends Throwable> CoalescingThBiConsumer<T, U, E> throttle(
+    final ThBiConsumer<? super T, ? super U, ? extends E> origin,
+    final Duration interval
+  ) {
+    return throttle(origin, interval, SharedExecutor.get());
+  }
+
+  /**
+   * Returns new bi consumer that invokes the origin bi consumer on given executor at most once per given interval.
+   *
+   * @param origin   the origin bi consumer
+   * @param interval the interval
+   * @param executor the executor
+   * @param <T>      the type of the first input argument
+   * @param <U>      the type of the second input argument
+   * @param <E>      the type of the throwing exception
+   * @return throttling bi consumer
+   * @throws NullPointerException     if {@code origin} arg or {@code interval} arg or {@code executor} arg is null
+   * @throws IllegalArgumentException if {@code interval} arg is not positive
+   */
+  public static <T, U, E extends Throwable> CoalescingThBiConsumer<T, U, E> throttle(
+    final ThBiConsumer<? super T, ? super U, ? extends E> origin,
+    final Duration interval,
+    final Executor executor
+  ) {
+    final Slot<T, U> slot = new Slot<>();
+    return new CoalescingThBiConsumer<>(slot, CoalescingThConsumer.throttle(slot.draining(origin), interval, executor));
+  }
+
+  /**
+   * Returns new bi consumer that invokes the origin bi consumer on the shared executor once no events were published
+   * for given quiet period. On Java 21+ it is a virtual thread per drain.
+   *
+   * @param origin the origin bi consumer
+   * @param quiet  the quiet period
+   * @param <T>    the type of the first input argument
+   * @param <U>    the type of the second input argument
+   * @param <E>    the type of the throwing exception
+   * @return debouncing bi consumer
+   * @throws NullPointerException     if {@code origin} arg or {@code quiet} arg is null
+   * @throws IllegalArgumentException if {@code quiet} arg is not positive
+   */
+  public static <T, U, E extends Throwable> CoalescingThBiConsumer<T, U, E> debounce(
+    final ThBiConsumer<? super T, ? super U, ? extends E> origin,
+    final Duration quiet
+  ) {
+    return debounce(origin, quiet, SharedExecutor.get());
+  }
+
+  /**
+   * Returns new bi consumer that invokes the origin bi consumer on given executor once no events were published for
+   * given quiet period.
+   *
+   * @param origin   the origin bi consumer
+   * @param quiet    the quiet period
+   * @param executor the executor
+   * @param <T>      the type of the first input argument
+   * @param <U>      the type of the second input argument
+   * @param <E>      the type of the throwing exception
+   * @return debouncing bi consumer
+   * @throws NullPointerException     if {@code origin} arg or {@code quiet} arg or {@code executor} arg is null
+   * @throws IllegalArgumentException if {@code quiet} arg is not positive
+   */
+  public static <T, U, E extends Throwable> CoalescingThBiConsumer<T, U, E> debounce(
+    final ThBiConsumer<? super T, ? super U, ? extends E> origin,
+    final Duration quiet,
+    final Executor executor
+  ) {
+    final Slot<T, U> slot = new Slot<>();
+    return new CoalescingThBiConsumer<>(slot, CoalescingThConsumer.debounce(slot.draining(origin), quiet, executor));
+  }
+
+  /**
+   * Publishes given arguments. The origin bi consumer is invoked asynchronously, this method doesn't throw origin bi
+   * consumer exceptions.
+   *
+   * @param t the first input argument
+   * @param u the second input argument
+   */
+  @Override
+  public void accept(final T t,
+                     final U u) {
+    this.slot.set(t, u);
+    this.consumer.accept(this.slot);
+  }
+
+  /**
+   * Returns the number of the origin bi consumer invocations.
+   *
+   * @return number of invocations
+   */
+  public long invocationCount() {
+    return this.consumer.invocationCount();
+  }
+
+  /**
+   * Returns the number of the origin bi consumer failures.
+   *
+   * @return number of failures
+   */
+  public long failureCount() {
+    return this.consumer.failureCount();
+  }
+
+  /**
+   * Returns the last exception of the origin bi consumer or null.
+   *
+   * @return last exception or null
+   */
+  public Throwable lastFailure() {
+    return this.consumer.lastFailure();
+  }
+
+  /**
+   * Pending arguments slot. Writers make the sequence odd while writing the arguments, readers retry if the sequence
+   * was odd or changed while reading.
+   *
+   * @param <T> the type of the first argument
+   * @param <U> the type of the second argument
+   */
+  private static final class Slot<T, U> {
+    private final AtomicLong sequence;
+    private volatile T t;
+    private volatile U u;
+
+    /**
+     * Ctor.
+     */
+    private Slot() {
+      this.sequence = new AtomicLong();
+      this.t = null;
+      this.u = null;
+    }
+
+    private void set(final T newT,
+                     final U newU) {
+      while (true) {
+        final long seq = this.sequence.get();
+        if ((seq & 1L) == 0L && this.sequence.compareAndSet(seq, seq + 1L)) {
+          this.t = newT;
+          this.u = newU;
+          this.sequence.set(seq + 2L);
+          return;
+        }
+        Thread.yield();
+      }
+    }
+
+    private <E extends Throwable> ThConsumer<Object, E> draining(
+      final ThBiConsumer<? super T, ? super U, ? extends E> origin
+    ) {
+      if (origin == null) { throw new NullPointerException("origin arg is null"); }
+      return ignored -> {
+        while (true) {
+          final long seq = this.sequence.get();
+          if ((seq & 1L) == 0L) {
+            final T currentT = this.t;
+            final U currentU = this.u;
+            if (this.sequence.get() == seq) {
+              origin.accept(currentT, currentU);
+              return;
+            }
+          }
+          Thread.yield();
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The {@link ThConsumer} decorator that coalesces bursts of events into invocations of the origin consumer with the
+ * latest event.
+ * <ul>
+ * <li>{@link #coalesceLatest(ThConsumer)} invokes the origin consumer as soon as possible with the latest event,
+ * events published while the origin consumer is running are coalesced</li>
+ * <li>{@link #throttle(ThConsumer, Duration)} invokes the origin consumer with the first event of a burst and then at
+ * most once per interval with the latest event</li>
+ * <li>{@link #debounce(ThConsumer, Duration)} invokes the origin consumer with the latest event once no events were
+ * published for the quiet period</li>
+ * </ul>
+ * Publishing an event is a write to the atomic "latest pending" slot and an atomic counter update, no objects are
+ * allocated and no locks are taken per event. Timers are scheduled on the shared timer wheel once per burst. The
+ * origin consumer is invoked on the executor and is never invoked concurrently. Exceptions of the origin consumer are
+ * exposed by {@link #failureCount()} and {@link #lastFailure()} methods. If the executor rejects a drain the origin
+ * consumer is invoked on the publishing thread, but never on the timer wheel thread: a drain rejected from a timer is
+ * counted as a failure and the latest event stays pending until the next event or timer.
+ *
+ * @param <T> the type of the events
+ * @param <E> the type of the throwing exception
+ */
+public final class CoalescingThConsumer<T, E extends Throwable> implements ThConsumer<T, E> {
+
+  /**
+   * Empty slot marker.
+   */
+  private static final Object EMPTY = new Object();
+
+  /**
+   * Null event marker.
+   */
+  private static final Object NULL = new Object();
+
+  private final ThConsumer<? super T, ? extends E> origin;
+  private final Mode mode;
+  private final long periodNanos;
+  private final Executor executor;
+  private final TimerWheel timerWheel;
+  private final AtomicReference<Object> latest;
+  private final AtomicInteger wip;
+  private final AtomicBoolean armed;
+  private final AtomicLong invocationCount;
+  private final AtomicLong failureCount;
+  private final Runnable drainTask;
+  private final Runnable timerTask;
+  private volatile long lastEventNanos;
+  private volatile Throwable lastFailure;
+
+  /**
+   * Ctor.
+   *
+   * @param origin      the origin consumer
+   * @param mode        the mode
+   * @param periodNanos the throttle interval or the debounce quiet period
+   * @param executor    the executor
+   * @param timerWheel  the timer wheel
+   */
+  CoalescingThConsumer(final ThConsumer<? super T, ? extends E> origin,
+                       final Mode mode,
+                       final long periodNanos,
+                       final Executor executor,
+                       final TimerWheel timerWheel) {
+    this.origin = origin;
+    this.mode = mode;
+    this.periodNanos = periodNanos;
+    this.executor = executor;
+    this.timerWheel = timerWheel;
+    this.latest = new AtomicReference<>(EMPTY);
+    this.wip = new AtomicInteger();
+    this.armed = new AtomicBoolean();
+    this.invocationCount = new AtomicLong();
+    this.failureCount = new AtomicLong();
+    this.drainTask = this::drain;
+    this.timerTask = this::onTimer;
+    this.lastEventNanos = 0L;
+    this.lastFailure = null;
+  }
+
+  /**
+   * Returns new consumer that invokes the origin consumer with the latest event on the shared executor. On Java 21+
+   * it is a virtual thread per drain.
+   *
+   * @param origin the origin consumer
+   * @param <T>    the type of the events
+   * @param <E>    the type of the throwing exception
+   * @return coalescing consumer
+   * @throws NullPointerException if {@code origin} arg is null
+   */
+  public static <T, E extends Throwable> CoalescingThConsumer<T, E> coalesceLatest(
+    final ThConsumer<? super T, ? extends E> origin
+  ) {
+    return coalesceLatest(origin, SharedExecutor.get());
+  }
+
+  /**
+   * Returns new consumer that invokes the origin consumer with the latest event on given executor.
+   *
+   * @param origin   the origin consumer
+   * @param executor the executor
+   * @param <T>      the type of the events
+   * @param <E>      the type of the throwing exception
+   * @return coalescing consumer
+   * @throws NullPointerException if {@code origin} arg or {@code executor} arg is null
+   */
+  public static <T, E extends Throwable> CoalescingThConsumer<T, E> coalesceLatest(
+    final ThConsumer<? super T, ? extends E> origin,
+    final Executor executor
+  ) {
+    return create(origin, Mode.COALESCE_LATEST, Duration.ZERO, "period", executor);
+  }
+
+  /**
+   * Returns new consumer that invokes the origin consumer on the shared executor at most once per given interval. On
+   * Java 21+ it is a virtual thread per drain.
+   *
+   * @param origin   the origin consumer
+   * @param interval the interval
+   * @param <T>      the type of the events
+   * @param <E>      the type of the throwing exception
+   * @return throttling consumer
+   * @throws NullPointerException     if {@code origin} arg or {@code interval} arg is null
+   * @throws IllegalArgumentException if {@code interval} arg is not positive
+   */
+  public static <T, E extends Throwable> CoalescingThConsumer<T, E> throttle(
+    final ThConsumer<? super T, ? extends E> origin,
+    final Duration interval
+  ) {
+    return throttle(origin, interval, SharedExecutor.get());
+  }
+
+  /**
+   * Returns new consumer that invokes the origin consumer on given executor at most once per given interval.
+   *
+   * @param origin   the origin consumer
+   * @param interval the interval
+   * @param executor the executor
+   * @param <T>      the type of the events
+   * @param <E>      the type of the throwing exception
+   * @return throttling consumer
+   * @throws NullPointerException     if {@code origin} arg or {@code interval} arg or {@code executor} arg is null
+   * @throws IllegalArgumentException if {@code interval} arg is not positive
+   */
+  public static <T, E extends Throwable> CoalescingThConsumer<T, E> throttle(
+    final ThConsumer<? super T, ? extends E> origin,
+    final Duration interval,
+    final Executor executor
+  ) {
+    return create(origin, Mode.THROTTLE, interval, "interval", executor);
+  }
+
+  /**
+   * Returns new consumer that invokes the origin consumer on the shared executor once no events were published for
+   * given quiet period. On Java 21+ it is a virtual thread per drain.
+   *
+   * @param origin the origin consumer
+   * @param quiet  the quiet period
+   * @param <T>    the type of the events
+   * @param <E>    the type of the throwing exception
+   * @return debouncing consumer
+   * @throws NullPointerException     if {@code origin} arg or {@code quiet} arg is null
+   * @throws IllegalArgumentException if {@code quiet} arg is not positive
+   */
+  public static <T, E extends Throwable> CoalescingThConsumer<T, E> debounce(
+    final ThConsumer<? super T, ? extends E> origin,
+    final Duration quiet
+  ) {
+    return debounce(origin, quiet, SharedExecutor.get());
+  }
+
+  /**
+   * Returns new consumer that invokes the origin consumer on given executor once no events were published for given
+   * quiet period.
+   *
+   * @param origin   the origin consumer
+   * @param quiet    the quiet period
+   * @param executor the executor
+   * @param <T>      the type of the events
+   * @param <E>      the type of the throwing exception
+   * @return debouncing consumer
+   * @throws NullPointerException     if {@code origin} arg or {@code quiet} arg or {@code executor} arg is null
+   * @throws IllegalArgumentException if {@code quiet} arg is not positive
+   */
+  public static <T, E extends Throwable> CoalescingThConsumer<T, E> debounce(
+    final ThConsumer<? super T, ? extends E> origin,
+    final Duration quiet,
+    final Executor executor
+  ) {
+    return create(origin, Mode.DEBOUNCE, quiet, "quiet", executor);
+  }
+
+  private static <T, E extends Throwable> CoalescingThConsumer<T, E> create(
+    final ThConsumer<? super T, ? extends E> origin,
+    final Mode mode,
+    final Duration period,
+    final String periodName,
+    final Executor executor
+  ) {
+    if (origin == null) { throw new NullPointerException("origin arg is null"); }
+    if (period == null) { throw new NullPointerException(periodName + " arg is null"); }
+    if (executor == null) { throw new NullPointerException("executor arg is null"); }
+    if (mode != Mode.COALESCE_LATEST && (period.isNegative() || period.isZero())) {
+      throw new IllegalArgumentException(periodName + " arg is not positive");
+    }
+    return new CoalescingThConsumer<>(origin, mode, period.toNanos(), executor, TimerWheel.shared());
+  }
+
+  /**
+   * Publishes given event. The origin consumer is invoked asynchronously, this method doesn't throw origin consumer
+   * exceptions.
+   *
+   * @param event the event
+   */
+  @Override
+  public void accept(final T event) {
+    if (this.mode == Mode.DEBOUNCE) {
+      this.lastEventNanos = System.nanoTime();
+    }
+    this.latest.set(event == null ? NULL : event);
+    switch (this.mode) {
+      case COALESCE_LATEST:
+        this.scheduleDrain(true);
+        break;
+      case THROTTLE:
+        if (this.armed.compareAndSet(false, true)) {
+          this.scheduleDrain(true);
+          this.timerWheel.schedule(this.timerTask, this.periodNanos);
+        }
+        break;
+      default:
+        if (this.armed.compareAndSet(false, true)) {
+          this.timerWheel.schedule(this.timerTask, this.periodNanos);
+        }
+        break;
+    }
+  }
+
+  /**
+   * Returns the number of the origin consumer invocations.
+   *
+   * @return number of invocations
+   */
+  public long invocationCount() {
+    return this.invocationCount.get();
+  }
+
+  /**
+   * Returns the number of the origin consumer failures.
+   *
+   * @return number of failures
+   */
+  public long failureCount() {
+    return this.failureCount.get();
+  }
+
+  /**
+   * Returns the last exception of the origin consumer or null.
+   *
+   * @return last exception or null
+   */
+  public Throwable lastFailure() {
+    return this.lastFailure;
+  }
+
+  private void onTimer() {
+    if (this.mode == Mode.THROTTLE) {
+      if (this.latest.get() != EMPTY) {
+        this.scheduleDrain(false);
+        this.timerWheel.schedule(this.timerTask, this.periodNanos);
+        return;
+      }
+      this.armed.set(false);
+      if (this.latest.get() != EMPTY && this.armed.compareAndSet(false, true)) {
+        this.scheduleDrain(false);
+        this.timerWheel.schedule(this.timerTask, this.periodNanos);
+      }
+    } else {
+      final long quietNanos = System.nanoTime() - this.lastEventNanos;
+      if (quietNanos < this.periodNanos) {
+        this.timerWheel.schedule(this.timerTask, this.periodNanos - quietNanos);
+        return;
+      }
+      this.armed.set(false);
+      this.scheduleDrain(false);
+    }
+  }
+
+  private void scheduleDrain(final boolean drainOnRejection) {
+    if (this.wip.getAndIncrement() == 0) {
+      try {
+        this.executor.execute(this.drainTask);
+      } catch (final RuntimeException ex) {
+        if (drainOnRejection) {
+          this.drain();
+        } else {
+          /* the timer wheel thread is shared, so the origin consumer is not invoked on it */
+          this.failureCount.incrementAndGet();
+          this.lastFailure = ex;
+          this.wip.set(0);
+        }
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void drain() {
+    int missed = 1;
+    while (true) {
+      final Object event = this.latest.getAndSet(EMPTY);
+      if (event != EMPTY) {
+        try {
+          this.origin.asUnchecked().accept(event == NULL ? null : (T) event);
+        } catch (final Throwable ex) {
+          this.failureCount.incrementAndGet();
+          this.lastFailure = ex;
+        } finally {
+          this.invocationCount.incrementAndGet();
+        }
+      }
+      missed = this.wip.addAndGet(-missed);
+      if (missed == 0) { return; }
+    }
+  }
+
+  /**
+   * Coalescing mode.
+   */
+  enum Mode {
+
+    /**
+     * Coalesce latest mode.
+     */
+    COALESCE_LATEST,
+
+    /**
+     * Throttle mode.
+     */
+    THROTTLE,
+
+    /**
+     * Debounce mode.
+     */
+    DEBOUNCE
+  }
+}
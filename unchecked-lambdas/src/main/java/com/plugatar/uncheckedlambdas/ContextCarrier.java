@@ -0,0 +1,55 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+/**
+ * Carrier of a thread-bound context, for example a tracing span, MDC or a tenant, across threads.
+ * <pre>{@code
+ * final ThreadLocal<String> tenant = new ThreadLocal<>();
+ * ContextPropagation.register(new ContextCarrier<String>() {
+ *   public String capture() {
+ *     return tenant.get();
+ *   }
+ *
+ *   public String restore(final String context) {
+ *     final String previous = tenant.get();
+ *     tenant.set(context);
+ *     return previous;
+ *   }
+ * });
+ * }</pre>
+ *
+ * @param <C> the type of the context
+ * @see ContextPropagation
+ */
+public interface ContextCarrier<C> {
+
+  /**
+   * Captures the context of the current thread.
+   *
+   * @return captured context, might be null
+   */
+  C capture();
+
+  /**
+   * Installs given context to the current thread. The method is called with the captured context before the wrapped
+   * lambda is performed and with the returned context after the wrapped lambda is performed.
+   *
+   * @param context the context to install
+   * @return replaced context of the current thread
+   */
+  C restore(C context);
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+/**
+ * Utility class. Registry of {@link ContextCarrier}s and wrappers propagating captured contexts to the lambdas
+ * performed on other threads.
+ * <p>
+ * {@code wrap} and {@code wrapRes} methods capture the contexts of all registered carriers into a single array when
+ * the lambda is wrapped. The wrapped lambda restores the captured contexts around each performing and then restores
+ * the replaced contexts in reverse order. If no carriers are registered the methods return the given lambda itself,
+ * so the wrapping costs nothing.
+ */
+public final class ContextPropagation {
+
+  /**
+   * Empty carriers array.
+   */
+  private static final ContextCarrier<?>[] EMPTY = {};
+
+  /**
+   * Registered carriers. Written under the class lock.
+   */
+  private static volatile ContextCarrier<?>[] registered = EMPTY;
+
+  /**
+   * Utility class ctor.
+   */
+  private ContextPropagation() {
+  }
+
+  /**
+   * Registers given carrier.
+   *
+   * @param carrier the carrier
+   * @throws NullPointerException if {@code carrier} arg is null
+   */
+  public static synchronized void register(final ContextCarrier<?> carrier) {
+    if (carrier == null) { throw new NullPointerException("carrier arg is null"); }
+    final ContextCarrier<?>[] newRegistered = Arrays.copyOf(registered, registered.length + 1);
+    newRegistered[registered.length] = carrier;
+    registered = newRegistered;
+  }
+
+  /**
+   * Unregisters given carrier.
+   *
+   * @param carrier the carrier
+   * @return {@code true} if the carrier was registered
+   * @throws NullPointerException if {@code carrier} arg is null
+   */
+  public static synchronized boolean unregister(final ContextCarrier<?> carrier) {
+    if (carrier == null) { throw new NullPointerException("carrier arg is null"); }
+    final ContextCarrier<?>[] current = registered;
+    for (int idx = 0; idx < current.length; idx++) {
+      if (current[idx] == carrier) {
+        final ContextCarrier<?>[] newRegistered = new ContextCarrier<?>[current.length - 1];
+        System.arraycopy(current, 0, newRegistered, 0, idx);
+        System.arraycopy(current, idx + 1, newRegistered, idx, current.length - idx - 1);
+        registered = newRegistered;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Unregisters all carriers.
+   */
+  public static synchronized void unregisterAll() {
+    registered = EMPTY;
+  }
+
+  /**
+   * Returns runnable performing given runnable with the contexts captured by this method call.
+   *
+   * @param runnable the runnable
+   * @param <E>      the type of the throwing exception
+   * @return wrapped runnable or given runnable if no carriers are registered
+   * @throws NullPointerException if {@code runnable} arg is null
+   */
+  public static <E extends Throwable> ThRunnable<E> wrap(final ThRunnable<E> runnable) {
+    if (runnable == null) { throw new NullPointerException("runnable arg is null"); }
+    final Snapshot snapshot = Snapshot.capture();
+    if (snapshot == null) { return runnable; }
+    return () -> {
+      final Object[] previous = snapshot.restore();
+      try {
+        runnable.run();
+      } finally {
+        snapshot.reset(previous);
+      }
+    };
+  }
+
+  /**
+   * Returns supplier performing given supplier with the contexts captured by this method call.
+   *
+   * @param supplier the supplier
+   * @param <R>      the type of the result
+   * @param <E>      the type of the throwing exception
+   * @return wrapped supplier or given supplier if no carriers are registered
+   * @throws NullPointerException if {@code supplier} arg is null
+   */
+  public static <R, E extends Throwable> ThSupplier<R, E> wrapRes(final ThSupplier<R, E> supplier) {
+    if (supplier == null) { throw new NullPointerException("supplier arg is null"); }
+    final Snapshot snapshot = Snapshot.capture();
+    if (snapshot == null) { return supplier; }
+    return () -> {
+      final Object[] previous = snapshot.restore();
+      try {
+        return supplier.get();
+      } finally {
+        snapshot.reset(previous);
+      }
+    };
+  }
+
+  /**
+   * Returns consumer performing given consumer with the contexts captured by this method call.
+   *
+   * @param consumer the consumer
+   * @param <T>      the type of the input argument
+   * @param <E>      the type of the throwing exception
+   * @return wrapped consumer or given consumer if no carriers are registered
+   * @throws NullPointerException if {@code consumer} arg is null
+   */
+  public static <T, E extends Throwable> ThConsumer<T, E> wrap(final ThConsumer<T, E> consumer) {
+    if (consumer == null) { throw new NullPointerException("consumer arg is null"); }
+    final Snapshot snapshot = Snapshot.capture();
+    if (snapshot == null) { return consumer; }
+    return t -> {
+      final Object[] previous = snapshot.restore();
+      try {
+        consumer.accept(t);
+      } finally {
+        snapshot.reset(previous);
+      }
+    };
+  }
+
+  /**
+   * Returns function performing given function with the contexts captured by this method call.
+   *
+   * @param function the function
+   * @param <T>      the type of the input argument
+   * @param <R>      the type of the result
+   * @param <E>      the type of the throwing exception
+   * @return wrapped function or given function if no carriers are registered
+   * @throws NullPointerException if {@code function} arg is null
+   */
+  public static <T, R, E extends Throwable> ThFunction<T, R, E> wrapRes(final ThFunction<T, R, E> function) {
+    if (function == null) { throw new NullPointerException("function arg is null"); }
+    final Snapshot snapshot = Snapshot.capture();
+    if (snapshot == null) { return function; }
+    return t -> {
+      final Object[] previous = snapshot.restore();
+      try {
+        return function.apply(t);
+      } finally {
+        snapshot.reset(previous);
+      }
+    };
+  }
+
+  /**
+   * Returns executor that propagates the contexts of the submitting thread to the tasks executed by given executor.
+   *
+   * @param executor the executor
+   * @return propagating executor
+   * @throws NullPointerException if {@code executor} arg is null
+   */
+  public static Executor propagating(final Executor executor) {
+    if (executor == null) { throw new NullPointerException("executor arg is null"); }
+    return task -> {
+      if (task == null) { throw new NullPointerException("task arg is null"); }
+      final Snapshot snapshot = Snapshot.capture();
+      if (snapshot == null) {
+        executor.execute(task);
+        return;
+      }
+      executor.execute(() -> {
+        final Object[] previous = snapshot.restore();
+        try {
+          task.run();
+        } finally {
+          snapshot.reset(previous);
+        }
+      });
+    };
+  }
+
+  /**
+   * Captured contexts.
+   */
+  private static final class Snapshot {
+    private final ContextCarrier<Object>[] carriers;
+    private final Object[] contexts;
+
+    /**
+     * Ctor.
+     *
+     * @param carriers the carriers
+     * @param contexts the captured contexts
+     */
+    private Snapshot(final ContextCarrier<Object>[] carriers,
+                     final Object[] contexts) {
+      this.carriers = carriers;
+      this.contexts = contexts;
+    }
+
+    /**
+     * Captures the contexts of the registered carriers.
+     *
+     * @return snapshot or null if there are no registered carriers
+     */
+    @SuppressWarnings("unchecked")
+    private static Snapshot capture() {
+      final ContextCarrier<Object>[] carriers = (ContextCarrier<Object>[]) registered;
+      if (carriers.length == 0) { return null; }
+      final Object[] contexts = new Object[carriers.length];
+      for (int idx = 0; idx < carriers.length; idx++) {
+        contexts[idx] = carriers[idx].capture();
+      }
+      return new Snapshot(carriers, contexts);
+    }
+
+    private Object[] restore() {
+      final Object[] previous = new Object[this.carriers.length];
+      int idx = 0;
+      try {
+        for (; idx < this.carriers.length; idx++) {
+          previous[idx] = this.carriers[idx].restore(this.contexts[idx]);
+        }
+      } catch (final RuntimeException | Error ex) {
+        for (int restored = idx - 1; restored >= 0; restored--) {
+          this.carriers[restored].restore(previous[restored]);
+        }
+        throw ex;
+      }
+      return previous;
+    }
+
+    private void reset(final Object[] previous) {
+      for (int idx = this.carriers.length - 1; idx >= 0; idx--) {
+        this.carriers[idx].restore(previous[idx]);
+      }
+    }
+  }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import java.time.Duration;
+
+/**
+ * The time budget of the current call, bound to the current thread.
+ * <pre>{@code
+ * final Response response = Deadline.within(Duration.ofMillis(300), () -> {
+ *   final User user = loadUser(id);  // might call Deadline.check() or Deadline.remainingNanos()
+ *   return render(user);
+ * });
+ * }</pre>
+ * Nested {@link #within(Duration, ThSupplier)} calls can only shorten the current deadline. The current deadline is
+ * kept in a thread local variable, so {@link #current()}, {@link #check()} and {@link #remainingNanos()} lookups don't
+ * allocate objects.
+ * <ul>
+ * <li>register {@link #carrier()} with {@link ContextPropagation} to propagate the deadline across async
+ * handoffs</li>
+ * <li>register {@link #interceptor()} with {@link UncheckedInterceptors} to fail fast all {@link UncheckedLambdas}
+ * calls after the deadline</li>
+ * <li>{@link UncheckedScope} joins respect the current deadline</li>
+ * </ul>
+ */
+public final class Deadline {
+
+  /**
+   * Max deadline budget, about 146 years.
+   */
+  private static final long MAX_BUDGET_NANOS = Long.MAX_VALUE / 2L;
+
+  /**
+   * The current thread deadline.
+   */
+  private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+  /**
+   * The context carrier of the current deadline.
+   */
+  private static final ContextCarrier<Deadline> CARRIER = new ContextCarrier<Deadline>() {
+    @Override
+    public Deadline capture() {
+      return CURRENT.get();
+    }
+
+    @Override
+    public Deadline restore(final Deadline context) {
+      return install(context);
+    }
+  };
+
+  /**
+   * The interceptor checking the current deadline.
+   */
+  private static final UncheckedInterceptor INTERCEPTOR = (lambda, invocation) -> {
+    check();
+    return invocation.get();
+  };
+
+  private final long deadlineNanos;
+
+  /**
+   * Ctor.
+   *
+   * @param deadlineNanos the deadline in {@link System#nanoTime()} units
+   */
+  private Deadline(final long deadlineNanos) {
+    this.deadlineNanos = deadlineNanos;
+  }
+
+  /**
+   * Performs given supplier with the deadline after given budget or with the current deadline if it is earlier.
+   *
+   * @param budget   the time budget
+   * @param supplier the supplier
+   * @param <R>      the type of the result
+   * @param <E>      the type of the throwing exception
+   * @return supplier result
+   * @throws NullPointerException      if {@code budget} arg or {@code supplier} arg is null
+   * @throws DeadlineExceededException if the budget is not positive or the current deadline is exceeded
+   * @throws E                         if supplier threw exception
+   */
+  public static <R, E extends Throwable> R within(final Duration budget,
+                                                  final ThSupplier<? extends R, ? extends E> supplier) throws E {
+    if (budget == null) { throw new NullPointerException("budget arg is null"); }
+    if (supplier == null) { throw new NullPointerException("supplier arg is null"); }
+    final long now = System.nanoTime();
+    long deadlineNanos = now + budgetNanos(budget);
+    final Deadline current = CURRENT.get();
+    if (current != null && current.deadlineNanos - deadlineNanos < 0L) {
+      deadlineNanos = current.deadlineNanos;
+    }
+    if (deadlineNanos - now <= 0L) {
+      throw new DeadlineExceededException("Deadline exceeded");
+    }
+    return new Deadline(deadlineNanos).within(supplier);
+  }
+
+  /**
+   * Returns the current thread deadline or null.
+   *
+   * @return current deadline or null
+   */
+  public static Deadline current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Returns the remaining nanoseconds of the current thread deadline or {@link Long#MAX_VALUE} if there is no
+   * deadline.
+   *
+   * @return remaining nanoseconds, not positive if the deadline is exceeded
+   */
+  public static long remainingNanos() {
+    final Deadline current = CURRENT.get();
+    return current == null ? Long.MAX_VALUE : current.remaining();
+  }
+
+  /**
+   * Checks the current thread deadline.
+   *
+   * @throws DeadlineExceededException if the current thread deadline is exceeded
+   */
+  public static void check() {
+    final Deadline current = CURRENT.get();
+    if (current != null && current.isExpired()) {
+      throw new DeadlineExceededException("Deadline exceeded");
+    }
+  }
+
+  /**
+   * Returns the context carrier of the current thread deadline.
+   *
+   * @return context carrier
+   * @see ContextPropagation#register(ContextCarrier)
+   */
+  public static ContextCarrier<Deadline> carrier() {
+    return CARRIER;
+  }
+
+  /**
+   * Returns the interceptor that throws {@link DeadlineExceededException} if the current thread deadline is exceeded.
+   *
+   * @return interceptor
+   * @see UncheckedInterceptors#register(UncheckedInterceptor)
+   */
+  public static UncheckedInterceptor interceptor() {
+    return INTERCEPTOR;
+  }
+
+  /**
+   * Performs given supplier with this deadline as the current thread deadline. Might be used to hand the deadline
+   * over to another thread.
+   *
+   * @param supplier the supplier
+   * @param <R>      the type of the result
+   * @param <E>      the type of the throwing exception
+   * @return supplier result
+   * @throws NullPointerException      if {@code supplier} arg is null
+   * @throws DeadlineExceededException if this deadline is exceeded
+   * @throws E                         if supplier threw exception
+   */
+  public <R, E extends Throwable> R within(final ThSupplier<? extends R, ? extends E> supplier) throws E {
+    if (supplier == null) { throw new NullPointerException("supplier arg is null"); }
+    if (this.isExpired()) {
+      throw new DeadlineExceededException("Deadline exceeded");
+    }
+    final Deadline previous = install(this);
+    try {
+      return supplier.get();
+    } finally {
+      install(previous);
+    }
+  }
+
+  /**
+   * Returns the remaining nanoseconds of this deadline.
+   *
+   * @return remaining nanoseconds, not positive if the deadline is exceeded
+   */
+  public long remaining() {
+    return this.deadlineNanos - System.nanoTime();
+  }
+
+  /**
+   * Returns {@code true} if this deadline is exceeded.
+   *
+   * @return {@code true} if this deadline is exceeded
+   */
+  public boolean isExpired() {
+    return this.remaining() <= 0L;
+  }
+
+  /**
+   * Returns the deadline in {@link System#nanoTime()} units.
+   *
+   * @return deadline
+   */
+  long deadlineNanos() {
+    return this.deadlineNanos;
+  }
+
+  @Override
+  public String toString() {
+    return "Deadline[remaining=" + Duration.ofNanos(this.remaining()) + "]";
+  }
+
+  private static Deadline install(final Deadline deadline) {
+    final Deadline previous = CURRENT.get();
+    if (deadline == null) {
+      CURRENT.remove();
+    } else {
+      CURRENT.set(deadline);
+    }
+    return previous;
+  }
+
+  private static long budgetNanos(final Duration budget) {
+    if (budget.compareTo(Duration.ofNanos(MAX_BUDGET_NANOS)) > 0) {
+      return MAX_BUDGET_NANOS;
+    }
+    return budget.isNegative() ? 0L : budget.toNanos();
+  }
+}
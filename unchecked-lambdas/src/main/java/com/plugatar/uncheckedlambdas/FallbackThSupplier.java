@@ -0,0 +1,346 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * The {@link ThSupplier} combinator that tries interchangeable sources in order and falls back to the next source if
+ * the previous one threw an exception.
+ * <pre>{@code
+ * final FallbackThSupplier<User, IOException> user = FallbackThSupplier.adaptive(Arrays.asList(
+ *   () -> cache.get(id),
+ *   () -> replica.load(id),
+ *   () -> primary.load(id)
+ * ));
+ * }</pre>
+ * <ul>
+ * <li>{@link #of(List)} always tries the sources in the given order</li>
+ * <li>{@link #adaptive(List)} tries the sources in the order of the expected latency of a successful result, that is
+ * the EWMA latency divided by the EWMA success rate; every 64th call probes the sources in turn first, so the sources
+ * moved to the end of the order can move up again</li>
+ * </ul>
+ * Each attempt updates the statistics of the source with a few atomic operations, no locks are taken. The adaptive
+ * order is recalculated every 64 calls. Errors are rethrown immediately. If all sources threw exceptions the
+ * exception of the first tried source is rethrown with the other exceptions added as suppressed. The other exceptions
+ * are added only if the rethrown exception is not the one rethrown by the previous failed call, so an exception
+ * instance thrown repeatedly (a cached one for example) is rethrown unchanged instead of collecting the exceptions of
+ * every call.
+ *
+ * @param <R> the type of the result
+ * @param <E> the type of the throwing exception
+ */
+public final class FallbackThSupplier<R, E extends Throwable> implements ThSupplier<R, E> {
+
+  /**
+   * The calls period of the adaptive order recalculation and of the probing.
+   */
+  private static final int PERIOD_MASK = 63;
+
+  /**
+   * The EWMA smoothing factor shift, alpha is 1/8.
+   */
+  private static final int EWMA_SHIFT = 3;
+
+  /**
+   * Fixed point scale of the success rate.
+   */
+  private static final long SUCCESS_SCALE = 1L << 16;
+
+  private final Source<R, E>[] sources;
+  private final List<Stats> stats;
+  private final boolean adaptive;
+  private final LongSupplier clock;
+  private final AtomicLong calls;
+  private volatile Source<R, E>[] order;
+  private volatile Throwable lastFailure;
+
+  /**
+   * Ctor.
+   *
+   * @param sources  the sources
+   * @param adaptive the adaptive mode flag
+   * @param clock    the nano time clock
+   */
+  @SuppressWarnings("unchecked")
+  FallbackThSupplier(final List<? extends ThSupplier<? extends R, ? extends E>> sources,
+                     final boolean adaptive,
+                     final LongSupplier clock) {
+    this.sources = new Source[sources.size()];
+    final List<Stats> sourcesStats = new ArrayList<>(sources.size());
+    for (int idx = 0; idx < this.sources.length; idx++) {
+      this.sources[idx] = new Source<>(idx, sources.get(idx));
+      sourcesStats.add(this.sources[idx].stats);
+    }
+    this.stats = Collections.unmodifiableList(sourcesStats);
+    this.adaptive = adaptive;
+    this.clock = clock;
+    this.calls = new AtomicLong();
+    this.order = this.sources;
+    this.lastFailure = null;
+  }
+
+  /**
+   * Returns new fallback supplier that tries given sources in the given order.
+   *
+   * @param sources the sources
+   * @param <R>     the type of the result
+   * @param <E>     the type of the throwing exception
+   * @return fallback supplier
+   * @throws NullPointerException     if {@code sources} arg or any of the sources is null
+   * @throws IllegalArgumentException if {@code sources} arg is empty
+   */
+  public static <R, E extends Throwable> FallbackThSupplier<R, E> of(
+    final List<? extends ThSupplier<? extends R, ? extends E>> sources
+  ) {
+    checkSources(sources);
+    return new FallbackThSupplier<>(sources, false, System::nanoTime);
+  }
+
+  /**
+   * Returns new fallback supplier that tries given sources in the order of the observed success rate and latency.
+   *
+   * @param sources the sources
+   * @param <R>     the type of the result
+   * @param <E>     the type of the throwing exception
+   * @return fallback supplier
+   * @throws NullPointerException     if {@code sources} arg or any of the sources is null
+   * @throws IllegalArgumentException if {@code sources} arg is empty
+   */
+  public static <R, E extends Throwable> FallbackThSupplier<R, E> adaptive(
+    final List<? extends ThSupplier<? extends R, ? extends E>> sources
+  ) {
+    checkSources(sources);
+    return new FallbackThSupplier<>(sources, true, System::nanoTime);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public R get() throws E {
+    final Source<R, E>[] current = this.order;
+    int first = 0;
+    if (this.adaptive) {
+      final long call = this.calls.incrementAndGet();
+      if ((call & PERIOD_MASK) == 0L) {
+        first = (int) ((call >>> 6) % current.length);
+        this.reorder();
+      }
+    }
+    Throwable failure = null;
+    List<Throwable> others = null;
+    for (int attempt = 0; attempt < current.length; attempt++) {
+      final Source<R, E> source = current[(first + attempt) % current.length];
+      final long start = this.clock.getAsLong();
+      try {
+        final R result = source.supplier.get();
+        source.stats.record(true, this.clock.getAsLong() - start);
+        return result;
+      } catch (final Error ex) {
+        throw ex;
+      } catch (final Throwable ex) {
+        source.stats.record(false, this.clock.getAsLong() - start);
+        if (failure == null) {
+          failure = ex;
+        } else {
+          if (others == null) { others = new ArrayList<>(current.length - 1); }
+          others.add(ex);
+        }
+      }
+    }
+    /* the exception rethrown by the previous failed call too is a reused one, it is not mutated */
+    if (others != null && failure != this.lastFailure) {
+      for (final Throwable other : others) {
+        if (other != failure && !isSuppressed(failure, other)) {
+          failure.addSuppressed(other);
+        }
+      }
+    }
+    this.lastFailure = failure;
+    throw (E) failure;
+  }
+
+  /**
+   * Returns the statistics of the sources in the given order of the sources.
+   *
+   * @return sources statistics
+   */
+  public List<Stats> stats() {
+    return this.stats;
+  }
+
+  /**
+   * Returns the declared indexes of the sources in the current try order.
+   *
+   * @return sources indexes
+   */
+  public int[] order() {
+    final Source<R, E>[] current = this.order;
+    final int[] indexes = new int[current.length];
+    for (int idx = 0; idx < current.length; idx++) {
+      indexes[idx] = current[idx].index;
+    }
+    return indexes;
+  }
+
+  private void reorder() {
+    final Source<R, E>[] newOrder = Arrays.copyOf(this.sources, this.sources.length);
+    final long[] scores = new long[newOrder.length];
+    for (int idx = 0; idx < newOrder.length; idx++) {
+      scores[idx] = newOrder[idx].stats.score();
+    }
+    /* stable insertion sort, the number of sources is small */
+    for (int idx = 1; idx < newOrder.length; idx++) {
+      final Source<R, E> source = newOrder[idx];
+      final long score = scores[idx];
+      int pos = idx - 1;
+      while (pos >= 0 && scores[pos] > score) {
+        newOrder[pos + 1] = newOrder[pos];
+        scores[pos + 1] = scores[pos];
+        pos--;
+      }
+      newOrder[pos + 1] = source;
+      scores[pos + 1] = score;
+    }
+    this.order = newOrder;
+  }
+
+  private static void checkSources(final List<? extends ThSupplier<?, ?>> sources) {
+    if (sources == null) { throw new NullPointerException("sources arg is null"); }
+    if (sources.isEmpty()) { throw new IllegalArgumentException("sources arg is empty"); }
+    for (final ThSupplier<?, ?> source : sources) {
+      if (source == null) { throw new NullPointerException("sources arg contains null"); }
+    }
+  }
+
+  private static boolean isSuppressed(final Throwable failure, final Throwable ex) {
+    for (final Throwable suppressed : failure.getSuppressed()) {
+      if (suppressed == ex) { return true; }
+    }
+    return false;
+  }
+
+  /**
+   * The source.
+   *
+   * @param <R> the type of the result
+   * @param <E> the type of the throwing exception
+   */
+  private static final class Source<R, E extends Throwable> {
+    private final int index;
+    private final ThSupplier<? extends R, ? extends E> supplier;
+    private final Stats stats;
+
+    /**
+     * Ctor.
+     *
+     * @param index    the declared index
+     * @param supplier the supplier
+     */
+    private Source(final int index,
+                   final ThSupplier<? extends R, ? extends E> supplier) {
+      this.index = index;
+      this.supplier = supplier;
+      this.stats = new Stats();
+    }
+  }
+
+  /**
+   * The statistics of the source.
+   */
+  public static final class Stats {
+    private final AtomicLong successCount;
+    private final AtomicLong failureCount;
+    private final AtomicLong ewmaLatencyNanos;
+    private final AtomicLong ewmaSuccess;
+
+    /**
+     * Ctor.
+     */
+    private Stats() {
+      this.successCount = new AtomicLong();
+      this.failureCount = new AtomicLong();
+      this.ewmaLatencyNanos = new AtomicLong(-1L);
+      this.ewmaSuccess = new AtomicLong(SUCCESS_SCALE);
+    }
+
+    /**
+     * Returns the number of successful calls.
+     *
+     * @return number of successful calls
+     */
+    public long successCount() {
+      return this.successCount.get();
+    }
+
+    /**
+     * Returns the number of failed calls.
+     *
+     * @return number of failed calls
+     */
+    public long failureCount() {
+      return this.failureCount.get();
+    }
+
+    /**
+     * Returns the EWMA latency of the calls in nanoseconds or 0 if there were no calls.
+     *
+     * @return EWMA latency
+     */
+    public long latencyNanos() {
+      return Math.max(0L, this.ewmaLatencyNanos.get());
+    }
+
+    /**
+     * Returns the EWMA success rate of the calls from 0 to 1, 1 if there were no calls.
+     *
+     * @return EWMA success rate
+     */
+    public double successRate() {
+      return (double) this.ewmaSuccess.get() / SUCCESS_SCALE;
+    }
+
+    @Override
+    public String toString() {
+      return "Stats[successCount=" + this.successCount() + ", failureCount=" + this.failureCount()
+        + ", latencyNanos=" + this.latencyNanos() + ", successRate=" + this.successRate() + "]";
+    }
+
+    private void record(final boolean success,
+                        final long latencyNanos) {
+      (success ? this.successCount : this.failureCount).incrementAndGet();
+      final long sample = Math.max(0L, latencyNanos);
+      long prev;
+      do {
+        prev = this.ewmaLatencyNanos.get();
+      } while (!this.ewmaLatencyNanos.compareAndSet(prev, prev < 0L ? sample : prev + ((sample - prev) >> EWMA_SHIFT)));
+      final long successSample = success ? SUCCESS_SCALE : 0L;
+      do {
+        prev = this.ewmaSuccess.get();
+      } while (!this.ewmaSuccess.compareAndSet(prev, prev + ((successSample - prev) >> EWMA_SHIFT)));
+    }
+
+    private long score() {
+      final long latency = this.latencyNanos();
+      final long success = Math.max(1L, this.ewmaSuccess.get());
+      return latency > Long.MAX_VALUE / SUCCESS_SCALE ? Long.MAX_VALUE : latency * SUCCESS_SCALE / success;
+    }
+  }
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The executor that runs tasks with the same key one by one in submission order and tasks with different keys in
+ * parallel.
+ * <p>
+ * Keys are hashed to a fixed number of lanes. Each lane has a bounded queue and is scheduled on the shared executor
+ * as an actor: at most one executor thread drains a lane at a time and no global lock is taken. A lane that drained
+ * {@value #LANE_BATCH_SIZE} tasks is rescheduled so lanes share the executor fairly. If a lane queue is full
+ * {@code submit} methods block until the lane frees space. A task can't wait for its own lane, so a task submitting
+ * to its own full lane gets {@link IllegalStateException} instead of a deadlock. If the executor rejects a lane the
+ * lane is drained on the submitting thread.
+ * <p>
+ * Task exceptions (including checked) are passed unchanged to the failure handler together with the task key, other
+ * tasks of the same key and other keys are not affected.
+ *
+ * @param <K> the type of the keys
+ */
+public final class KeyedSerialExecutor<K> implements AutoCloseable {
+
+  /**
+   * Max number of tasks drained by a lane before rescheduling.
+   */
+  static final int LANE_BATCH_SIZE = 64;
+
+  private final Lane<K>[] lanes;
+  private final int mask;
+  private final Executor executor;
+  private final ThBiConsumer<? super K, ? super Throwable, ?> failureHandler;
+  private final AtomicLong pending;
+  private final AtomicLong failureCount;
+  private final Object idleLock;
+  private volatile boolean closed;
+
+  /**
+   * Ctor.
+   *
+   * @param lanes          the number of lanes, power of 2
+   * @param laneCapacity   the lane queue capacity
+   * @param executor       the executor
+   * @param failureHandler the failure handler
+   */
+  @SuppressWarnings("unchecked")
+  private KeyedSerialExecutor(final int lanes,
+                              final int laneCapacity,
+                              final Executor executor,
+                              final ThBiConsumer<? super K, ? super Throwable, ?> failureHandler) {
+    this.lanes = new Lane[lanes];
+    for (int idx = 0; idx < lanes; idx++) {
+      this.lanes[idx] = new Lane<>(this, laneCapacity);
+    }
+    this.mask = lanes - 1;
+    this.executor = executor;
+    this.failureHandler = failureHandler;
+    this.pending = new AtomicLong();
+    this.failureCount = new AtomicLong();
+    this.idleLock = new Object();
+    this.closed = false;
+  }
+
+  /**
+   * Returns new keyed serial executor with 64 lanes, lane capacity 1024, the shared executor (on Java 21+ it is a
+   * virtual thread per lane run) and without failure handler.
+   *
+   * @param <K> the type of the keys
+   * @return new keyed serial executor
+   */
+  public static <K> KeyedSerialExecutor<K> of() {
+    return of(64, 1024, SharedExecutor.get(), (key, ex) -> { });
+  }
+
+  /**
+   * Returns new keyed serial executor.
+   *
+   * @param lanes          the number of lanes, rounded up to a power of 2
+   * @param laneCapacity   the max number of queued tasks per lane
+   * @param executor       the executor running lanes
+   * @param failureHandler the handler of the task key and the task exception, exceptions of the handler are ignored
+   * @param <K>            the type of the keys
+   * @return new keyed serial executor
+   * @throws NullPointerException     if {@code executor} arg or {@code failureHandler} arg is null
+   * @throws IllegalArgumentException if {@code lanes} arg is not in range [1, 2^30] or if {@code laneCapacity} arg
+   *                                  is not positive
+   */
+  public static <K> KeyedSerialExecutor<K> of(final int lanes,
+                                              final int laneCapacity,
+                                              final Executor executor,
+                                              final ThBiConsumer<? super K, ? super Throwable, ?> failureHandler) {
+    if (executor == null) { throw new NullPointerException("executor arg is null"); }
+    if (failureHandler == null) { throw new NullPointerException("failureHandler arg is null"); }
+    if (lanes < 1 || lanes > 1 << 30) { throw new IllegalArgumentException("lanes arg is not in range [1, 2^30]"); }
+    if (laneCapacity < 1) { throw new IllegalArgumentException("laneCapacity arg is not positive"); }
+    final int powerOf2Lanes = lanes == 1 ? 1 : Integer.highestOneBit(lanes - 1) << 1;
+    return new KeyedSerialExecutor<>(powerOf2Lanes, laneCapacity, executor, failureHandler);
+  }
+
+  /**
+   * Submits consumer task for given key and value.
+   *
+   * @param key      the key
+   * @param value    the value
+   * @param consumer the consumer
+   * @param <V>      the type of the value
+   * @param <E>      the type of the consumer exception
+   * @throws NullPointerException  if {@code key} arg or {@code consumer} arg is null
+   * @throws IllegalStateException if this executor is closed or if the task of the same lane submits to the full
+   *                               lane
+   * @throws InterruptedException  if the current thread was interrupted while waiting for the lane free space
+   */
+  public <V, E extends Throwable> void submit(final K key,
+                                              final V value,
+                                              final ThConsumer<? super V, ? extends E> consumer)
+    throws InterruptedException {
+    if (consumer == null) { throw new NullPointerException("consumer arg is null"); }
+    this.submit(key, value, (k, v) -> consumer.accept(v));
+  }
+
+  /**
+   * Submits bi consumer task for given key and value.
+   *
+   * @param key        the key
+   * @param value      the value
+   * @param biConsumer the bi consumer of the key and the value
+   * @param <V>        the type of the value
+   * @param <E>        the type of the bi consumer exception
+   * @throws NullPointerException  if {@code key} arg or {@code biConsumer} arg is null
+   * @throws IllegalStateException if this executor is closed or if the task of the same lane submits to the full
+   *                               lane
+   * @throws InterruptedException  if the current thread was interrupted while waiting for the lane free space
+   */
+  @SuppressWarnings("unchecked")
+  public <V, E extends Throwable> void submit(final K key,
+                                              final V value,
+                                              final ThBiConsumer<? super K, ? super V, ? extends E> biConsumer)
+    throws InterruptedException {
+    if (key == null) { throw new NullPointerException("key arg is null"); }
+    if (biConsumer == null) { throw new NullPointerException("biConsumer arg is null"); }
+    final Lane<K> lane = this.lanes[spread(key.hashCode()) & this.mask];
+    /* pending is incremented before the closed check so close() can't miss this task */
+    this.pending.incrementAndGet();
+    if (this.closed) {
+      this.taskCompleted();
+      throw new IllegalStateException("Executor is closed");
+    }
+    final Task<K> task = new Task<>(key, value, (ThBiConsumer<? super K, Object, ?>) biConsumer);
+    if (lane.runner == Thread.currentThread()) {
+      if (!lane.queue.offer(task)) {
+        this.taskCompleted();
+        throw new IllegalStateException("Lane is full and the task is submitted from the same lane");
+      }
+    } else {
+      try {
+        lane.queue.put(task);
+      } catch (final InterruptedException ex) {
+        this.taskCompleted();
+        throw ex;
+      }
+    }
+    lane.schedule();
+  }
+
+  /**
+   * Returns the number of failed tasks.
+   *
+   * @return number of failed tasks
+   */
+  public long failureCount() {
+    return this.failureCount.get();
+  }
+
+  /**
+   * Closes this executor and waits until all submitted tasks are completed. Tasks can't be submitted after this
+   * method call.
+   */
+  @Override
+  public void close() {
+    this.closed = true;
+    boolean interrupted = false;
+    synchronized (this.idleLock) {
+      while (this.pending.get() != 0L) {
+        try {
+          this.idleLock.wait(10L);
+        } catch (final InterruptedException ex) {
+          interrupted = true;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void taskCompleted() {
+    if (this.pending.decrementAndGet() == 0L && this.closed) {
+      synchronized (this.idleLock) {
+        this.idleLock.notifyAll();
+      }
+    }
+  }
+
+  private void taskFailed(final K key,
+                          final Throwable ex) {
+    this.failureCount.incrementAndGet();
+    try {
+      this.failureHandler.asUnchecked().accept(key, ex);
+    } catch (final Throwable ignored) {
+    }
+  }
+
+  private static int spread(final int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Lane of the tasks.
+   *
+   * @param <K> the type of the keys
+   */
+  private static final class Lane<K> implements Runnable {
+    private final KeyedSerialExecutor<K> owner;
+    private final ArrayBlockingQueue<Task<K>> queue;
+    private final AtomicBoolean scheduled;
+    private volatile Thread runner;
+
+    /**
+     * Ctor.
+     *
+     * @param owner    the owner executor
+     * @param capacity the queue capacity
+     */
+    private Lane(final KeyedSerialExecutor<K> owner,
+                 final int capacity) {
+      this.owner = owner;
+      this.queue = new ArrayBlockingQueue<>(capacity);
+      this.scheduled = new AtomicBoolean();
+      this.runner = null;
+    }
+
+    @Override
+    public void run() {
+      while (true) {
+        this.runner = Thread.currentThread();
+        for (int idx = 0; idx < LANE_BATCH_SIZE; idx++) {
+          final Task<K> task = this.queue.poll();
+          if (task == null) { break; }
+          try {
+            task.biConsumer.asUnchecked().accept(task.key, task.value);
+          } catch (final Throwable ex) {
+            this.owner.taskFailed(task.key, ex);
+          } finally {
+            this.owner.taskCompleted();
+          }
+        }
+        this.runner = null;
+        if (!this.queue.isEmpty()) {
+          if (this.execute()) { return; }
+          continue;
+        }
+        this.scheduled.set(false);
+        if (this.queue.isEmpty() || !this.scheduled.compareAndSet(false, true)) { return; }
+      }
+    }
+
+    private void schedule() {
+      if (this.scheduled.compareAndSet(false, true) && !this.execute()) {
+        this.run();
+      }
+    }
+
+    private boolean execute() {
+      try {
+        this.owner.executor.execute(this);
+        return true;
+      } catch (final RuntimeException ex) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Submitted task.
+   *
+   * @param <K> the type of the key
+   */
+  private static final class Task<K> {
+    private final K key;
+    private final Object value;
+    private final ThBiConsumer<? super K, Object, ?> biConsumer;
+
+    /**
+     * Ctor.
+     *
+     * @param key        the key
+     * @param value      the value
+     * @param biConsumer the bi consumer
+     */
+    private Task(final K key,
+                 final Object value,
+                 final ThBiConsumer<? super K, Object, ?> biConsumer) {
+      this.key = key;
+      this.value = value;
+      this.biConsumer = biConsumer;
+    }
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import java.util.ArrayDeque;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * {@link ThIterator} that applies the function to the elements of the origin iterator on the executor threads and
+ * returns the results in the origin order.
+ *
+ * @param <T> the type of the origin elements
+ * @param <R> the type of the results
+ * @param <E> the type of the throwing exception
+ */
+final class OrderedParallelThIterator<T, R, E extends Throwable> implements ThIterator<R, E> {
+  private final ThIterator<? extends T, RuntimeException> origin;
+  private final ThFunction<? super T, ? extends R, ? extends E> function;
+  private final int concurrency;
+  private final Executor executor;
+  private final ArrayDeque<FutureTask<R>> window;
+  private boolean originExhausted;
+  private boolean closed;
+
+  /**
+   * Ctor.
+   *
+   * @param origin      the origin iterator, its exceptions are rethrown unchanged
+   * @param function    the function
+   * @param concurrency the max number of function calls in flight
+   * @param executor    the executor
+   */
+  OrderedParallelThIterator(final ThIterator<? extends T, ?> origin,
+                            final ThFunction<? super T, ? extends R, ? extends E> function,
+                            final int concurrency,
+                            final Executor executor) {
+    this.origin = origin.asUnchecked();
+    this.function = function;
+    this.concurrency = concurrency;
+    this.executor = executor;
+    this.window = new ArrayDeque<>(concurrency);
+    this.originExhausted = false;
+    this.closed = false;
+  }
+
+  @Override
+  public boolean hasNext() throws E {
+    if (this.closed) { throw new IllegalStateException("Iterator is closed"); }
+    this.fill();
+    return !this.window.isEmpty();
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public R next() throws E {
+    if (!this.hasNext()) { throw new NoSuchElementException(); }
+    final FutureTask<R> head = this.window.poll();
+    try {
+      /* the window is refilled by the next hasNext call, so the result is never lost on the origin failure */
+      return getUninterruptibly(head);
+    } catch (final ExecutionException ex) {
+      /* the first failure in the origin order ends the iteration */
+      this.originExhausted = true;
+      this.cancelAll();
+      throw (E) ex.getCause();
+    }
+  }
+
+  @Override
+  public void close() throws E {
+    if (this.closed) { return; }
+    this.closed = true;
+    this.cancelAll();
+    this.origin.close();
+  }
+
+  private void fill() {
+    while (!this.originExhausted && this.window.size() < this.concurrency) {
+      final T element;
+      try {
+        if (!this.origin.hasNext()) {
+          this.originExhausted = true;
+          return;
+        }
+        element = this.origin.next();
+      } catch (final Throwable ex) {
+        /* the origin failure takes its place in the window after the already submitted elements */
+        this.originExhausted = true;
+        this.window.add(failedTask(ex));
+        return;
+      }
+      final ThFunction<? super T, ? extends R, RuntimeException> unchecked = this.function.asUnchecked();
+      final FutureTask<R> task = new FutureTask<>(() -> unchecked.apply(element));
+      this.window.add(task);
+      try {
+        this.executor.execute(task);
+      } catch (final RejectedExecutionException ex) {
+        task.run();
+      }
+    }
+  }
+
+  private void cancelAll() {
+    FutureTask<R> task;
+    while ((task = this.window.poll()) != null) {
+      task.cancel(true);
+    }
+  }
+
+  private static <R> FutureTask<R> failedTask(final Throwable failure) {
+    final ThSupplier<R, Throwable> thrower = () -> {
+      throw failure;
+    };
+    final FutureTask<R> task = new FutureTask<>(thrower.asUnchecked()::get);
+    task.run();
+    return task;
+  }
+
+  private static <R> R getUninterruptibly(final FutureTask<R> task) throws ExecutionException {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          return task.get();
+        } catch (final InterruptedException ex) {
+          interrupted = true;
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
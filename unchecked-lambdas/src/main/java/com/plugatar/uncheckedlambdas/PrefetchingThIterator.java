@@ -0,0 +1,208 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ThIterator} that fetches elements of the origin iterator ahead on the background thread.
+ *
+ * @param <T> the type of the elements
+ * @param <E> the type of the throwing exception
+ */
+final class PrefetchingThIterator<T, E extends Throwable> implements ThIterator<T, E> {
+
+  /**
+   * End of iteration marker.
+   */
+  private static final Object END = new Object();
+
+  /**
+   * Null element marker.
+   */
+  private static final Object NULL = new Object();
+
+  private final ThIterator<T, E> origin;
+  private final BlockingQueue<Object> buffer;
+  private final CountDownLatch producerDone;
+  private volatile boolean closed;
+  private Object head;
+
+  /**
+   * Ctor.
+   *
+   * @param origin   the origin iterator
+   * @param depth    the max number of prefetched elements
+   * @param executor the executor
+   */
+  PrefetchingThIterator(final ThIterator<T, E> origin,
+                        final int depth,
+                        final Executor executor) {
+    this.origin = origin;
+    this.buffer = new ArrayBlockingQueue<>(depth);
+    this.producerDone = new CountDownLatch(1);
+    this.closed = false;
+    this.head = null;
+    try {
+      executor.execute(this::produce);
+    } catch (final RuntimeException ex) {
+      this.producerDone.countDown();
+      throw ex;
+    }
+  }
+
+  @Override
+  public boolean hasNext() throws E {
+    return this.head() != END;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T next() throws E {
+    final Object element = this.head();
+    if (element == END) { throw new NoSuchElementException(); }
+    this.head = null;
+    return element == NULL ? null : (T) element;
+  }
+
+  @Override
+  public void close() throws E {
+    if (this.closed) { return; }
+    this.closed = true;
+    /* the producer adds at most one more element after that and then sees the closed flag */
+    this.buffer.clear();
+    awaitUninterruptibly(this.producerDone);
+    this.buffer.clear();
+    this.origin.close();
+  }
+
+  @SuppressWarnings("unchecked")
+  private Object head() throws E {
+    if (this.head == null) {
+      if (this.closed) { throw new IllegalStateException("Iterator is closed"); }
+      this.head = takeUninterruptibly(this.buffer);
+    }
+    if (this.head instanceof Failure) {
+      throw (E) ((Failure) this.head).exception;
+    }
+    return this.head;
+  }
+
+  private void produce() {
+    Object pending = null;
+    try {
+      final ThIterator<T, RuntimeException> unchecked = this.origin.asUnchecked();
+      while (!this.closed) {
+        if (!unchecked.hasNext()) {
+          pending = END;
+          this.buffer.put(END);
+          return;
+        }
+        final T element = unchecked.next();
+        pending = element == null ? NULL : element;
+        this.buffer.put(pending);
+        pending = null;
+      }
+    } catch (final InterruptedException ex) {
+      /* the prefetched elements are kept, the interrupted element and the failure are put behind them */
+      if (pending != null) {
+        this.putUnlessClosed(pending);
+      }
+      if (pending != END) {
+        this.putUnlessClosed(new Failure(ex));
+      }
+      Thread.currentThread().interrupt();
+    } catch (final Throwable ex) {
+      try {
+        this.buffer.put(new Failure(ex));
+      } catch (final InterruptedException interruptedEx) {
+        Thread.currentThread().interrupt();
+      }
+    } finally {
+      this.producerDone.countDown();
+    }
+  }
+
+  private void putUnlessClosed(final Object element) {
+    boolean interrupted = false;
+    try {
+      while (!this.closed) {
+        try {
+          if (this.buffer.offer(element, 1L, TimeUnit.MILLISECONDS)) { return; }
+        } catch (final InterruptedException ex) {
+          interrupted = true;
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static Object takeUninterruptibly(final BlockingQueue<Object> queue) {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          return queue.take();
+        } catch (final InterruptedException ex) {
+          interrupted = true;
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static void awaitUninterruptibly(final CountDownLatch latch) {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        latch.await();
+        break;
+      } catch (final InterruptedException ex) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Origin iterator exception holder.
+   */
+  private static final class Failure {
+    private final Throwable exception;
+
+    /**
+     * Ctor.
+     *
+     * @param exception the exception
+     */
+    private Failure(final Throwable exception) {
+      this.exception = exception;
+    }
+  }
+}
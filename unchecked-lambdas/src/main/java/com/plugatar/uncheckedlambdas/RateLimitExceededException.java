@@ -0,0 +1,32 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+/**
+ * Thrown when {@link RateLimiter} permits cannot be acquired within the max wait time.
+ */
+public class RateLimitExceededException extends RuntimeException {
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Ctor.
+   *
+   * @param message the message
+   */
+  public RateLimitExceededException(final String message) {
+    super(message);
+  }
+}
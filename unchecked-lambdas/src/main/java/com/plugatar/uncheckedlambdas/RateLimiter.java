@@ -0,0 +1,559 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free rate limiter based on the generic cell rate algorithm (GCRA), a token bucket kept as a single theoretical
+ * arrival time.
+ * <pre>{@code
+ * final RateLimiter limiter = RateLimiter.of(50.0, 10);
+ * final ThFunction<Request, Response, IOException> send = limiter.limitRes(client::send);
+ * final ThFunction<Request, Response, IOException> bulkSend = limiter.limitRes(5, Duration.ofSeconds(1), client::send);
+ * }</pre>
+ * Acquiring permits is one {@link System#nanoTime()} call and one CAS on the arrival time, no locks are taken and no
+ * objects are allocated. The limiter can be shared by any number of lambdas and threads.
+ * <ul>
+ * <li>{@link #acquire(int)} waits for the permits</li>
+ * <li>{@link #tryAcquire(int)} acquires the permits only if they are available immediately</li>
+ * <li>{@link #tryAcquire(int, Duration)} acquires the permits only if they are available within the max wait
+ * time</li>
+ * </ul>
+ * The permits are reserved before the wait, so waiting callers are served in the reservation order. The waits are not
+ * interruptible, the interrupt status is restored after the wait.
+ * <p>
+ * {@code limit} and {@code limitRes} methods decorate the lambdas. The decorated lambda acquires the permits before
+ * each call of the origin lambda and throws {@link RateLimitExceededException} if the permits cannot be acquired
+ * within the max wait time.
+ */
+public final class RateLimiter {
+
+  /**
+   * Max wait time of the blocking acquiring.
+   */
+  private static final long WAIT_FOREVER = Long.MAX_VALUE;
+
+  private final long intervalNanos;
+  private final long toleranceNanos;
+  private final long maxPermits;
+  private final AtomicLong arrivalTime;
+
+  /**
+   * Ctor.
+   *
+   * @param intervalNanos  the emission interval of one permit
+   * @param toleranceNanos the burst tolerance
+   */
+  private RateLimiter(final long intervalNanos,
+                      final long toleranceNanos) {
+    this.intervalNanos = intervalNanos;
+    this.toleranceNanos = toleranceNanos;
+    this.maxPermits = Long.MAX_VALUE / 4L / intervalNanos;
+    this.arrivalTime = new AtomicLong(System.nanoTime());
+  }
+
+  /**
+   * Returns rate limiter with given rate and without bursts.
+   *
+   * @param permitsPerSecond the permits per second
+   * @return rate limiter
+   * @throws IllegalArgumentException if {@code permitsPerSecond} arg is not positive or not finite
+   * @see #of(double, int)
+   */
+  public static RateLimiter of(final double permitsPerSecond) {
+    return of(permitsPerSecond, 1);
+  }
+
+  /**
+   * Returns rate limiter with given rate that allows bursts of up to {@code burst} permits after idle periods.
+   * Acquiring more than {@code burst} permits at once always waits.
+   *
+   * @param permitsPerSecond the permits per second
+   * @param burst            the max burst permits
+   * @return rate limiter
+   * @throws IllegalArgumentException if {@code permitsPerSecond} arg is not positive or not finite or if
+   *                                  {@code burst} arg is not positive
+   */
+  public static RateLimiter of(final double permitsPerSecond,
+                               final int burst) {
+    if (!(permitsPerSecond > 0.0) || Double.isInfinite(permitsPerSecond)) {
+      throw new IllegalArgumentException("permitsPerSecond arg is not positive or not finite");
+    }
+    if (burst < 1) { throw new IllegalArgumentException("burst arg is not positive"); }
+    final double interval = TimeUnit.SECONDS.toNanos(1L) / permitsPerSecond;
+    if (interval * burst > Long.MAX_VALUE / 4L) {
+      throw new IllegalArgumentException("permitsPerSecond arg is too small");
+    }
+    final long intervalNanos = Math.max(1L, Math.round(interval));
+    return new RateLimiter(intervalNanos, intervalNanos * burst);
+  }
+
+  /**
+   * Acquires given number of permits, waits if necessary.
+   *
+   * @param permits the number of permits
+   * @throws IllegalArgumentException if {@code permits} arg is not positive or too large
+   */
+  public void acquire(final int permits) {
+    this.acquire(this.costNanos(permits), WAIT_FOREVER);
+  }
+
+  /**
+   * Acquires given number of permits if they are available immediately.
+   *
+   * @param permits the number of permits
+   * @return {@code true} if the permits were acquired
+   * @throws IllegalArgumentException if {@code permits} arg is not positive or too large
+   */
+  public boolean tryAcquire(final int permits) {
+    return this.acquire(this.costNanos(permits), 0L);
+  }
+
+  /**
+   * Acquires given number of permits if they are available within given max wait time, waits if necessary.
+   *
+   * @param permits the number of permits
+   * @param maxWait the max wait time
+   * @return {@code true} if the permits were acquired
+   * @throws NullPointerException     if {@code maxWait} arg is null
+   * @throws IllegalArgumentException if {@code permits} arg is not positive or too large
+   */
+  public boolean tryAcquire(final int permits,
+                            final Duration maxWait) {
+    return this.acquire(this.costNanos(permits), maxWaitNanos(maxWait));
+  }
+
+  /**
+   * Returns runnable that acquires one permit before each call of given runnable, waits if necessary.
+   *
+   * @param runnable the runnable
+   * @param <E>      the type of the throwing exception
+   * @return rate limited runnable
+   * @throws NullPointerException if {@code runnable} arg is null
+   */
+  public <E extends Throwable> ThRunnable<E> limit(
+    final ThRunnable<? extends E> runnable
+  ) {
+    return this.limit(1, null, runnable);
+  }
+
+  /**
+   * Returns runnable that acquires given number of permits before each call of given runnable and throws
+   * {@link RateLimitExceededException} if the permits cannot be acquired within given max wait time.
+   *
+   * @param permits  the number of permits per call
+   * @param maxWait  the max wait time, {@code null} to wait without limit
+   * @param runnable the runnable
+   * @param <E>      the type of the throwing exception
+   * @return rate limited runnable
+   * @throws NullPointerException     if {@code runnable} arg is null
+   * @throws IllegalArgumentException if {@code permits} arg is not positive or too large
+   */
+  public <E extends Throwable> ThRunnable<E> limit(
+    final int permits,
+    final Duration maxWait,
+    final ThRunnable<? extends E> runnable
+  ) {
+    if (runnable == null) { throw new NullPointerException("runnable arg is null"); }
+    final long costNanos = this.costNanos(permits);
+    final long maxWaitNanos = maxWait == null ? WAIT_FOREVER : maxWaitNanos(maxWait);
+    return () -> {
+      this.enter(costNanos, maxWaitNanos);
+      runnable.run();
+    };
+  }
+
+  /**
+   * Returns consumer that acquires one permit before each call of given consumer, waits if necessary.
+   *
+   * @param consumer the consumer
+   * @param <T>      the type of the argument
+   * @param <E>      the type of the throwing exception
+   * @return rate limited consumer
+   * @throws NullPointerException if {@code consumer} arg is null
+   */
+  public <T, E extends Throwable> ThConsumer<T, E> limit(
+    final ThConsumer<? super T, ? extends E> consumer
+  ) {
+    return this.limit(1, null, consumer);
+  }
+
+  /**
+   * Returns consumer that acquires given number of permits before each call of given consumer and throws
+   * {@link RateLimitExceededException} if the permits cannot be acquired within given max wait time.
+   *
+   * @param permits  the number of permits per call
+   * @param maxWait  the max wait time, {@code null} to wait without limit
+   * @param consumer the consumer
+   * @param <T>      the type of the argument
+   * @param <E>      the type of the throwing exception
+   * @return rate limited consumer
+   * @throws NullPointerException     if {@code consumer} arg is null
+   * @throws IllegalArgumentException if {@code permits} arg is not positive or too large
+   */
+  public <T, E extends Throwable> ThConsumer<T, E> limit(
+    final int permits,
+    final Duration maxWait,
+    final ThConsumer<? super T, ? extends E> consumer
+  ) {
+    if (consumer == null) { throw new NullPointerException("consumer arg is null"); }
+    final long costNanos = this.costNanos(permits);
+    final long maxWaitNanos = maxWait == null ? WAIT_FOREVER : maxWaitNanos(maxWait);
+    return t -> {
+      this.enter(costNanos, maxWaitNanos);
+      consumer.accept(t);
+    };
+  }
+
+  /**
+   * Returns consumer that acquires one permit before each call of given consumer, waits if necessary.
+   *
+   * @param consumer the consumer
+   * @param <T>      the type of the first argument
+   * @param <U>      the type of the second argument
+   * @param <E>      the type of the throwing exception
+   * @return rate limited consumer
+   * @throws NullPointerException if {@code consumer} arg is null
+   */
+  public <T, U, E extends Throwable> ThBiConsumer<T, U, E> limit(
+    final ThBiConsumer<? super T, ? super U, ? extends E> consumer
+  ) {
+    return this.limit(1, null, consumer);
+  }
+
+  /**
+   * Returns consumer that acquires given number of permits before each call of given consumer and throws
+   * {@link RateLimitExceededException} if the permits cannot be acquired within given max wait time.
+   *
+   * @param permits  the number of permits per call
+   * @param maxWait  the max wait time, {@code null} to wait without limit
+   * @param consumer the consumer
+   * @param <T>      the type of the first argument
+   * @param <U>      the type of the second argument
+   * @param <E>      the type of the throwing exception
+   * @return rate limited consumer
+   * @throws NullPointerException     if {@code consumer} arg is null
+   * @throws IllegalArgumentException if {@code permits} arg is not positive or too large
+   */
+  public <T, U, E extends Throwable> ThBiConsumer<T, U, E> limit(
+    final int permits,
+    final Duration maxWait,
+    final ThBiConsumer<? super T, ? super U, ? extends E> consumer
+  ) {
+    if (consumer == null) { throw new NullPointerException("consumer arg is null"); }
+    final long costNanos = this.costNanos(permits);
+    final long maxWaitNanos = maxWait == null ? WAIT_FOREVER : maxWaitNanos(maxWait);
+    return (t, u) -> {
+      this.enter(costNanos, maxWaitNanos);
+      consumer.accept(t, u);
+    };
+  }
+
+  /**
+   * Returns consumer that acquires one permit before each call of given consumer, waits if necessary.
+   *
+   * @param consumer the consumer
+   * @param <T>      the type of the first argument
+   * @param <U>      the type of the second argument
+   * @param <V>      the type of the third argument
+   * @param <E>      the type of the throwing exception
+   * @return rate limited consumer
+   * @throws NullPointerException if {@code consumer} arg is null
+   */
+  public <T, U, V, E extends Throwable> ThTriConsumer<T, U, V, E> limit(
+    final ThTriConsumer<? super T, ? super U, ? super V, ? extends E> consumer
+  ) {
+    return this.limit(1, null, consumer);
+  }
+
+  /**
+   * Returns consumer that acquires given number of permits before each call of given consumer and throws
+   * {@link RateLimitExceededException} if the permits cannot be acquired within given max wait time.
+   *
+   * @param permits  the number of permits per call
+   * @param maxWait  the max wait time, {@code null} to wait without limit
+   * @param consumer the consumer
+   * @param <T>      the type of the first argument
+   * @param <U>      the type of the second argument
+   * @param <V>      the type of the third argument
+   * @param <E>      the type of the throwing exception
+   * @return rate limited consumer
+   * @throws NullPointerException     if {@code consumer} arg is null
+   * @throws IllegalArgumentException if {@code permits} arg is not positive or too large
+   */
+  public <T, U, V, E extends Throwable> ThTriConsumer<T, U, V, E> limit(
+    final int permits,
+    final Duration maxWait,
+    final ThTriConsumer<? super T, ? super U, ? super V, ? extends E> consumer
+  ) {
+    if (consumer == null) { throw new NullPointerException("consumer arg is null"); }
+    final long costNanos = this.costNanos(permits);
+    final long maxWaitNanos = maxWait == null ? WAIT_FOREVER : maxWaitNanos(maxWait);
+    return (t, u, v) -> {
+      this.enter(costNanos, maxWaitNanos);
+      consumer.accept(t, u, v);
+    };
+  }
+
+  /**
+   * Returns supplier that acquires one permit before each call of given supplier, waits if necessary.
+   *
+   * @param supplier the supplier
+   * @param <R>      the type of the result
+   * @param <E>      the type of the throwing exception
+   * @return rate limited supplier
+   * @throws NullPointerException if {@code supplier} arg is null
+   */
+  public <R, E extends Throwable> ThSupplier<R, E> limitRes(
+    final ThSupplier<? extends R, ? extends E> supplier
+  ) {
+    return this.limitRes(1, null, supplier);
+  }
+
+  /**
+   * Returns supplier that acquires given number of permits before each call of given supplier and throws
+   * {@link RateLimitExceededException} if the permits cannot be acquired within given max wait time.
+   *
+   * @param permits  the number of permits per call
+   * @param maxWait  the max wait time, {@code null} to wait without limit
+   * @param supplier the supplier
+   * @param <R>      the type of the result
+   * @param <E>      the type of the throwing exception
+   * @return rate limited supplier
+   * @throws NullPointerException     if {@code supplier} arg is null
+   * @throws IllegalArgumentException if {@code permits} arg is not positive or too large
+   */
+  public <R, E extends Throwable> ThSupplier<R, E> limitRes(
+    final int permits,
+    final Duration maxWait,
+    final ThSupplier<? extends R, ? extends E> supplier
+  ) {
+    if (supplier == null) { throw new NullPointerException("supplier arg is null"); }
+    final long costNanos = this.costNanos(permits);
+    final long maxWaitNanos = maxWait == null ? WAIT_FOREVER : maxWaitNanos(maxWait);
+    return () -> {
+      this.enter(costNanos, maxWaitNanos);
+      return supplier.get();
+    };
+  }
+
+  /**
+   * Returns function that acquires one permit before each call of given function, waits if necessary.
+   *
+   * @param function the function
+   * @param <T>      the type of the argument
+   * @param <R>      the type of the result
+   * @param <E>      the type of the throwing exception
+   * @return rate limited function
+   * @throws NullPointerException if {@code function} arg is null
+   */
+  public <T, R, E extends Throwable> ThFunction<T, R, E> limitRes(
+    final ThFunction<? super T, ? extends R, ? extends E> function
+  ) {
+    return this.limitRes(1, null, function);
+  }
+
+  /**
+   * Returns function that acquires given number of permits before each call of given function and throws
+   * {@link RateLimitExceededException} if the permits cannot be acquired within given max wait time.
+   *
+   * @param permits  the number of permits per call
+   * @param maxWait  the max wait time, {@code null} to wait without limit
+   * @param function the function
+   * @param <T>      the type of the argument
+   * @param <R>      the type of the result
+   * @param <E>      the type of the throwing exception
+   * @return rate limited function
+   * @throws NullPointerException     if {@code function} arg is null
+   * @throws IllegalArgumentException if {@code permits} arg is not positive or too large
+   */
+  public <T, R, E extends Throwable> ThFunction<T, R, E> limitRes(
+    final int permits,
+    final Duration maxWait,
+    final ThFunction<? super T, ? extends R, ? extends E> function
+  ) {
+    if (function == null) { throw new NullPointerException("function arg is null"); }
+    final long costNanos = this.costNanos(permits);
+    final long maxWaitNanos = maxWait == null ? WAIT_FOREVER : maxWaitNanos(maxWait);
+    return t -> {
+      this.enter(costNanos, maxWaitNanos);
+      return function.apply(t);
+    };
+  }
+
+  /**
+   * Returns function that acquires one permit before each call of given function, waits if necessary.
+   *
+   * @param function the function
+   * @param <T>      the type of the first argument
+   * @param <U>      the type of the second argument
+   * @param <R>      the type of the result
+   * @param <E>      the type of the throwing exception
+   * @return rate limited function
+   * @throws NullPointerException if {@code function} arg is null
+   */
+  public <T, U, R, E extends Throwable> ThBiFunction<T, U, R, E> limitRes(
+    final ThBiFunction<? super T, ? super U, ? extends R, ? extends E> function
+  ) {
+    return this.limitRes(1, null, function);
+  }
+
+  /**
+   * Returns function that acquires given number of permits before each call of given function and throws
+   * {@link RateLimitExceededException} if the permits cannot be acquired within given max wait time.
+   *
+   * @param permits  the number of permits per call
+   * @param maxWait  the max wait time, {@code null} to wait without limit
+   * @param function the function
+   * @param <T>      the type of the first argument
+   * @param <U>      the type of the second argument
+   * @param <R>      the type of the result
+   * @param <E>      the type of the throwing exception
+   * @return rate limited function
+   * @throws NullPointerException     if {@code function} arg is null
+   * @throws IllegalArgumentException if {@code permits} arg is not positive or too large
+   */
+  public <T, U, R, E extends Throwable> ThBiFunction<T, U, R, E> limitRes(
+    final int permits,
+    final Duration maxWait,
+    final ThBiFunction<? super T, ? super U, ? extends R, ? extends E> function
+  ) {
+    if (function == null) { throw new NullPointerException("function arg is null"); }
+    final long costNanos = this.costNanos(permits);
+    final long maxWaitNanos = maxWait == null ? WAIT_FOREVER : maxWaitNanos(maxWait);
+    return (t, u) -> {
+      this.enter(costNanos, maxWaitNanos);
+      return function.apply(t, u);
+    };
+  }
+
+  /**
+   * Returns function that acquires one permit before each call of given function, waits if necessary.
+   *
+   * @param function the function
+   * @param <T>      the type of the first argument
+   * @param <U>      the type of the second argument
+   * @param <V>      the type of the third argument
+   * @param <R>      the type of the result
+   * @param <E>      the type of the throwing exception
+   * @return rate limited function
+   * @throws NullPointerException if {@code function} arg is null
+   */
+  public <T, U, V, R, E extends Throwable> ThTriFunction<T, U, V, R, E> limitRes(
+    final ThTriFunction<? super T, ? super U, ? super V, ? extends R, ? extends E> function
+  ) {
+    return this.limitRes(1, null, function);
+  }
+
+  /**
+   * Returns function that acquires given number of permits before each call of given function and throws
+   * {@link RateLimitExceededException} if the permits cannot be acquired within given max wait time.
+   *
+   * @param permits  the number of permits per call
+   * @param maxWait  the max wait time, {@code null} to wait without limit
+   * @param function the function
+   * @param <T>      the type of the first argument
+   * @param <U>      the type of the second argument
+   * @param <V>      the type of the third argument
+   * @param <R>      the type of the result
+   * @param <E>      the type of the throwing exception
+   * @return rate limited function
+   * @throws NullPointerException     if {@code function} arg is null
+   * @throws IllegalArgumentException if {@code permits} arg is not positive or too large
+   */
+  public <T, U, V, R, E extends Throwable> ThTriFunction<T, U, V, R, E> limitRes(
+    final int permits,
+    final Duration maxWait,
+    final ThTriFunction<? super T, ? super U, ? super V, ? extends R, ? extends E> function
+  ) {
+    if (function == null) { throw new NullPointerException("function arg is null"); }
+    final long costNanos = this.costNanos(permits);
+    final long maxWaitNanos = maxWait == null ? WAIT_FOREVER : maxWaitNanos(maxWait);
+    return (t, u, v) -> {
+      this.enter(costNanos, maxWaitNanos);
+      return function.apply(t, u, v);
+    };
+  }
+
+  @Override
+  public String toString() {
+    return "RateLimiter[interval=" + Duration.ofNanos(this.intervalNanos) + ", tolerance="
+      + Duration.ofNanos(this.toleranceNanos) + "]";
+  }
+
+  private void enter(final long costNanos,
+                     final long maxWaitNanos) {
+    if (!this.acquire(costNanos, maxWaitNanos)) {
+      throw new RateLimitExceededException("Rate limit exceeded");
+    }
+  }
+
+  private boolean acquire(final long costNanos,
+                          final long maxWaitNanos) {
+    final long now = System.nanoTime();
+    long waitNanos;
+    while (true) {
+      final long arrival = this.arrivalTime.get();
+      final long newArrival = (arrival - now > 0L ? arrival : now) + costNanos;
+      waitNanos = newArrival - now - this.toleranceNanos;
+      if (waitNanos > maxWaitNanos) {
+        return false;
+      }
+      if (this.arrivalTime.compareAndSet(arrival, newArrival)) {
+        break;
+      }
+    }
+    if (waitNanos > 0L) {
+      sleepUninterruptibly(now + waitNanos);
+    }
+    return true;
+  }
+
+  private long costNanos(final int permits) {
+    if (permits < 1) { throw new IllegalArgumentException("permits arg is not positive"); }
+    if (permits > this.maxPermits) { throw new IllegalArgumentException("permits arg is too large"); }
+    return permits * this.intervalNanos;
+  }
+
+  private static long maxWaitNanos(final Duration maxWait) {
+    if (maxWait == null) { throw new NullPointerException("maxWait arg is null"); }
+    if (maxWait.isNegative()) {
+      return 0L;
+    }
+    return maxWait.compareTo(Duration.ofNanos(Long.MAX_VALUE)) >= 0 ? WAIT_FOREVER : maxWait.toNanos();
+  }
+
+  private static void sleepUninterruptibly(final long wakeUpNanos) {
+    boolean interrupted = false;
+    try {
+      long remaining;
+      while ((remaining = wakeUpNanos - System.nanoTime()) > 0L) {
+        try {
+          TimeUnit.NANOSECONDS.sleep(remaining);
+        } catch (final InterruptedException ex) {
+          interrupted = true;
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
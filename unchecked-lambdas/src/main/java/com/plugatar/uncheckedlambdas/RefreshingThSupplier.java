@@ -0,0 +1,310 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * The {@link ThSupplier} decorator that caches the origin supplier result and refreshes it ahead of expiration
+ * (stale-while-revalidate).
+ * <ul>
+ * <li>value younger than the soft TTL is returned without any locking</li>
+ * <li>value older than the soft TTL but younger than the hard TTL is returned and an asynchronous refresh is
+ * triggered on the executor, only one refresh is performed at a time</li>
+ * <li>value older than the hard TTL (or missing value) is loaded synchronously, concurrent callers wait for a single
+ * load</li>
+ * </ul>
+ * If an asynchronous refresh throws an exception the last good value is kept and the failure is exposed by
+ * {@link #refreshFailureCount()} and {@link #lastRefreshFailure()} methods. No asynchronous refresh is triggered
+ * within the refresh retry interval after a failed one, so a failing origin is not called on every stale read. If a
+ * synchronous load throws an exception the exception is rethrown unchanged. An asynchronous refresh result is dropped
+ * if a synchronous load published a value after the refresh had started. Durations longer than about 146 years are
+ * treated as 146 years.
+ *
+ * @param <R> the type of the result
+ * @param <E> the type of the throwing exception
+ */
+public final class RefreshingThSupplier<R, E extends Throwable> implements ThSupplier<R, E> {
+
+  /**
+   * Default refresh retry interval, 1 second.
+   */
+  private static final Duration DEFAULT_REFRESH_RETRY_INTERVAL = Duration.ofSeconds(1);
+
+  /**
+   * Max duration, about 146 years.
+   */
+  private static final long MAX_DURATION_NANOS = Long.MAX_VALUE / 2L;
+
+  private final ThSupplier<? extends R, ? extends E> origin;
+  private final long softTtlNanos;
+  private final long hardTtlNanos;
+  private final long refreshRetryNanos;
+  private final Executor executor;
+  private final LongSupplier clock;
+  private final Object loadLock;
+  private final AtomicBoolean refreshing;
+  private final AtomicLong refreshCount;
+  private final AtomicLong refreshFailureCount;
+  private volatile Entry<R> entry;
+  private volatile Throwable lastRefreshFailure;
+  private volatile long lastRefreshFailureNanos;
+
+  /**
+   * Ctor.
+   *
+   * @param origin               the origin supplier
+   * @param softTtl              the soft TTL
+   * @param hardTtl              the hard TTL
+   * @param refreshRetryInterval the refresh retry interval
+   * @param executor             the refresh executor
+   * @param clock                the nano time clock
+   */
+  RefreshingThSupplier(final ThSupplier<? extends R, ? extends E> origin,
+                       final Duration softTtl,
+                       final Duration hardTtl,
+                       final Duration refreshRetryInterval,
+                       final Executor executor,
+                       final LongSupplier clock) {
+    this.origin = origin;
+    this.softTtlNanos = durationNanos(softTtl);
+    this.hardTtlNanos = durationNanos(hardTtl);
+    this.refreshRetryNanos = durationNanos(refreshRetryInterval);
+    this.executor = executor;
+    this.clock = clock;
+    this.loadLock = new Object();
+    this.refreshing = new AtomicBoolean();
+    this.refreshCount = new AtomicLong();
+    this.refreshFailureCount = new AtomicLong();
+    this.entry = null;
+    this.lastRefreshFailure = null;
+    this.lastRefreshFailureNanos = 0L;
+  }
+
+  /**
+   * Returns new refreshing supplier that performs asynchronous refreshes on the shared executor. On Java 21+ it is a
+   * virtual thread per refresh. Failed asynchronous refreshes are retried after 1 second.
+   *
+   * @param origin  the origin supplier
+   * @param softTtl the value age after which the value is refreshed asynchronously
+   * @param hardTtl the value age after which the value is loaded synchronously
+   * @param <R>     the type of the result
+   * @param <E>     the type of the throwing exception
+   * @return refreshing supplier
+   * @throws NullPointerException     if {@code origin} arg or {@code softTtl} arg or {@code hardTtl} arg is null
+   * @throws IllegalArgumentException if {@code softTtl} arg is negative or {@code hardTtl} arg is less than
+   *                                  {@code softTtl} arg
+   */
+  public static <R, E extends Throwable> RefreshingThSupplier<R, E> of(final ThSupplier<? extends R, ? extends E> origin,
+                                                                       final Duration softTtl,
+                                                                       final Duration hardTtl) {
+    return of(origin, softTtl, hardTtl, SharedExecutor.get());
+  }
+
+  /**
+   * Returns new refreshing supplier. Failed asynchronous refreshes are retried after 1 second.
+   *
+   * @param origin   the origin supplier
+   * @param softTtl  the value age after which the value is refreshed asynchronously
+   * @param hardTtl  the value age after which the value is loaded synchronously
+   * @param executor the executor for asynchronous refreshes
+   * @param <R>      the type of the result
+   * @param <E>      the type of the throwing exception
+   * @return refreshing supplier
+   * @throws NullPointerException     if {@code origin} arg or {@code softTtl} arg or {@code hardTtl} arg or
+   *                                  {@code executor} arg is null
+   * @throws IllegalArgumentException if {@code softTtl} arg is negative or {@code hardTtl} arg is less than
+   *                                  {@code softTtl} arg
+   */
+  public static <R, E extends Throwable> RefreshingThSupplier<R, E> of(final ThSupplier<? extends R, ? extends E> origin,
+                                                                       final Duration softTtl,
+                                                                       final Duration hardTtl,
+                                                                       final Executor executor) {
+    return of(origin, softTtl, hardTtl, DEFAULT_REFRESH_RETRY_INTERVAL, executor);
+  }
+
+  /**
+   * Returns new refreshing supplier.
+   *
+   * @param origin               the origin supplier
+   * @param softTtl              the value age after which the value is refreshed asynchronously
+   * @param hardTtl              the value age after which the value is loaded synchronously
+   * @param refreshRetryInterval the time after a failed asynchronous refresh during which no asynchronous refresh is
+   *                             triggered
+   * @param executor             the executor for asynchronous refreshes
+   * @param <R>                  the type of the result
+   * @param <E>                  the type of the throwing exception
+   * @return refreshing supplier
+   * @throws NullPointerException     if {@code origin} arg or {@code softTtl} arg or {@code hardTtl} arg or
+   *                                  {@code refreshRetryInterval} arg or {@code executor} arg is null
+   * @throws IllegalArgumentException if {@code softTtl} arg or {@code refreshRetryInterval} arg is negative or
+   *                                  {@code hardTtl} arg is less than {@code softTtl} arg
+   */
+  public static <R, E extends Throwable> RefreshingThSupplier<R, E> of(final ThSupplier<? extends R, ? extends E> origin,
+                                                                       final Duration softTtl,
+                                                                       final Duration hardTtl,
+                                                                       final Duration refreshRetryInterval,
+                                                                       final Executor executor) {
+    if (origin == null) { throw new NullPointerException("origin arg is null"); }
+    if (softTtl == null) { throw new NullPointerException("softTtl arg is null"); }
+    if (hardTtl == null) { throw new NullPointerException("hardTtl arg is null"); }
+    if (refreshRetryInterval == null) { throw new NullPointerException("refreshRetryInterval arg is null"); }
+    if (executor == null) { throw new NullPointerException("executor arg is null"); }
+    if (softTtl.isNegative()) { throw new IllegalArgumentException("softTtl arg is negative"); }
+    if (hardTtl.compareTo(softTtl) < 0) { throw new IllegalArgumentException("hardTtl arg is less than softTtl arg"); }
+    if (refreshRetryInterval.isNegative()) {
+      throw new IllegalArgumentException("refreshRetryInterval arg is negative");
+    }
+    return new RefreshingThSupplier<>(origin, softTtl, hardTtl, refreshRetryInterval, executor, System::nanoTime);
+  }
+
+  @Override
+  public R get() throws E {
+    final Entry<R> current = this.entry;
+    if (current != null) {
+      final long age = this.clock.getAsLong() - current.loadedAtNanos;
+      if (age < this.softTtlNanos) {
+        return current.value;
+      }
+      if (age < this.hardTtlNanos) {
+        this.refreshAsync();
+        return current.value;
+      }
+    }
+    return this.load();
+  }
+
+  /**
+   * Returns the number of successful loads and refreshes.
+   *
+   * @return number of successful loads and refreshes
+   */
+  public long refreshCount() {
+    return this.refreshCount.get();
+  }
+
+  /**
+   * Returns the number of failed asynchronous refreshes.
+   *
+   * @return number of failed asynchronous refreshes
+   */
+  public long refreshFailureCount() {
+    return this.refreshFailureCount.get();
+  }
+
+  /**
+   * Returns the exception of the last failed asynchronous refresh or null.
+   *
+   * @return last refresh exception or null
+   */
+  public Throwable lastRefreshFailure() {
+    return this.lastRefreshFailure;
+  }
+
+  /**
+   * Returns the age of the current value in nanoseconds or -1 if there is no value yet.
+   *
+   * @return the age of the current value in nanoseconds or -1
+   */
+  public long valueAgeNanos() {
+    final Entry<R> current = this.entry;
+    return current == null ? -1L : this.clock.getAsLong() - current.loadedAtNanos;
+  }
+
+  private R load() throws E {
+    synchronized (this.loadLock) {
+      final Entry<R> current = this.entry;
+      if (current != null && this.clock.getAsLong() - current.loadedAtNanos < this.hardTtlNanos) {
+        return current.value;
+      }
+      final R value = this.origin.get();
+      this.entry = new Entry<>(value, this.clock.getAsLong());
+      this.refreshCount.incrementAndGet();
+      return value;
+    }
+  }
+
+  private void refreshAsync() {
+    final boolean backoff = this.lastRefreshFailure != null
+      && this.clock.getAsLong() - this.lastRefreshFailureNanos < this.refreshRetryNanos;
+    if (backoff) { return; }
+    if (!this.refreshing.compareAndSet(false, true)) { return; }
+    try {
+      this.executor.execute(this::refresh);
+    } catch (final RuntimeException ex) {
+      this.refreshing.set(false);
+      this.refreshFailed(ex);
+    }
+  }
+
+  private void refresh() {
+    try {
+      final long startedAtNanos = this.clock.getAsLong();
+      final R value = this.origin.asUnchecked().get();
+      synchronized (this.loadLock) {
+        final Entry<R> current = this.entry;
+        /* a value loaded after the refresh start is not older than the refreshed value */
+        if (current == null || current.loadedAtNanos - startedAtNanos < 0L) {
+          this.entry = new Entry<>(value, this.clock.getAsLong());
+          this.refreshCount.incrementAndGet();
+        }
+      }
+    } catch (final Throwable ex) {
+      this.refreshFailed(ex);
+    } finally {
+      this.refreshing.set(false);
+    }
+  }
+
+  private void refreshFailed(final Throwable ex) {
+    this.lastRefreshFailureNanos = this.clock.getAsLong();
+    this.lastRefreshFailure = ex;
+    this.refreshFailureCount.incrementAndGet();
+  }
+
+  private static long durationNanos(final Duration duration) {
+    if (duration.compareTo(Duration.ofNanos(MAX_DURATION_NANOS)) > 0) {
+      return MAX_DURATION_NANOS;
+    }
+    return duration.toNanos();
+  }
+
+  /**
+   * Cached value.
+   *
+   * @param <R> the type of the value
+   */
+  private static final class Entry<R> {
+    private final R value;
+    private final long loadedAtNanos;
+
+    /**
+     * Ctor.
+     *
+     * @param value         the value
+     * @param loadedAtNanos the load time
+     */
+    private Entry(final R value,
+                  final long loadedAtNanos) {
+      this.value = value;
+      this.loadedAtNanos = loadedAtNanos;
+    }
+  }
+}
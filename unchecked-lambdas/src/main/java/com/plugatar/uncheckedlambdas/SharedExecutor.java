@@ -0,0 +1,106 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holder of the library-wide default executor.
+ * <p>
+ * On Java 21+ the executor starts a new virtual thread for each task, on older versions it is a cached pool of daemon
+ * platform threads.
+ */
+final class SharedExecutor {
+
+  /**
+   * The shared executor instance.
+   */
+  private static final ExecutorService INSTANCE = createExecutor();
+
+  /**
+   * Utility class ctor.
+   */
+  private SharedExecutor() {
+  }
+
+  /**
+   * Returns the shared executor.
+   *
+   * @return shared executor
+   */
+  static ExecutorService get() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns {@code true} if the shared executor uses virtual threads.
+   *
+   * @return {@code true} if the shared executor uses virtual threads
+   */
+  static boolean isVirtual() {
+    return !(INSTANCE instanceof PooledExecutor);
+  }
+
+  /**
+   * Creates virtual thread per task executor if it is available, otherwise creates pooled executor.
+   *
+   * @return executor
+   */
+  private static ExecutorService createExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (final ReflectiveOperationException | RuntimeException ex) {
+      return new PooledExecutor();
+    }
+  }
+
+  /**
+   * Cached thread pool of daemon threads.
+   */
+  private static final class PooledExecutor extends ThreadPoolExecutor {
+
+    /**
+     * Ctor.
+     */
+    private PooledExecutor() {
+      super(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(), new DaemonThreadFactory());
+    }
+  }
+
+  /**
+   * Daemon thread factory.
+   */
+  private static final class DaemonThreadFactory implements ThreadFactory {
+
+    /**
+     * Created threads counter.
+     */
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public Thread newThread(final Runnable runnable) {
+      final Thread thread = new Thread(runnable, "unchecked-lambdas-" + this.counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,592 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Staged event-driven pipeline. Each stage is a {@link ThFunction} (or a {@link ThConsumer} for the last stage) with
+ * its own bounded queue and workers.
+ * <pre>{@code
+ * final StagedPipeline<String> pipeline = StagedPipeline.<String>builder(deadLetter -> log(deadLetter))
+ *   .stage("parse", 2, 1024, Parser::parse)
+ *   .stage("enrich", 16, 256, enricher::enrich)
+ *   .sink("persist", 8, 256, repository::save);
+ * pipeline.submit(line);
+ * pipeline.close();
+ * }</pre>
+ * <ul>
+ * <li>a full stage queue blocks the upstream stage workers and the {@link #submit(Object)} callers
+ * (backpressure)</li>
+ * <li>workers drain up to the batch size of items from the stage queue at once, so the queue lock is taken once per
+ * batch rather than once per item</li>
+ * <li>exceptions (including checked) of the stages are passed with the stage name and the failed item to the
+ * dead-letter consumer, the pipeline keeps processing other items; an interrupted worker passes the rest of its batch
+ * to the dead-letter consumer with the {@link InterruptedException}, and so does the last interrupted worker of a stage
+ * with the items left in the stage queue; the items passed to a stage without workers are dead-lettered too</li>
+ * <li>{@link #stages()} exposes queue depth and latency metrics of each stage</li>
+ * </ul>
+ *
+ * @param <T> the type of the pipeline input items
+ */
+public final class StagedPipeline<T> implements AutoCloseable {
+
+  /**
+   * Shutdown marker.
+   */
+  private static final Object POISON = new Object();
+
+  /**
+   * Null item marker.
+   */
+  private static final Object NULL = new Object();
+
+  private final List<Stage> stages;
+  private final CountDownLatch terminated;
+  private final AtomicBoolean closed;
+  private final AtomicInteger submitting;
+
+  /**
+   * Ctor.
+   *
+   * @param stages     the stages
+   * @param terminated the latch released by the last stage workers
+   */
+  private StagedPipeline(final List<Stage> stages,
+                         final CountDownLatch terminated) {
+    this.stages = Collections.unmodifiableList(stages);
+    this.terminated = terminated;
+    this.closed = new AtomicBoolean();
+    this.submitting = new AtomicInteger();
+  }
+
+  /**
+   * Returns new pipeline builder. Workers are performed on the shared executor, on Java 21+ it is a virtual thread per
+   * worker.
+   *
+   * @param deadLetter the dead-letter consumer, its exceptions are ignored
+   * @param <T>        the type of the pipeline input items
+   * @return new pipeline builder
+   * @throws NullPointerException if {@code deadLetter} arg is null
+   */
+  public static <T> Builder<T, T> builder(final ThConsumer<? super DeadLetter, ?> deadLetter) {
+    return builder(deadLetter, SharedExecutor.get());
+  }
+
+  /**
+   * Returns new pipeline builder. Each worker occupies an executor thread until the pipeline is closed, so the
+   * executor has to provide at least as many threads as the total number of workers of all stages, otherwise the
+   * workers left in the executor queue never start and the pipeline stalls.
+   *
+   * @param deadLetter the dead-letter consumer, its exceptions are ignored
+   * @param executor   the executor performing workers
+   * @param <T>        the type of the pipeline input items
+   * @return new pipeline builder
+   * @throws NullPointerException if {@code deadLetter} arg or {@code executor} arg is null
+   */
+  public static <T> Builder<T, T> builder(final ThConsumer<? super DeadLetter, ?> deadLetter,
+                                          final Executor executor) {
+    if (deadLetter == null) { throw new NullPointerException("deadLetter arg is null"); }
+    if (executor == null) { throw new NullPointerException("executor arg is null"); }
+    return new Builder<>(deadLetter, executor);
+  }
+
+  /**
+   * Submits given item to the first stage. Waits if the first stage queue is full.
+   *
+   * @param item the item
+   * @throws IllegalStateException if the pipeline is closed or all workers of the first stage were interrupted
+   * @throws InterruptedException  if the current thread was interrupted while waiting
+   */
+  public void submit(final T item) throws InterruptedException {
+    this.submitting.incrementAndGet();
+    try {
+      if (this.closed.get()) { throw new IllegalStateException("Pipeline is closed"); }
+      if (!this.stages.get(0).putIfAlive(item == null ? NULL : item)) {
+        throw new IllegalStateException("Pipeline workers are terminated");
+      }
+    } finally {
+      this.submitting.decrementAndGet();
+    }
+  }
+
+  /**
+   * Returns the stages of this pipeline in the processing order.
+   *
+   * @return stages
+   */
+  public List<Stage> stages() {
+    return this.stages;
+  }
+
+  /**
+   * Closes this pipeline and waits until all submitted items are processed by all stages. Items can't be submitted
+   * after this method call.
+   */
+  @Override
+  public void close() {
+    if (this.closed.compareAndSet(false, true)) {
+      while (this.submitting.get() != 0) {
+        LockSupport.parkNanos(100_000L);
+      }
+      final Stage first = this.stages.get(0);
+      /* the last interrupted worker of the first stage has already passed the shutdown marker downstream */
+      if (first.alive.get() != 0) {
+        first.putUninterruptibly(POISON);
+      }
+    }
+    boolean interrupted = false;
+    while (true) {
+      try {
+        this.terminated.await();
+        break;
+      } catch (final InterruptedException ex) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * The pipeline builder.
+   *
+   * @param <I> the type of the pipeline input items
+   * @param <T> the type of the last stage output items
+   */
+  public static final class Builder<I, T> {
+    private final ThConsumer<? super DeadLetter, ?> deadLetter;
+    private final Executor executor;
+    private final List<Stage> stages;
+    private int batchSize;
+    private boolean built;
+
+    /**
+     * Ctor.
+     *
+     * @param deadLetter the dead-letter consumer
+     * @param executor   the executor
+     */
+    private Builder(final ThConsumer<? super DeadLetter, ?> deadLetter,
+                    final Executor executor) {
+      this.deadLetter = deadLetter;
+      this.executor = executor;
+      this.stages = new ArrayList<>();
+      this.batchSize = 64;
+      this.built = false;
+    }
+
+    /**
+     * Sets the max number of items drained from a stage queue at once for the subsequently added stages. Default
+     * value is 64.
+     *
+     * @param batchSize the batch size
+     * @return this builder
+     * @throws IllegalArgumentException if {@code batchSize} arg is not positive
+     */
+    public Builder<I, T> batchSize(final int batchSize) {
+      if (batchSize < 1) { throw new IllegalArgumentException("batchSize arg is not positive"); }
+      this.batchSize = batchSize;
+      return this;
+    }
+
+    /**
+     * Adds the function stage.
+     *
+     * @param name          the stage name
+     * @param workers       the number of the stage workers
+     * @param queueCapacity the stage queue capacity
+     * @param function      the stage function
+     * @param <R>           the type of the stage output items
+     * @return this builder
+     * @throws NullPointerException     if {@code name} arg or {@code function} arg is null
+     * @throws IllegalArgumentException if {@code workers} arg or {@code queueCapacity} arg is not positive
+     * @throws IllegalStateException    if the pipeline is already built by this builder
+     */
+    @SuppressWarnings("unchecked")
+    public <R> Builder<I, R> stage(final String name,
+                                   final int workers,
+                                   final int queueCapacity,
+                                   final ThFunction<? super T, ? extends R, ?> function) {
+      if (function == null) { throw new NullPointerException("function arg is null"); }
+      this.add(name, workers, queueCapacity, (ThFunction<Object, Object, ?>) function);
+      return (Builder<I, R>) this;
+    }
+
+    /**
+     * Adds the last consumer stage, builds the pipeline and starts all workers.
+     *
+     * @param name          the stage name
+     * @param workers       the number of the stage workers
+     * @param queueCapacity the stage queue capacity
+     * @param consumer      the stage consumer
+     * @return started pipeline
+     * @throws NullPointerException     if {@code name} arg or {@code consumer} arg is null
+     * @throws IllegalArgumentException if {@code workers} arg or {@code queueCapacity} arg is not positive
+     * @throws IllegalStateException    if the pipeline is already built by this builder
+     */
+    @SuppressWarnings("unchecked")
+    public StagedPipeline<I> sink(final String name,
+                                  final int workers,
+                                  final int queueCapacity,
+                                  final ThConsumer<? super T, ?> consumer) {
+      if (consumer == null) { throw new NullPointerException("consumer arg is null"); }
+      final ThConsumer<Object, ?> objConsumer = (ThConsumer<Object, ?>) consumer;
+      this.add(name, workers, queueCapacity, item -> {
+        objConsumer.accept(item);
+        return null;
+      });
+      this.built = true;
+      final CountDownLatch terminated = new CountDownLatch(1);
+      for (int idx = 0; idx < this.stages.size(); idx++) {
+        final Stage stage = this.stages.get(idx);
+        stage.start(idx + 1 < this.stages.size() ? this.stages.get(idx + 1) : null, terminated, this.executor);
+      }
+      return new StagedPipeline<>(new ArrayList<>(this.stages), terminated);
+    }
+
+    private void add(final String name,
+                     final int workers,
+                     final int queueCapacity,
+                     final ThFunction<Object, Object, ?> function) {
+      if (this.built) { throw new IllegalStateException("Pipeline is already built"); }
+      if (name == null) { throw new NullPointerException("name arg is null"); }
+      if (workers < 1) { throw new IllegalArgumentException("workers arg is not positive"); }
+      if (queueCapacity < 1) { throw new IllegalArgumentException("queueCapacity arg is not positive"); }
+      this.stages.add(new Stage(name, workers, queueCapacity, this.batchSize, function, this.deadLetter));
+    }
+  }
+
+  /**
+   * The pipeline stage.
+   */
+  public static final class Stage {
+    private final String name;
+    private final int workers;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final ThFunction<Object, Object, ?> function;
+    private final ThConsumer<? super DeadLetter, ?> deadLetter;
+    private final ArrayBlockingQueue<Object> queue;
+    private final AtomicInteger alive;
+    private final LongAdder processedCount;
+    private final LongAdder failureCount;
+    private final LongAdder latencySumNanos;
+    private final LongAccumulator maxLatencyNanos;
+    private Stage next;
+    private CountDownLatch terminated;
+
+    /**
+     * Ctor.
+     *
+     * @param name          the stage name
+     * @param workers       the number of workers
+     * @param queueCapacity the queue capacity
+     * @param batchSize     the batch size
+     * @param function      the stage function
+     * @param deadLetter    the dead-letter consumer
+     */
+    private Stage(final String name,
+                  final int workers,
+                  final int queueCapacity,
+                  final int batchSize,
+                  final ThFunction<Object, Object, ?> function,
+                  final ThConsumer<? super DeadLetter, ?> deadLetter) {
+      this.name = name;
+      this.workers = workers;
+      this.queueCapacity = queueCapacity;
+      this.batchSize = batchSize;
+      this.function = function;
+      this.deadLetter = deadLetter;
+      this.queue = new ArrayBlockingQueue<>(queueCapacity);
+      this.alive = new AtomicInteger(workers);
+      this.processedCount = new LongAdder();
+      this.failureCount = new LongAdder();
+      this.latencySumNanos = new LongAdder();
+      this.maxLatencyNanos = new LongAccumulator(Math::max, 0L);
+      this.next = null;
+      this.terminated = null;
+    }
+
+    /**
+     * Returns the stage name.
+     *
+     * @return stage name
+     */
+    public String name() {
+      return this.name;
+    }
+
+    /**
+     * Returns the number of the stage workers.
+     *
+     * @return number of workers
+     */
+    public int workers() {
+      return this.workers;
+    }
+
+    /**
+     * Returns the stage queue capacity.
+     *
+     * @return queue capacity
+     */
+    public int queueCapacity() {
+      return this.queueCapacity;
+    }
+
+    /**
+     * Returns the current number of items in the stage queue.
+     *
+     * @return queue depth
+     */
+    public int queueDepth() {
+      return this.queue.size();
+    }
+
+    /**
+     * Returns the number of successfully processed items.
+     *
+     * @return number of processed items
+     */
+    public long processedCount() {
+      return this.processedCount.sum();
+    }
+
+    /**
+     * Returns the number of failed items.
+     *
+     * @return number of failed items
+     */
+    public long failureCount() {
+      return this.failureCount.sum();
+    }
+
+    /**
+     * Returns the average processing time of an item in nanoseconds.
+     *
+     * @return average processing time in nanoseconds
+     */
+    public long averageLatencyNanos() {
+      final long count = this.processedCount.sum() + this.failureCount.sum();
+      return count == 0L ? 0L : this.latencySumNanos.sum() / count;
+    }
+
+    /**
+     * Returns the max processing time of an item in nanoseconds.
+     *
+     * @return max processing time in nanoseconds
+     */
+    public long maxLatencyNanos() {
+      return this.maxLatencyNanos.get();
+    }
+
+    @Override
+    public String toString() {
+      return "Stage[" + this.name + ", queueDepth=" + this.queueDepth() + "]";
+    }
+
+    private void start(final Stage nextStage,
+                       final CountDownLatch terminatedLatch,
+                       final Executor executor) {
+      this.next = nextStage;
+      this.terminated = terminatedLatch;
+      for (int idx = 0; idx < this.workers; idx++) {
+        executor.execute(this::work);
+      }
+    }
+
+    private void work() {
+      final List<Object> batch = new ArrayList<>(this.batchSize);
+      int pending = 0;
+      InterruptedException interruption = null;
+      try {
+        boolean running = true;
+        while (running) {
+          batch.add(this.queue.take());
+          this.queue.drainTo(batch, this.batchSize - 1);
+          for (; pending < batch.size(); pending++) {
+            final Object item = batch.get(pending);
+            if (item == POISON) {
+              this.queue.put(POISON);
+              running = false;
+              break;
+            }
+            this.process(item);
+          }
+          batch.clear();
+          pending = 0;
+        }
+      } catch (final InterruptedException ex) {
+        /* the not yet passed items of the batch (including the interrupted one) go to the dead-letter consumer */
+        for (final Object item : batch.subList(pending, batch.size())) {
+          if (item == POISON) {
+            this.putUninterruptibly(POISON);
+          } else {
+            this.failureCount.increment();
+            this.sendDeadLetter(item == NULL ? null : item, ex);
+          }
+        }
+        interruption = ex;
+        Thread.currentThread().interrupt();
+      } finally {
+        if (this.alive.decrementAndGet() == 0) {
+          /* the items left by the interrupted workers go to the dead-letter consumer */
+          final List<Object> rest = new ArrayList<>();
+          this.queue.drainTo(rest);
+          for (final Object item : rest) {
+            if (item != POISON) {
+              this.failureCount.increment();
+              this.sendDeadLetter(item == NULL ? null : item,
+                interruption == null ? new IllegalStateException("Stage workers are terminated") : interruption);
+            }
+          }
+          if (this.next == null) {
+            this.terminated.countDown();
+          } else {
+            this.next.putUninterruptibly(POISON);
+          }
+        }
+      }
+    }
+
+    private void process(final Object item) throws InterruptedException {
+      final Object input = item == NULL ? null : item;
+      final long start = System.nanoTime();
+      final Object output;
+      try {
+        output = this.function.asUnchecked().apply(input);
+      } catch (final Throwable ex) {
+        this.recordLatency(start);
+        this.failureCount.increment();
+        this.sendDeadLetter(input, ex);
+        return;
+      }
+      this.recordLatency(start);
+      if (this.next != null && !this.next.putIfAlive(output == null ? NULL : output)) {
+        this.next.failureCount.increment();
+        this.next.sendDeadLetter(output, new IllegalStateException("Stage workers are terminated"));
+        return;
+      }
+      this.processedCount.increment();
+    }
+
+    /**
+     * Puts given item to the queue if any worker of this stage is alive.
+     *
+     * @param item the item
+     * @return false if the item was not accepted because all workers of this stage are terminated
+     * @throws InterruptedException if the current thread was interrupted while waiting
+     */
+    private boolean putIfAlive(final Object item) throws InterruptedException {
+      if (this.alive.get() == 0) { return false; }
+      this.queue.put(item);
+      /* the last worker drains the queue after the counter reaches 0, the item is either drained or removed here */
+      return this.alive.get() != 0 || !this.queue.remove(item);
+    }
+
+    private void sendDeadLetter(final Object input,
+                                final Throwable exception) {
+      try {
+        this.deadLetter.asUnchecked().accept(new DeadLetter(this.name, input, exception));
+      } catch (final Throwable ignored) {
+      }
+    }
+
+    private void recordLatency(final long start) {
+      final long latency = System.nanoTime() - start;
+      this.latencySumNanos.add(latency);
+      this.maxLatencyNanos.accumulate(latency);
+    }
+
+    private void putUninterruptibly(final Object item) {
+      boolean interrupted = false;
+      while (true) {
+        try {
+          this.queue.put(item);
+          break;
+        } catch (final InterruptedException ex) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * The failed item.
+   */
+  public static final class DeadLetter {
+    private final String stage;
+    private final Object item;
+    private final Throwable exception;
+
+    /**
+     * Ctor.
+     *
+     * @param stage     the stage name
+     * @param item      the failed item
+     * @param exception the exception
+     */
+    private DeadLetter(final String stage,
+                       final Object item,
+                       final Throwable exception) {
+      this.stage = stage;
+      this.item = item;
+      this.exception = exception;
+    }
+
+    /**
+     * Returns the name of the failed stage.
+     *
+     * @return stage name
+     */
+    public String stage() {
+      return this.stage;
+    }
+
+    /**
+     * Returns the failed item, the input item of the failed stage.
+     *
+     * @return failed item
+     */
+    public Object item() {
+      return this.item;
+    }
+
+    /**
+     * Returns the exception of the failed stage.
+     *
+     * @return exception
+     */
+    public Throwable exception() {
+      return this.exception;
+    }
+  }
+}
@@ -0,0 +1,489 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The graph of dependent tasks. Nodes are declared as {@link ThSupplier}s or as {@link ThFunction}s,
+ * {@link ThBiFunction}s and {@link ThTriFunction}s of previously declared nodes, so the graph is acyclic by
+ * construction.
+ * <p>
+ * The {@link #run(Executor)} method computes each node once, nodes whose upstream nodes are computed run in parallel.
+ * If a node throws an exception all its downstream nodes are cancelled, independent nodes are still computed and
+ * the first exception is rethrown unchanged after all running nodes are completed.
+ * <pre>{@code
+ * final TaskGraph<IOException> graph = TaskGraph.create();
+ * final TaskGraph.Node<Config> config = graph.node("config", Config::load);
+ * final TaskGraph.Node<KeyStore> keyStore = graph.node("keyStore", config, Config::keyStore);
+ * final TaskGraph.Node<SSLContext> tls = graph.node("tls", config, keyStore, Tls::context);
+ * final TaskGraph.Result result = graph.run();
+ * final SSLContext context = result.get(tls);
+ * }</pre>
+ * Nodes declaration is not thread safe, the {@code run} methods might be called concurrently.
+ *
+ * @param <E> the type of the nodes exception
+ */
+public final class TaskGraph<E extends Throwable> {
+  private static final int PENDING = 0;
+  private static final int RUNNING = 1;
+  private static final int COMPLETED = 2;
+  private static final int FAILED = 3;
+  private static final int CANCELLED = 4;
+
+  private final List<Node<?>> nodes;
+
+  /**
+   * Ctor.
+   */
+  private TaskGraph() {
+    this.nodes = new ArrayList<>();
+  }
+
+  /**
+   * Returns new empty task graph.
+   *
+   * @param <E> the type of the nodes exception
+   * @return new task graph
+   */
+  public static <E extends Throwable> TaskGraph<E> create() {
+    return new TaskGraph<>();
+  }
+
+  /**
+   * Declares the node without upstream nodes.
+   *
+   * @param name     the node name
+   * @param supplier the node supplier
+   * @param <R>      the type of the node value
+   * @return declared node
+   * @throws NullPointerException if {@code name} arg or {@code supplier} arg is null
+   */
+  public <R> Node<R> node(final String name,
+                          final ThSupplier<? extends R, ? extends E> supplier) {
+    if (supplier == null) { throw new NullPointerException("supplier arg is null"); }
+    return this.declare(name, new Node<?>[0], args -> supplier.get());
+  }
+
+  /**
+   * Declares the node with one upstream node.
+   *
+   * @param name     the node name
+   * @param upstream the upstream node
+   * @param function the node function
+   * @param <T>      the type of the upstream node value
+   * @param <R>      the type of the node value
+   * @return declared node
+   * @throws NullPointerException     if any arg is null
+   * @throws IllegalArgumentException if upstream node is declared by another graph
+   */
+  @SuppressWarnings("unchecked")
+  public <T, R> Node<R> node(final String name,
+                             final Node<? extends T> upstream,
+                             final ThFunction<? super T, ? extends R, ? extends E> function) {
+    if (function == null) { throw new NullPointerException("function arg is null"); }
+    return this.declare(name, new Node<?>[]{upstream}, args -> function.apply((T) args[0]));
+  }
+
+  /**
+   * Declares the node with two upstream nodes.
+   *
+   * @param name       the node name
+   * @param upstream1  the first upstream node
+   * @param upstream2  the second upstream node
+   * @param biFunction the node function
+   * @param <T>        the type of the first upstream node value
+   * @param <U>        the type of the second upstream node value
+   * @param <R>        the type of the node value
+   * @return declared node
+   * @throws NullPointerException     if any arg is null
+   * @throws IllegalArgumentException if upstream node is declared by another graph
+   */
+  @SuppressWarnings("unchecked")
+  public <T, U, R> Node<R> node(final String name,
+                                final Node<? extends T> upstream1,
+                                final Node<? extends U> upstream2,
+                                final ThBiFunction<? super T, ? super U, ? extends R, ? extends E> biFunction) {
+    if (biFunction == null) { throw new NullPointerException("biFunction arg is null"); }
+    return this.declare(name, new Node<?>[]{upstream1, upstream2},
+      args -> biFunction.apply((T) args[0], (U) args[1]));
+  }
+
+  /**
+   * Declares the node with three upstream nodes.
+   *
+   * @param name        the node name
+   * @param upstream1   the first upstream node
+   * @param upstream2   the second upstream node
+   * @param upstream3   the third upstream node
+   * @param triFunction the node function
+   * @param <T>         the type of the first upstream node value
+   * @param <U>         the type of the second upstream node value
+   * @param <V>         the type of the third upstream node value
+   * @param <R>         the type of the node value
+   * @return declared node
+   * @throws NullPointerException     if any arg is null
+   * @throws IllegalArgumentException if upstream node is declared by another graph
+   */
+  @SuppressWarnings("unchecked")
+  public <T, U, V, R> Node<R> node(final String name,
+                                   final Node<? extends T> upstream1,
+                                   final Node<? extends U> upstream2,
+                                   final Node<? extends V> upstream3,
+                                   final ThTriFunction<? super T, ? super U, ? super V, ? extends R, ? extends E>
+                                     triFunction) {
+    if (triFunction == null) { throw new NullPointerException("triFunction arg is null"); }
+    return this.declare(name, new Node<?>[]{upstream1, upstream2, upstream3},
+      args -> triFunction.apply((T) args[0], (U) args[1], (V) args[2]));
+  }
+
+  /**
+   * Computes all nodes on the shared executor. On Java 21+ it is a virtual thread per node.
+   *
+   * @return computation result
+   * @throws E                    if any node threw exception
+   * @throws InterruptedException if the current thread was interrupted, not started nodes are cancelled
+   */
+  public Result run() throws E, InterruptedException {
+    return this.run(SharedExecutor.get());
+  }
+
+  /**
+   * Computes all nodes on given executor. If the executor rejects a node the node is computed on the thread that
+   * completed its last upstream node.
+   *
+   * @param executor the executor
+   * @return computation result
+   * @throws NullPointerException if {@code executor} arg is null
+   * @throws E                    if any node threw exception
+   * @throws InterruptedException if the current thread was interrupted, not started nodes are cancelled
+   */
+  @SuppressWarnings("unchecked")
+  public Result run(final Executor executor) throws E, InterruptedException {
+    if (executor == null) { throw new NullPointerException("executor arg is null"); }
+    final Execution execution = new Execution(new ArrayList<>(this.nodes), executor);
+    execution.start();
+    try {
+      execution.settled.await();
+    } catch (final InterruptedException ex) {
+      execution.cancelAll();
+      throw ex;
+    }
+    final Throwable failure = execution.failure.get();
+    if (failure != null) {
+      throw (E) failure;
+    }
+    return execution.result();
+  }
+
+  private <R> Node<R> declare(final String name,
+                              final Node<?>[] upstreams,
+                              final ThFunction<Object[], Object, ? extends E> function) {
+    if (name == null) { throw new NullPointerException("name arg is null"); }
+    for (final Node<?> upstream : upstreams) {
+      if (upstream == null) { throw new NullPointerException("upstream arg is null"); }
+      if (upstream.graph != this) { throw new IllegalArgumentException("upstream node is declared by another graph"); }
+    }
+    final Node<R> node = new Node<>(this, this.nodes.size(), name, upstreams, function);
+    this.nodes.add(node);
+    for (final Node<?> upstream : upstreams) {
+      upstream.downstreams.add(node.index);
+    }
+    return node;
+  }
+
+  /**
+   * The node of the task graph.
+   *
+   * @param <R> the type of the node value
+   */
+  public static final class Node<R> {
+    private final TaskGraph<?> graph;
+    private final int index;
+    private final String name;
+    private final Node<?>[] upstreams;
+    private final ThFunction<Object[], Object, ?> function;
+    private final List<Integer> downstreams;
+
+    /**
+     * Ctor.
+     *
+     * @param graph     the graph
+     * @param index     the node index
+     * @param name      the node name
+     * @param upstreams the upstream nodes
+     * @param function  the node function
+     */
+    private Node(final TaskGraph<?> graph,
+                 final int index,
+                 final String name,
+                 final Node<?>[] upstreams,
+                 final ThFunction<Object[], Object, ?> function) {
+      this.graph = graph;
+      this.index = index;
+      this.name = name;
+      this.upstreams = upstreams;
+      this.function = function;
+      this.downstreams = new ArrayList<>();
+    }
+
+    /**
+     * Returns the node name.
+     *
+     * @return node name
+     */
+    public String name() {
+      return this.name;
+    }
+
+    @Override
+    public String toString() {
+      return this.name;
+    }
+  }
+
+  /**
+   * The result of the task graph computation.
+   */
+  public static final class Result {
+    private final List<Node<?>> nodes;
+    private final Object[] values;
+    private final long[] startNanos;
+    private final long[] endNanos;
+    private final long runStartNanos;
+
+    /**
+     * Ctor.
+     *
+     * @param nodes         the nodes
+     * @param values        the node values
+     * @param startNanos    the node start times
+     * @param endNanos      the node end times
+     * @param runStartNanos the computation start time
+     */
+    private Result(final List<Node<?>> nodes,
+                   final Object[] values,
+                   final long[] startNanos,
+                   final long[] endNanos,
+                   final long runStartNanos) {
+      this.nodes = nodes;
+      this.values = values;
+      this.startNanos = startNanos;
+      this.endNanos = endNanos;
+      this.runStartNanos = runStartNanos;
+    }
+
+    /**
+     * Returns the value of given node.
+     *
+     * @param node the node
+     * @param <R>  the type of the node value
+     * @return node value
+     * @throws NullPointerException     if {@code node} arg is null
+     * @throws IllegalArgumentException if the node is not computed by this computation
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R get(final Node<R> node) {
+      return (R) this.values[this.indexOf(node)];
+    }
+
+    /**
+     * Returns the computation time of given node in nanoseconds.
+     *
+     * @param node the node
+     * @return node computation time in nanoseconds
+     * @throws NullPointerException     if {@code node} arg is null
+     * @throws IllegalArgumentException if the node is not computed by this computation
+     */
+    public long elapsedNanos(final Node<?> node) {
+      final int index = this.indexOf(node);
+      return this.endNanos[index] - this.startNanos[index];
+    }
+
+    /**
+     * Returns the wall time of the whole computation in nanoseconds.
+     *
+     * @return wall time in nanoseconds
+     */
+    public long totalNanos() {
+      long end = this.runStartNanos;
+      for (final long nodeEnd : this.endNanos) {
+        if (nodeEnd - end > 0L) { end = nodeEnd; }
+      }
+      return end - this.runStartNanos;
+    }
+
+    /**
+     * Returns the critical path: the chain of nodes ending with the last completed node, where each node is preceded
+     * by its last completed upstream node.
+     *
+     * @return critical path from the first to the last node
+     */
+    public List<Node<?>> criticalPath() {
+      if (this.nodes.isEmpty()) { return Collections.emptyList(); }
+      int last = 0;
+      for (int idx = 1; idx < this.endNanos.length; idx++) {
+        if (this.endNanos[idx] - this.endNanos[last] > 0L) { last = idx; }
+      }
+      final List<Node<?>> path = new ArrayList<>();
+      Node<?> node = this.nodes.get(last);
+      while (node != null) {
+        path.add(node);
+        Node<?> gate = null;
+        for (final Node<?> upstream : node.upstreams) {
+          if (gate == null || this.endNanos[upstream.index] - this.endNanos[gate.index] >= 0L) { gate = upstream; }
+        }
+        node = gate;
+      }
+      Collections.reverse(path);
+      return Collections.unmodifiableList(path);
+    }
+
+    /**
+     * Returns the sum of the computation times of the critical path nodes in nanoseconds.
+     *
+     * @return critical path time in nanoseconds
+     */
+    public long criticalPathNanos() {
+      long sum = 0L;
+      for (final Node<?> node : this.criticalPath()) {
+        sum += this.elapsedNanos(node);
+      }
+      return sum;
+    }
+
+    private int indexOf(final Node<?> node) {
+      if (node == null) { throw new NullPointerException("node arg is null"); }
+      if (node.index >= this.nodes.size() || this.nodes.get(node.index) != node) {
+        throw new IllegalArgumentException("node is not computed by this computation");
+      }
+      return node.index;
+    }
+  }
+
+  /**
+   * Single computation of the nodes.
+   */
+  private static final class Execution {
+    private final List<Node<?>> nodes;
+    private final Executor executor;
+    private final Object[] values;
+    private final long[] startNanos;
+    private final long[] endNanos;
+    private final AtomicIntegerArray remaining;
+    private final AtomicIntegerArray states;
+    private final AtomicReference<Throwable> failure;
+    private final CountDownLatch settled;
+    private long runStartNanos;
+
+    /**
+     * Ctor.
+     *
+     * @param nodes    the nodes
+     * @param executor the executor
+     */
+    private Execution(final List<Node<?>> nodes,
+                      final Executor executor) {
+      this.nodes = nodes;
+      this.executor = executor;
+      this.values = new Object[nodes.size()];
+      this.startNanos = new long[nodes.size()];
+      this.endNanos = new long[nodes.size()];
+      this.remaining = new AtomicIntegerArray(nodes.size());
+      this.states = new AtomicIntegerArray(nodes.size());
+      this.failure = new AtomicReference<>();
+      this.settled = new CountDownLatch(nodes.size());
+      this.runStartNanos = 0L;
+    }
+
+    private void start() {
+      for (final Node<?> node : this.nodes) {
+        this.remaining.set(node.index, node.upstreams.length);
+      }
+      this.runStartNanos = System.nanoTime();
+      for (final Node<?> node : this.nodes) {
+        if (node.upstreams.length == 0) {
+          this.submit(node);
+        }
+      }
+    }
+
+    private void submit(final Node<?> node) {
+      try {
+        this.executor.execute(() -> this.compute(node));
+      } catch (final RuntimeException ex) {
+        this.compute(node);
+      }
+    }
+
+    private void compute(final Node<?> node) {
+      final int index = node.index;
+      if (!this.states.compareAndSet(index, PENDING, RUNNING)) { return; }
+      try {
+        final Object[] args = new Object[node.upstreams.length];
+        for (int idx = 0; idx < args.length; idx++) {
+          args[idx] = this.values[node.upstreams[idx].index];
+        }
+        this.startNanos[index] = System.nanoTime();
+        try {
+          this.values[index] = node.function.asUnchecked().apply(args);
+        } finally {
+          this.endNanos[index] = System.nanoTime();
+        }
+        this.states.set(index, COMPLETED);
+      } catch (final Throwable ex) {
+        this.states.set(index, FAILED);
+        this.failure.compareAndSet(null, ex);
+        this.settled.countDown();
+        this.cancelDownstreams(node);
+        return;
+      }
+      this.settled.countDown();
+      for (final int downstream : node.downstreams) {
+        if (this.remaining.decrementAndGet(downstream) == 0) {
+          this.submit(this.nodes.get(downstream));
+        }
+      }
+    }
+
+    private void cancelDownstreams(final Node<?> node) {
+      for (final int downstream : node.downstreams) {
+        if (this.states.compareAndSet(downstream, PENDING, CANCELLED)) {
+          this.settled.countDown();
+          this.cancelDownstreams(this.nodes.get(downstream));
+        }
+      }
+    }
+
+    private void cancelAll() {
+      for (int idx = 0; idx < this.nodes.size(); idx++) {
+        if (this.states.compareAndSet(idx, PENDING, CANCELLED)) {
+          this.settled.countDown();
+        }
+      }
+    }
+
+    private Result result() {
+      return new Result(this.nodes, this.values, this.startNanos, this.endNanos, this.runStartNanos);
+    }
+  }
+}
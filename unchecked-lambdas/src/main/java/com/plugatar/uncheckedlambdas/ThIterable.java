@@ -0,0 +1,70 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+/**
+ * The {@link Iterable} specialization that might throw an exception.
+ *
+ * @param <T> the type of the elements
+ * @param <E> the type of the throwing exception
+ * @see Iterable
+ */
+@FunctionalInterface
+public interface ThIterable<T, E extends Throwable> {
+
+  /**
+   * Returns new iterator over the elements.
+   *
+   * @return iterator
+   * @throws E if iterable threw exception
+   */
+  ThIterator<T, E> iterator() throws E;
+
+  /**
+   * Returns this iterable as an unchecked iterable.
+   *
+   * @return unchecked iterable
+   */
+  @SuppressWarnings("unchecked")
+  default ThIterable<T, RuntimeException> asUnchecked() {
+    return (ThIterable<T, RuntimeException>) this;
+  }
+
+  /**
+   * Performs given consumer on each element and closes the iterator.
+   *
+   * @param consumer the consumer
+   * @throws E                    if iterable, iterator or consumer threw exception
+   * @throws NullPointerException if {@code consumer} arg is null
+   */
+  default void forEach(final ThConsumer<? super T, ? extends E> consumer) throws E {
+    if (consumer == null) { throw new NullPointerException("consumer arg is null"); }
+    final ThIterator<T, E> iterator = this.iterator();
+    try {
+      while (iterator.hasNext()) {
+        consumer.accept(iterator.next());
+      }
+    } catch (final Throwable ex) {
+      try {
+        iterator.close();
+      } catch (final Throwable closeEx) {
+        ex.addSuppressed(closeEx);
+      }
+      throw ex;
+    }
+    iterator.close();
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The {@link Iterator} specialization that might throw an exception.
+ *
+ * @param <T> the type of the elements
+ * @param <E> the type of the throwing exception
+ * @see Iterator
+ */
+public interface ThIterator<T, E extends Throwable> {
+
+  /**
+   * Returns {@code true} if the iteration has more elements.
+   *
+   * @return {@code true} if the iteration has more elements
+   * @throws E if iterator threw exception
+   */
+  boolean hasNext() throws E;
+
+  /**
+   * Returns the next element in the iteration.
+   *
+   * @return the next element
+   * @throws E                      if iterator threw exception
+   * @throws NoSuchElementException if the iteration has no more elements
+   */
+  T next() throws E;
+
+  /**
+   * Releases resources of this iterator. Does nothing by default.
+   *
+   * @throws E if iterator threw exception
+   */
+  default void close() throws E {
+  }
+
+  /**
+   * Returns this iterator as an unchecked iterator.
+   *
+   * @return unchecked iterator
+   */
+  @SuppressWarnings("unchecked")
+  default ThIterator<T, RuntimeException> asUnchecked() {
+    return (ThIterator<T, RuntimeException>) this;
+  }
+
+  /**
+   * Returns this iterator as an unchecked {@link Iterator}.
+   *
+   * @return iterator
+   */
+  default Iterator<T> asIterator() {
+    final ThIterator<T, RuntimeException> unchecked = this.asUnchecked();
+    return new Iterator<T>() {
+      @Override
+      public boolean hasNext() {
+        return unchecked.hasNext();
+      }
+
+      @Override
+      public T next() {
+        return unchecked.next();
+      }
+    };
+  }
+
+  /**
+   * Returns this iterator as an unchecked ordered {@link Spliterator}. The spliterator splits off sized batches of
+   * {@code batchSize} elements, so a stream based on the spliterator can be processed in parallel.
+   *
+   * @param batchSize the number of elements in each split
+   * @return spliterator
+   * @throws IllegalArgumentException if {@code batchSize} arg is not positive
+   */
+  default Spliterator<T> asSpliterator(final int batchSize) {
+    if (batchSize < 1) { throw new IllegalArgumentException("batchSize arg is not positive"); }
+    return new ThIteratorSpliterator<>(this.asUnchecked(), batchSize);
+  }
+
+  /**
+   * Returns sequential unchecked stream of the elements of this iterator. Closing the stream closes this iterator.
+   *
+   * @return stream
+   */
+  default Stream<T> stream() {
+    final ThIterator<T, RuntimeException> unchecked = this.asUnchecked();
+    return StreamSupport.stream(this.asSpliterator(1024), false).onClose(unchecked::close);
+  }
+
+  /**
+   * Returns iterator that fetches up to {@code depth} elements of this iterator ahead on the background thread of
+   * the shared executor. On Java 21+ it is a virtual thread.
+   *
+   * @param depth the max number of prefetched elements
+   * @return prefetching iterator
+   * @throws IllegalArgumentException if {@code depth} arg is not positive
+   * @see #prefetching(int, Executor)
+   */
+  default ThIterator<T, E> prefetching(final int depth) {
+    return this.prefetching(depth, SharedExecutor.get());
+  }
+
+  /**
+   * Returns iterator that fetches up to {@code depth} elements of this iterator ahead on the background thread of
+   * the given executor while the consumer processes the previous elements. Exceptions of this iterator are rethrown
+   * by the returned iterator unchanged in the same position.
+   * <p>
+   * The returned iterator {@link #close()} method stops prefetching, waits for the background fetch to finish and
+   * closes this iterator. This iterator must not be used directly after the call of this method.
+   *
+   * @param depth    the max number of prefetched elements
+   * @param executor the executor
+   * @return prefetching iterator
+   * @throws NullPointerException     if {@code executor} arg is null
+   * @throws IllegalArgumentException if {@code depth} arg is not positive
+   */
+  default ThIterator<T, E> prefetching(final int depth,
+                                       final Executor executor) {
+    if (executor == null) { throw new NullPointerException("executor arg is null"); }
+    if (depth < 1) { throw new IllegalArgumentException("depth arg is not positive"); }
+    return new PrefetchingThIterator<>(this, depth, executor);
+  }
+
+  /**
+   * Returns iterator over the elements returned by the given supplier until it returns {@code null}.
+   * <pre>{@code
+   * final BufferedReader reader = Files.newBufferedReader(path);
+   * final ThIterator<String, IOException> lines = ThIterator.of(reader::readLine, reader::close);
+   * }</pre>
+   *
+   * @param next  the next element supplier, returns {@code null} if there are no more elements
+   * @param close the close runnable
+   * @param <T>   the type of the elements
+   * @param <E>   the type of the throwing exception
+   * @return iterator
+   * @throws NullPointerException if {@code next} arg or {@code close} arg is null
+   */
+  static <T, E extends Throwable> ThIterator<T, E> of(final ThSupplier<? extends T, ? extends E> next,
+                                                      final ThRunnable<? extends E> close) {
+    if (next == null) { throw new NullPointerException("next arg is null"); }
+    if (close == null) { throw new NullPointerException("close arg is null"); }
+    return new ThIterator<T, E>() {
+      private T nextElement = null;
+
+      @Override
+      public boolean hasNext() throws E {
+        if (this.nextElement == null) {
+          this.nextElement = next.get();
+        }
+        return this.nextElement != null;
+      }
+
+      @Override
+      public T next() throws E {
+        if (!this.hasNext()) { throw new NoSuchElementException(); }
+        final T element = this.nextElement;
+        this.nextElement = null;
+        return element;
+      }
+
+      @Override
+      public void close() throws E {
+        close.run();
+      }
+    };
+  }
+
+  /**
+   * Returns unchecked iterator over the elements of the given iterator.
+   *
+   * @param iterator the iterator
+   * @param <T>      the type of the elements
+   * @return iterator
+   * @throws NullPointerException if {@code iterator} arg is null
+   */
+  static <T> ThIterator<T, RuntimeException> of(final Iterator<? extends T> iterator) {
+    if (iterator == null) { throw new NullPointerException("iterator arg is null"); }
+    return new ThIterator<T, RuntimeException>() {
+      @Override
+      public boolean hasNext() {
+        return iterator.hasNext();
+      }
+
+      @Override
+      public T next() {
+        return iterator.next();
+      }
+    };
+  }
+}
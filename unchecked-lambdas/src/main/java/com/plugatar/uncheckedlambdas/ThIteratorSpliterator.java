@@ -0,0 +1,80 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * Ordered {@link Spliterator} over unchecked {@link ThIterator} that splits off fixed size batches.
+ *
+ * @param <T> the type of the elements
+ */
+final class ThIteratorSpliterator<T> implements Spliterator<T> {
+  private final ThIterator<T, RuntimeException> iterator;
+  private final int batchSize;
+
+  /**
+   * Ctor.
+   *
+   * @param iterator  the iterator
+   * @param batchSize the number of elements in each split
+   */
+  ThIteratorSpliterator(final ThIterator<T, RuntimeException> iterator,
+                        final int batchSize) {
+    this.iterator = iterator;
+    this.batchSize = batchSize;
+  }
+
+  @Override
+  public boolean tryAdvance(final Consumer<? super T> action) {
+    if (action == null) { throw new NullPointerException("action arg is null"); }
+    if (this.iterator.hasNext()) {
+      action.accept(this.iterator.next());
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public void forEachRemaining(final Consumer<? super T> action) {
+    if (action == null) { throw new NullPointerException("action arg is null"); }
+    while (this.iterator.hasNext()) {
+      action.accept(this.iterator.next());
+    }
+  }
+
+  @Override
+  public Spliterator<T> trySplit() {
+    final Object[] batch = new Object[this.batchSize];
+    int size = 0;
+    while (size < batch.length && this.iterator.hasNext()) {
+      batch[size++] = this.iterator.next();
+    }
+    return size == 0 ? null : Spliterators.spliterator(batch, 0, size, Spliterator.ORDERED);
+  }
+
+  @Override
+  public long estimateSize() {
+    return Long.MAX_VALUE;
+  }
+
+  @Override
+  public int characteristics() {
+    return Spliterator.ORDERED;
+  }
+}
@@ -0,0 +1,363 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Utility class. Contains methods for adapting {@link Method}s and {@link MethodHandle}s to the lambda interfaces
+ * ({@link ThRunnable}, {@link ThSupplier}, {@link ThConsumer}, {@link ThBiConsumer}, {@link ThTriConsumer},
+ * {@link ThFunction}, {@link ThBiFunction} and {@link ThTriFunction}).
+ * <p>
+ * Adapters are spun by {@link LambdaMetafactory}, so they invoke the method directly without arguments arrays and
+ * rethrow the method exceptions unwrapped. If the method cannot be linked directly (for example the method is not
+ * accessible from this library on Java 8 or the handle is not a direct method handle) the adapter invokes the method
+ * handle, which also rethrows the exceptions unwrapped.
+ * <p>
+ * The {@link Method}s follow the reflection access rules: a method that is not accessible from this library has to
+ * be made accessible by {@link Method#setAccessible(boolean)} first, like for {@link Method#invoke(Object, Object...)}.
+ * <pre>{@code
+ * final Method method = Plugin.class.getMethod("process", String.class);
+ * final ThBiFunction<Plugin, String, Result, IOException> process = ThLambdas.fromMethod(method, ThBiFunction.class);
+ * final Result result = process.apply(plugin, "input");
+ * }</pre>
+ * An instance method takes the receiver as the first lambda argument.
+ */
+public final class ThLambdas {
+
+  /**
+   * This class lookup.
+   */
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  /**
+   * The {@code MethodHandles.privateLookupIn} method handle or null on Java 8.
+   */
+  private static final MethodHandle PRIVATE_LOOKUP_IN = privateLookupIn();
+
+  /**
+   * Lambda interfaces functional methods.
+   */
+  private static final Map<Class<?>, Sam> SAMS = sams();
+
+  /**
+   * Adapters cache per declaring class.
+   */
+  private static final ClassValue<ConcurrentMap<Map.Entry<Method, Class<?>>, Object>> CACHE = newCache();
+
+  /**
+   * Adapters cache per declaring class for the methods with suppressed access checks. {@link Method#equals(Object)}
+   * ignores the accessible flag, so these adapters are kept apart.
+   */
+  private static final ClassValue<ConcurrentMap<Map.Entry<Method, Class<?>>, Object>> ACCESSIBLE_CACHE = newCache();
+
+  /**
+   * Utility class ctor.
+   */
+  private ThLambdas() {
+  }
+
+  /**
+   * Returns the lambda of given type that invokes given method. Adapters are cached per method and lambda type. The
+   * method has to be accessible from this library or made accessible by {@link Method#setAccessible(boolean)}.
+   *
+   * @param method     the method
+   * @param lambdaType the lambda type, one of {@link ThRunnable}, {@link ThSupplier}, {@link ThConsumer},
+   *                   {@link ThBiConsumer}, {@link ThTriConsumer}, {@link ThFunction}, {@link ThBiFunction} or
+   *                   {@link ThTriFunction}
+   * @param <L>        the type of the lambda
+   * @return lambda
+   * @throws NullPointerException     if {@code method} arg or {@code lambdaType} arg is null
+   * @throws IllegalArgumentException if {@code lambdaType} arg is not supported, if the method parameters count
+   *                                  (including the receiver) does not match the lambda arguments count, if the
+   *                                  method is void and the lambda returns a result or if the method is not
+   *                                  accessible
+   */
+  public static <L> L fromMethod(final Method method,
+                                 final Class<L> lambdaType) {
+    if (method == null) { throw new NullPointerException("method arg is null"); }
+    if (lambdaType == null) { throw new NullPointerException("lambdaType arg is null"); }
+    final Sam sam = sam(lambdaType);
+    final boolean accessible = isAccessible(method);
+    final Object lambda = (accessible ? ACCESSIBLE_CACHE : CACHE).get(method.getDeclaringClass()).computeIfAbsent(
+      new AbstractMap.SimpleImmutableEntry<>(method, lambdaType),
+      key -> createFromMethod(method, accessible, sam)
+    );
+    return lambdaType.cast(lambda);
+  }
+
+  /**
+   * Returns the lambda of given type that invokes given method handle.
+   *
+   * @param handle     the method handle
+   * @param lambdaType the lambda type, one of {@link ThRunnable}, {@link ThSupplier}, {@link ThConsumer},
+   *                   {@link ThBiConsumer}, {@link ThTriConsumer}, {@link ThFunction}, {@link ThBiFunction} or
+   *                   {@link ThTriFunction}
+   * @param <L>        the type of the lambda
+   * @return lambda
+   * @throws NullPointerException     if {@code handle} arg or {@code lambdaType} arg is null
+   * @throws IllegalArgumentException if {@code lambdaType} arg is not supported, if the handle parameters count does
+   *                                  not match the lambda arguments count or if the handle is void and the lambda
+   *                                  returns a result
+   * @see #fromHandle(MethodHandles.Lookup, MethodHandle, Class)
+   */
+  public static <L> L fromHandle(final MethodHandle handle,
+                                 final Class<L> lambdaType) {
+    return fromHandle(LOOKUP, handle, lambdaType);
+  }
+
+  /**
+   * Returns the lambda of given type that invokes given method handle. The lookup is used as the caller for
+   * {@link LambdaMetafactory}, it should have private access to the class declaring the method (for example
+   * {@code MethodHandles.lookup()} of this class).
+   *
+   * @param lookup     the lookup
+   * @param handle     the method handle
+   * @param lambdaType the lambda type, one of {@link ThRunnable}, {@link ThSupplier}, {@link ThConsumer},
+   *                   {@link ThBiConsumer}, {@link ThTriConsumer}, {@link ThFunction}, {@link ThBiFunction} or
+   *                   {@link ThTriFunction}
+   * @param <L>        the type of the lambda
+   * @return lambda
+   * @throws NullPointerException     if {@code lookup} arg or {@code handle} arg or {@code lambdaType} arg is null
+   * @throws IllegalArgumentException if {@code lambdaType} arg is not supported, if the handle parameters count does
+   *                                  not match the lambda arguments count or if the handle is void and the lambda
+   *                                  returns a result
+   */
+  public static <L> L fromHandle(final MethodHandles.Lookup lookup,
+                                 final MethodHandle handle,
+                                 final Class<L> lambdaType) {
+    if (lookup == null) { throw new NullPointerException("lookup arg is null"); }
+    if (handle == null) { throw new NullPointerException("handle arg is null"); }
+    if (lambdaType == null) { throw new NullPointerException("lambdaType arg is null"); }
+    final Sam sam = sam(lambdaType);
+    checkType(handle.type(), sam);
+    Object lambda = null;
+    if (isDirectlyAccessible(lookup, handle)) {
+      lambda = spin(lookup, handle, sam);
+    }
+    if (lambda == null) {
+      lambda = adapter(handle, sam);
+    }
+    return lambdaType.cast(lambda);
+  }
+
+  private static Object createFromMethod(final Method method,
+                                         final boolean accessible,
+                                         final Sam sam) {
+    final MethodHandle handle;
+    try {
+      /* unreflect performs the access checks unless the method was made accessible */
+      handle = LOOKUP.unreflect(method);
+    } catch (final IllegalAccessException ex) {
+      throw new IllegalArgumentException("Method " + method + " is not accessible", ex);
+    }
+    checkType(handle.type(), sam);
+    final Class<?> declaringClass = method.getDeclaringClass();
+    Object lambda = null;
+    if (Modifier.isPublic(method.getModifiers())
+      && Modifier.isPublic(declaringClass.getModifiers())
+      && isVisible(declaringClass)) {
+      lambda = spin(LOOKUP, handle, sam);
+    } else if (accessible) {
+      final MethodHandles.Lookup privateLookup = privateLookup(declaringClass);
+      if (privateLookup != null) {
+        lambda = spin(privateLookup, handle, sam);
+      }
+    }
+    return lambda == null ? adapter(handle, sam) : lambda;
+  }
+
+  @SuppressWarnings("deprecation")
+  private static boolean isAccessible(final Method method) {
+    /* Method.canAccess is Java 9+ */
+    return method.isAccessible();
+  }
+
+  private static boolean isDirectlyAccessible(final MethodHandles.Lookup lookup,
+                                              final MethodHandle handle) {
+    try {
+      final Class<?> declaringClass = lookup.revealDirect(handle).getDeclaringClass();
+      return lookup != LOOKUP || isVisible(declaringClass);
+    } catch (final RuntimeException ex) {
+      return false;
+    }
+  }
+
+  private static boolean isVisible(final Class<?> type) {
+    try {
+      return Class.forName(type.getName(), false, ThLambdas.class.getClassLoader()) == type;
+    } catch (final ClassNotFoundException | LinkageError ex) {
+      return false;
+    }
+  }
+
+  private static Object spin(final MethodHandles.Lookup lookup,
+                             final MethodHandle handle,
+                             final Sam sam) {
+    MethodType instantiatedType = handle.type().wrap();
+    if (sam.type.returnType() == void.class) {
+      instantiatedType = instantiatedType.changeReturnType(void.class);
+    }
+    final CallSite callSite;
+    try {
+      callSite = LambdaMetafactory.metafactory(
+        lookup, sam.name, MethodType.methodType(sam.lambdaType), sam.type, handle, instantiatedType
+      );
+    } catch (final LambdaConversionException ex) {
+      /* the method cannot be linked directly, the method handle adapter is used */
+      return null;
+    }
+    try {
+      return callSite.getTarget().invoke();
+    } catch (final Error | RuntimeException ex) {
+      throw ex;
+    } catch (final Throwable ex) {
+      throw new IllegalStateException("Lambda instantiation failed", ex);
+    }
+  }
+
+  private static Object adapter(final MethodHandle handle,
+                                final Sam sam) {
+    final MethodHandle generic = sam.type.returnType() == void.class
+      ? handle.asType(handle.type().changeReturnType(void.class)).asType(sam.type)
+      : handle.asType(sam.type);
+    final Class<?> lambdaType = sam.lambdaType;
+    if (lambdaType == ThRunnable.class) {
+      return (ThRunnable<Throwable>) () -> generic.invokeExact();
+    } else if (lambdaType == ThSupplier.class) {
+      return (ThSupplier<Object, Throwable>) () -> (Object) generic.invokeExact();
+    } else if (lambdaType == ThConsumer.class) {
+      return (ThConsumer<Object, Throwable>) t -> generic.invokeExact(t);
+    } else if (lambdaType == ThBiConsumer.class) {
+      return (ThBiConsumer<Object, Object, Throwable>) (t, u) -> generic.invokeExact(t, u);
+    } else if (lambdaType == ThTriConsumer.class) {
+      return (ThTriConsumer<Object, Object, Object, Throwable>) (t, u, v) -> generic.invokeExact(t, u, v);
+    } else if (lambdaType == ThFunction.class) {
+      return (ThFunction<Object, Object, Throwable>) t -> (Object) generic.invokeExact(t);
+    } else if (lambdaType == ThBiFunction.class) {
+      return (ThBiFunction<Object, Object, Object, Throwable>) (t, u) -> (Object) generic.invokeExact(t, u);
+    } else {
+      return (ThTriFunction<Object, Object, Object, Object, Throwable>) (t, u, v) ->
+        (Object) generic.invokeExact(t, u, v);
+    }
+  }
+
+  private static void checkType(final MethodType type,
+                                final Sam sam) {
+    if (type.parameterCount() != sam.type.parameterCount()) {
+      throw new IllegalArgumentException("Method type " + type + " parameters count does not match "
+        + sam.lambdaType.getSimpleName() + " arguments count " + sam.type.parameterCount());
+    }
+    if (type.returnType() == void.class && sam.type.returnType() != void.class) {
+      throw new IllegalArgumentException("Method type " + type + " is void but "
+        + sam.lambdaType.getSimpleName() + " returns a result");
+    }
+  }
+
+  private static Sam sam(final Class<?> lambdaType) {
+    final Sam sam = SAMS.get(lambdaType);
+    if (sam == null) {
+      throw new IllegalArgumentException("Unsupported lambda type " + lambdaType.getName());
+    }
+    return sam;
+  }
+
+  private static MethodHandles.Lookup privateLookup(final Class<?> type) {
+    if (PRIVATE_LOOKUP_IN == null) {
+      return null;
+    }
+    try {
+      return (MethodHandles.Lookup) PRIVATE_LOOKUP_IN.invoke(type, LOOKUP);
+    } catch (final IllegalAccessException | SecurityException ex) {
+      /* the package of the class is not open to this library, the method handle adapter is used */
+      return null;
+    } catch (final Error | RuntimeException ex) {
+      throw ex;
+    } catch (final Throwable ex) {
+      throw new IllegalStateException("Private lookup failed", ex);
+    }
+  }
+
+  private static MethodHandle privateLookupIn() {
+    try {
+      return LOOKUP.findStatic(MethodHandles.class, "privateLookupIn",
+        MethodType.methodType(MethodHandles.Lookup.class, Class.class, MethodHandles.Lookup.class));
+    } catch (final ReflectiveOperationException ex) {
+      return null;
+    }
+  }
+
+  private static ClassValue<ConcurrentMap<Map.Entry<Method, Class<?>>, Object>> newCache() {
+    return new ClassValue<ConcurrentMap<Map.Entry<Method, Class<?>>, Object>>() {
+      @Override
+      protected ConcurrentMap<Map.Entry<Method, Class<?>>, Object> computeValue(final Class<?> type) {
+        return new ConcurrentHashMap<>();
+      }
+    };
+  }
+
+  private static Map<Class<?>, Sam> sams() {
+    final Map<Class<?>, Sam> sams = new HashMap<>();
+    sams.put(ThRunnable.class, new Sam(ThRunnable.class, "run", MethodType.methodType(void.class)));
+    sams.put(ThSupplier.class, new Sam(ThSupplier.class, "get", MethodType.genericMethodType(0)));
+    sams.put(ThConsumer.class, new Sam(ThConsumer.class, "accept",
+      MethodType.genericMethodType(1).changeReturnType(void.class)));
+    sams.put(ThBiConsumer.class, new Sam(ThBiConsumer.class, "accept",
+      MethodType.genericMethodType(2).changeReturnType(void.class)));
+    sams.put(ThTriConsumer.class, new Sam(ThTriConsumer.class, "accept",
+      MethodType.genericMethodType(3).changeReturnType(void.class)));
+    sams.put(ThFunction.class, new Sam(ThFunction.class, "apply", MethodType.genericMethodType(1)));
+    sams.put(ThBiFunction.class, new Sam(ThBiFunction.class, "apply", MethodType.genericMethodType(2)));
+    sams.put(ThTriFunction.class, new Sam(ThTriFunction.class, "apply", MethodType.genericMethodType(3)));
+    return sams;
+  }
+
+  /**
+   * Lambda interface functional method.
+   */
+  private static final class Sam {
+    private final Class<?> lambdaType;
+    private final String name;
+    private final MethodType type;
+
+    /**
+     * Ctor.
+     *
+     * @param lambdaType the lambda interface
+     * @param name       the functional method name
+     * @param type       the functional method erased type
+     */
+    private Sam(final Class<?> lambdaType,
+                final String name,
+                final MethodType type) {
+      this.lambdaType = lambdaType;
+      this.name = name;
+      this.type = type;
+    }
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timer wheel driven by a single daemon thread.
+ * <p>
+ * New timeouts are queued into the lock-free inbox and moved to the wheel buckets by the wheel thread, so buckets
+ * are accessed by the wheel thread only. The wheel thread parks without timeout while there are no timeouts. Tasks
+ * are executed on the wheel thread and must be short, tasks exceptions are ignored.
+ */
+final class TimerWheel {
+
+  /**
+   * The shared timer wheel instance with 1 millisecond tick.
+   */
+  private static final TimerWheel SHARED = new TimerWheel(TimeUnit.MILLISECONDS.toNanos(1L), 512);
+
+  private final long tickNanos;
+  private final List<Timeout>[] buckets;
+  private final int mask;
+  private final ConcurrentLinkedQueue<Timeout> inbox;
+  private final AtomicInteger pending;
+  private final long startNanos;
+  private final Thread thread;
+  private volatile boolean sleeping;
+
+  /**
+   * Ctor.
+   *
+   * @param tickNanos the tick duration in nanoseconds
+   * @param wheelSize the number of buckets, power of 2
+   */
+  @SuppressWarnings("unchecked")
+  TimerWheel(final long tickNanos,
+             final int wheelSize) {
+    this.tickNanos = tickNanos;
+    this.buckets = new List[wheelSize];
+    for (int idx = 0; idx < wheelSize; idx++) {
+      this.buckets[idx] = new ArrayList<>();
+    }
+    this.mask = wheelSize - 1;
+    this.inbox = new ConcurrentLinkedQueue<>();
+    this.pending = new AtomicInteger();
+    this.startNanos = System.nanoTime();
+    this.sleeping = false;
+    this.thread = new Thread(this::work, "unchecked-lambdas-timer");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * Returns the shared timer wheel.
+   *
+   * @return shared timer wheel
+   */
+  static TimerWheel shared() {
+    return SHARED;
+  }
+
+  /**
+   * Schedules given task. The task is executed not earlier than after given delay, rounded up to the tick duration.
+   *
+   * @param task       the task
+   * @param delayNanos the delay in nanoseconds
+   */
+  void schedule(final Runnable task,
+                final long delayNanos) {
+    this.inbox.add(new Timeout(task, System.nanoTime() + Math.max(delayNanos, 0L)));
+    this.pending.incrementAndGet();
+    if (this.sleeping) {
+      LockSupport.unpark(this.thread);
+    }
+  }
+
+  private void work() {
+    long tick = 0L;
+    while (true) {
+      if (this.pending.get() == 0) {
+        this.sleeping = true;
+        if (this.pending.get() == 0) {
+          LockSupport.park(this);
+        }
+        this.sleeping = false;
+        tick = Math.max(tick, (System.nanoTime() - this.startNanos) / this.tickNanos);
+        continue;
+      }
+      final long tickDeadline = this.startNanos + (tick + 1L) * this.tickNanos;
+      long now = System.nanoTime();
+      while (now - tickDeadline < 0L) {
+        LockSupport.parkNanos(this, tickDeadline - now);
+        now = System.nanoTime();
+      }
+      this.transferInbox(tick);
+      this.expire(this.buckets[(int) tick & this.mask]);
+      tick++;
+    }
+  }
+
+  private void transferInbox(final long tick) {
+    Timeout timeout;
+    while ((timeout = this.inbox.poll()) != null) {
+      final long deadlineTick = (timeout.deadlineNanos - this.startNanos + this.tickNanos - 1L) / this.tickNanos;
+      final long targetTick = Math.max(deadlineTick, tick);
+      timeout.rounds = (targetTick - tick) / this.buckets.length;
+      this.buckets[(int) targetTick & this.mask].add(timeout);
+    }
+  }
+
+  private void expire(final List<Timeout> bucket) {
+    int kept = 0;
+    for (int idx = 0; idx < bucket.size(); idx++) {
+      final Timeout timeout = bucket.get(idx);
+      if (timeout.rounds > 0L) {
+        timeout.rounds--;
+        bucket.set(kept++, timeout);
+        continue;
+      }
+      this.pending.decrementAndGet();
+      try {
+        timeout.task.run();
+      } catch (final Throwable ignored) {
+      }
+    }
+    for (int idx = bucket.size() - 1; idx >= kept; idx--) {
+      bucket.remove(idx);
+    }
+  }
+
+  /**
+   * Scheduled task.
+   */
+  private static final class Timeout {
+    private final Runnable task;
+    private final long deadlineNanos;
+    private long rounds;
+
+    /**
+     * Ctor.
+     *
+     * @param task          the task
+     * @param deadlineNanos the deadline
+     */
+    private Timeout(final Runnable task,
+                    final long deadlineNanos) {
+      this.task = task;
+      this.deadlineNanos = deadlineNanos;
+      this.rounds = 0L;
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the interface for the generation of an unchecked facade by the {@code unchecked-lambdas-processor}
+ * annotation processor.
+ * <pre>{@code
+ * @UncheckedFacade
+ * public interface StorageClient {
+ *   byte[] read(String key) throws IOException;
+ * }
+ *
+ * final StorageClientUnchecked client = StorageClientUnchecked.of(storageClient);
+ * final byte[] value = client.read("key"); // IOException is rethrown unchanged without declaration
+ * }</pre>
+ * The generated final class implements the interface, delegates all methods to the origin instance and declares no
+ * checked exceptions. The exceptions of the origin are rethrown unchanged like by the {@code asUnchecked()} lambdas.
+ * The generated methods contain no lambdas and allocate no objects.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface UncheckedFacade {
+
+  /**
+   * Returns the simple name of the generated class, the default name is the interface name with the
+   * {@code Unchecked} suffix.
+   *
+   * @return simple name of the generated class
+   */
+  String name() default "";
+}
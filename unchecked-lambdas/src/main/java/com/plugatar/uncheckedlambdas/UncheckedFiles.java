@@ -0,0 +1,353 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Utility class. File processing with {@link ThConsumer} and {@link ThFunction} lambdas.
+ * <pre>{@code
+ * final long newLines = UncheckedFiles.reduceMapped(path, 64 * 1024 * 1024, region -> {
+ *   long count = 0L;
+ *   while (region.hasRemaining()) {
+ *     if (region.get() == '\n') { count++; }
+ *   }
+ *   return count;
+ * }, Long::sum);
+ * }</pre>
+ * All methods close the file channel before return, including the case when the lambda threw exception. The chunk
+ * buffer of {@code forEachChunk} is reused for the next chunk, so the consumer must not keep references to it. The
+ * mapped regions are new read-only mappings for each region; there is no way to unmap them explicitly, so a mapping
+ * stays valid and keeps its address space and page cache pages until the buffer is garbage collected.
+ */
+public final class UncheckedFiles {
+
+  /**
+   * Default mapped region size for lines processing, 64 MB.
+   */
+  private static final int DEFAULT_LINES_REGION_SIZE = 64 * 1024 * 1024;
+
+  /**
+   * Utility class ctor.
+   */
+  private UncheckedFiles() {
+  }
+
+  /**
+   * Reads given file into a single direct buffer of {@code chunkSize} capacity and passes the buffer to given
+   * consumer for each chunk. Each chunk except the last one has exactly {@code chunkSize} remaining bytes.
+   *
+   * @param path      the file path
+   * @param chunkSize the chunk size in bytes
+   * @param consumer  the chunk consumer
+   * @param <E>       the type of the throwing exception
+   * @throws NullPointerException     if {@code path} arg or {@code consumer} arg is null
+   * @throws IllegalArgumentException if {@code chunkSize} arg is not positive
+   * @throws IOException              if an I/O error occurs
+   * @throws E                        if consumer threw exception
+   */
+  public static <E extends Throwable> void forEachChunk(final Path path,
+                                                       final int chunkSize,
+                                                       final ThConsumer<? super ByteBuffer, ? extends E> consumer)
+    throws IOException, E {
+    if (path == null) { throw new NullPointerException("path arg is null"); }
+    if (consumer == null) { throw new NullPointerException("consumer arg is null"); }
+    if (chunkSize < 1) { throw new IllegalArgumentException("chunkSize arg is not positive"); }
+    try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      final ByteBuffer buffer = ByteBuffer.allocateDirect(chunkSize);
+      boolean eof = false;
+      while (!eof) {
+        while (buffer.hasRemaining()) {
+          if (channel.read(buffer) < 0) {
+            eof = true;
+            break;
+          }
+        }
+        ((Buffer) buffer).flip();
+        if (buffer.hasRemaining()) {
+          consumer.accept(buffer);
+        }
+        ((Buffer) buffer).clear();
+      }
+    }
+  }
+
+  /**
+   * Maps given file into regions of {@code regionSize} bytes, applies given mapper to each region in the common
+   * fork-join pool and reduces the results with given reducer.
+   *
+   * @param path       the file path
+   * @param regionSize the region size in bytes
+   * @param mapper     the region mapper
+   * @param reducer    the results reducer
+   * @param <R>        the type of the result
+   * @param <E>        the type of the throwing exception
+   * @return reduced result
+   * @throws NullPointerException     if {@code path} arg or {@code mapper} arg or {@code reducer} arg is null
+   * @throws IllegalArgumentException if {@code regionSize} arg is not positive
+   * @throws IOException              if an I/O error occurs
+   * @throws E                        if mapper or reducer threw exception
+   * @see #reduceMapped(Path, int, ThFunction, ThBiFunction, ForkJoinPool)
+   */
+  public static <R, E extends Throwable> R reduceMapped(
+    final Path path,
+    final int regionSize,
+    final ThFunction<? super ByteBuffer, ? extends R, ? extends E> mapper,
+    final ThBiFunction<? super R, ? super R, ? extends R, ? extends E> reducer
+  ) throws IOException, E {
+    return reduceMapped(path, regionSize, mapper, reducer, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Maps given file into regions of {@code regionSize} bytes, applies given mapper to each region in given fork-join
+   * pool and reduces the results with given reducer.
+   * <p>
+   * The regions are split at the byte offsets, the last region might be shorter. The reducer is applied to the
+   * results of the adjacent regions in the file order. For an empty file the mapper is applied to an empty buffer.
+   * The first exception is rethrown unchanged, the regions not yet processed are skipped. Each region is mapped
+   * separately and is released by the garbage collector once the mapper no longer references it.
+   *
+   * @param path       the file path
+   * @param regionSize the region size in bytes
+   * @param mapper     the region mapper
+   * @param reducer    the results reducer
+   * @param pool       the fork-join pool
+   * @param <R>        the type of the result
+   * @param <E>        the type of the throwing exception
+   * @return reduced result
+   * @throws NullPointerException     if {@code path} arg or {@code mapper} arg or {@code reducer} arg or
+   *                                  {@code pool} arg is null
+   * @throws IllegalArgumentException if {@code regionSize} arg is not positive
+   * @throws IOException              if an I/O error occurs
+   * @throws E                        if mapper or reducer threw exception
+   */
+  @SuppressWarnings("unchecked")
+  public static <R, E extends Throwable> R reduceMapped(
+    final Path path,
+    final int regionSize,
+    final ThFunction<? super ByteBuffer, ? extends R, ? extends E> mapper,
+    final ThBiFunction<? super R, ? super R, ? extends R, ? extends E> reducer,
+    final ForkJoinPool pool
+  ) throws IOException, E {
+    if (path == null) { throw new NullPointerException("path arg is null"); }
+    if (mapper == null) { throw new NullPointerException("mapper arg is null"); }
+    if (reducer == null) { throw new NullPointerException("reducer arg is null"); }
+    if (pool == null) { throw new NullPointerException("pool arg is null"); }
+    if (regionSize < 1) { throw new IllegalArgumentException("regionSize arg is not positive"); }
+    try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      if (size == 0L) {
+        return mapper.apply(ByteBuffer.allocate(0));
+      }
+      final AtomicReference<Throwable> failure = new AtomicReference<>();
+      final R result = pool.invoke(new RegionTask<>(
+        channel, size, regionSize, mapper, reducer, failure, 0L, (size - 1L) / regionSize + 1L
+      ));
+      final Throwable exception = failure.get();
+      if (exception != null) {
+        throw (E) exception;
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Passes each line of given file to given consumer.
+   *
+   * @param path     the file path
+   * @param consumer the line consumer
+   * @param <E>      the type of the throwing exception
+   * @throws NullPointerException if {@code path} arg or {@code consumer} arg is null
+   * @throws IOException          if an I/O error occurs
+   * @throws E                    if consumer threw exception
+   * @see #forEachLine(Path, int, ThConsumer)
+   */
+  public static <E extends Throwable> void forEachLine(final Path path,
+                                                       final ThConsumer<? super ByteBuffer, ? extends E> consumer)
+    throws IOException, E {
+    forEachLine(path, DEFAULT_LINES_REGION_SIZE, consumer);
+  }
+
+  /**
+   * Maps given file into regions of up to {@code regionSize} bytes and passes each line to given consumer. The line
+   * is passed as a reused view of the mapped region positioned at the line bytes without the line terminator
+   * ({@code \n} or {@code \r\n}), so the lines are split without {@link String} allocations. The view is reused for
+   * the next line, so the consumer must not keep references to it. The region is grown if the line is longer than
+   * the region. Each region is mapped separately and is released by the garbage collector.
+   *
+   * @param path       the file path
+   * @param regionSize the region size in bytes
+   * @param consumer   the line consumer
+   * @param <E>        the type of the throwing exception
+   * @throws NullPointerException     if {@code path} arg or {@code consumer} arg is null
+   * @throws IllegalArgumentException if {@code regionSize} arg is not positive
+   * @throws IOException              if an I/O error occurs or the line is longer than {@link Integer#MAX_VALUE}
+   *                                  bytes
+   * @throws E                        if consumer threw exception
+   */
+  public static <E extends Throwable> void forEachLine(final Path path,
+                                                       final int regionSize,
+                                                       final ThConsumer<? super ByteBuffer, ? extends E> consumer)
+    throws IOException, E {
+    if (path == null) { throw new NullPointerException("path arg is null"); }
+    if (consumer == null) { throw new NullPointerException("consumer arg is null"); }
+    if (regionSize < 1) { throw new IllegalArgumentException("regionSize arg is not positive"); }
+    try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      long position = 0L;
+      long currentRegionSize = regionSize;
+      while (position < size) {
+        final long length = Math.min(currentRegionSize, size - position);
+        final MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        final boolean lastRegion = position + length == size;
+        final int lastNewLine = lastIndexOf(region, (int) length, (byte) '\n');
+        if (lastNewLine < 0 && !lastRegion) {
+          if (currentRegionSize == Integer.MAX_VALUE) { throw new IOException("Line is too long: " + path); }
+          currentRegionSize = Math.min(currentRegionSize * 2L, Integer.MAX_VALUE);
+          continue;
+        }
+        final int processed = lastRegion ? (int) length : lastNewLine + 1;
+        splitLines(region, processed, consumer);
+        position += processed;
+      }
+    }
+  }
+
+  private static int lastIndexOf(final ByteBuffer buffer,
+                                 final int limit,
+                                 final byte value) {
+    for (int idx = limit - 1; idx >= 0; idx--) {
+      if (buffer.get(idx) == value) {
+        return idx;
+      }
+    }
+    return -1;
+  }
+
+  private static <E extends Throwable> void splitLines(final ByteBuffer region,
+                                                       final int limit,
+                                                       final ThConsumer<? super ByteBuffer, ? extends E> consumer)
+    throws E {
+    final ByteBuffer line = region.duplicate();
+    int start = 0;
+    for (int idx = 0; idx < limit; idx++) {
+      if (region.get(idx) == '\n') {
+        acceptLine(region, line, start, idx, consumer);
+        start = idx + 1;
+      }
+    }
+    if (start < limit) {
+      acceptLine(region, line, start, limit, consumer);
+    }
+  }
+
+  private static <E extends Throwable> void acceptLine(final ByteBuffer region,
+                                                       final ByteBuffer line,
+                                                       final int start,
+                                                       final int end,
+                                                       final ThConsumer<? super ByteBuffer, ? extends E> consumer)
+    throws E {
+    final int lineEnd = end > start && region.get(end - 1) == '\r' ? end - 1 : end;
+    ((Buffer) line).limit(lineEnd);
+    ((Buffer) line).position(start);
+    consumer.accept(line);
+  }
+
+  /**
+   * Mapped regions task.
+   *
+   * @param <R> the type of the result
+   */
+  private static final class RegionTask<R> extends RecursiveTask<R> {
+    private static final long serialVersionUID = 1L;
+    private final transient FileChannel channel;
+    private final long size;
+    private final int regionSize;
+    private final transient ThFunction<? super ByteBuffer, ? extends R, ?> mapper;
+    private final transient ThBiFunction<? super R, ? super R, ? extends R, ?> reducer;
+    private final transient AtomicReference<Throwable> failure;
+    private final long from;
+    private final long to;
+
+    /**
+     * Ctor.
+     *
+     * @param channel    the file channel
+     * @param size       the file size
+     * @param regionSize the region size
+     * @param mapper     the region mapper
+     * @param reducer    the results reducer
+     * @param failure    the first failure holder
+     * @param from       the first region index, inclusive
+     * @param to         the last region index, exclusive
+     */
+    private RegionTask(final FileChannel channel,
+                       final long size,
+                       final int regionSize,
+                       final ThFunction<? super ByteBuffer, ? extends R, ?> mapper,
+                       final ThBiFunction<? super R, ? super R, ? extends R, ?> reducer,
+                       final AtomicReference<Throwable> failure,
+                       final long from,
+                       final long to) {
+      this.channel = channel;
+      this.size = size;
+      this.regionSize = regionSize;
+      this.mapper = mapper;
+      this.reducer = reducer;
+      this.failure = failure;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected R compute() {
+      if (this.failure.get() != null) { return null; }
+      try {
+        if (this.to - this.from == 1L) {
+          final long position = this.from * this.regionSize;
+          final long length = Math.min(this.regionSize, this.size - position);
+          return this.mapper.apply(this.channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+        }
+        final long middle = (this.from + this.to) >>> 1;
+        final RegionTask<R> left = this.subtask(this.from, middle);
+        left.fork();
+        final R right = this.subtask(middle, this.to).compute();
+        final R leftResult = left.join();
+        if (this.failure.get() != null) { return null; }
+        return this.reducer.apply(leftResult, right);
+      } catch (final Throwable ex) {
+        this.failure.compareAndSet(null, ex);
+        return null;
+      }
+    }
+
+    private RegionTask<R> subtask(final long subFrom,
+                                  final long subTo) {
+      return new RegionTask<>(
+        this.channel, this.size, this.regionSize, this.mapper, this.reducer, this.failure, subFrom, subTo
+      );
+    }
+  }
+}
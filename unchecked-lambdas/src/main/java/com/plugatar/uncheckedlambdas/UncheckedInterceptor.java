@@ -0,0 +1,49 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+/**
+ * Interceptor of {@link UncheckedLambdas} methods calls. Might be used for tracing, metrics or fault injection.
+ * <pre>{@code
+ * UncheckedInterceptors.register((lambda, invocation) -> {
+ *   final long start = System.nanoTime();
+ *   try {
+ *     return invocation.get();
+ *   } finally {
+ *     timer.record(System.nanoTime() - start);
+ *   }
+ * });
+ * }</pre>
+ *
+ * @see UncheckedInterceptors
+ */
+@FunctionalInterface
+public interface UncheckedInterceptor {
+
+  /**
+   * Intercepts the lambda performing.
+   *
+   * @param lambda     the performed lambda, one of {@link ThRunnable}, {@link ThConsumer}, {@link ThBiConsumer},
+   *                   {@link ThTriConsumer}, {@link ThSupplier}, {@link ThFunction}, {@link ThBiFunction} or
+   *                   {@link ThTriFunction}
+   * @param invocation the invocation of the lambda with the given arguments, returns the lambda result or
+   *                   {@code null} for runnables and consumers
+   * @return the result of the lambda performing
+   * @throws Throwable if interceptor or invocation threw exception, the exception is rethrown unchanged
+   */
+  Object intercept(Object lambda,
+                   ThSupplier<Object, Throwable> invocation) throws Throwable;
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MutableCallSite;
+import java.util.Arrays;
+
+/**
+ * Utility class. Registry of {@link UncheckedInterceptor}s applied to all {@link UncheckedLambdas} methods calls.
+ * <p>
+ * The current interceptor is kept as the constant target of a {@link MutableCallSite}, so the JIT compiler folds the
+ * interceptor check when no interceptor is registered and the calls cost the same as without the registry.
+ * Registering or unregistering an interceptor changes the call site target and deoptimizes the dependent compiled
+ * code.
+ * <p>
+ * Interceptors are applied in the registration order, the first registered interceptor is the outermost one.
+ */
+public final class UncheckedInterceptors {
+
+  /**
+   * Empty interceptors array.
+   */
+  private static final UncheckedInterceptor[] EMPTY = {};
+
+  /**
+   * The call site which target returns current composite interceptor or null.
+   */
+  private static final MutableCallSite SITE = new MutableCallSite(constant(null));
+
+  /**
+   * The invoker of the call site target.
+   */
+  private static final MethodHandle CURRENT = SITE.dynamicInvoker();
+
+  /**
+   * Registered interceptors. Guarded by the class lock.
+   */
+  private static UncheckedInterceptor[] registered = EMPTY;
+
+  /**
+   * Utility class ctor.
+   */
+  private UncheckedInterceptors() {
+  }
+
+  /**
+   * Registers given interceptor.
+   *
+   * @param interceptor the interceptor
+   * @throws NullPointerException if {@code interceptor} arg is null
+   */
+  public static synchronized void register(final UncheckedInterceptor interceptor) {
+    if (interceptor == null) { throw new NullPointerException("interceptor arg is null"); }
+    final UncheckedInterceptor[] newRegistered = Arrays.copyOf(registered, registered.length + 1);
+    newRegistered[registered.length] = interceptor;
+    update(newRegistered);
+  }
+
+  /**
+   * Unregisters given interceptor.
+   *
+   * @param interceptor the interceptor
+   * @return {@code true} if the interceptor was registered
+   * @throws NullPointerException if {@code interceptor} arg is null
+   */
+  public static synchronized boolean unregister(final UncheckedInterceptor interceptor) {
+    if (interceptor == null) { throw new NullPointerException("interceptor arg is null"); }
+    for (int idx = 0; idx < registered.length; idx++) {
+      if (registered[idx] == interceptor) {
+        final UncheckedInterceptor[] newRegistered = new UncheckedInterceptor[registered.length - 1];
+        System.arraycopy(registered, 0, newRegistered, 0, idx);
+        System.arraycopy(registered, idx + 1, newRegistered, idx, registered.length - idx - 1);
+        update(newRegistered);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Unregisters all interceptors.
+   */
+  public static synchronized void unregisterAll() {
+    update(EMPTY);
+  }
+
+  /**
+   * Returns the current composite interceptor or null if there are no registered interceptors.
+   *
+   * @return current interceptor or null
+   */
+  static UncheckedInterceptor current() {
+    try {
+      return (UncheckedInterceptor) CURRENT.invokeExact();
+    } catch (final Throwable ex) {
+      throw new AssertionError(ex);
+    }
+  }
+
+  /**
+   * Performs given invocation with given interceptor.
+   *
+   * @param interceptor the interceptor
+   * @param lambda      the lambda
+   * @param invocation  the lambda invocation
+   * @param <R>         the type of the result
+   * @return result
+   */
+  @SuppressWarnings("unchecked")
+  static <R> R intercept(final UncheckedInterceptor interceptor,
+                         final Object lambda,
+                         final ThSupplier<Object, Throwable> invocation) {
+    final ThSupplier<Object, Throwable> intercepted = () -> interceptor.intercept(lambda, invocation);
+    return (R) intercepted.asUnchecked().get();
+  }
+
+  private static void update(final UncheckedInterceptor[] newRegistered) {
+    registered = newRegistered;
+    SITE.setTarget(constant(composite(newRegistered)));
+    MutableCallSite.syncAll(new MutableCallSite[]{SITE});
+  }
+
+  private static UncheckedInterceptor composite(final UncheckedInterceptor[] interceptors) {
+    if (interceptors.length == 0) {
+      return null;
+    }
+    UncheckedInterceptor result = interceptors[interceptors.length - 1];
+    for (int idx = interceptors.length - 2; idx >= 0; idx--) {
+      final UncheckedInterceptor outer = interceptors[idx];
+      final UncheckedInterceptor inner = result;
+      result = (lambda, invocation) -> outer.intercept(lambda, () -> inner.intercept(lambda, invocation));
+    }
+    return result;
+  }
+
+  private static MethodHandle constant(final UncheckedInterceptor interceptor) {
+    return MethodHandles.constant(UncheckedInterceptor.class, interceptor);
+  }
+}
@@ -29,6 +29,7 @@ package com.plugatar.uncheckedlambdas;
  * <li>{@link #uncheckedRes(Object, Object, ThBiFunction)}</li>
  * <li>{@link #uncheckedRes(Object, Object, Object, ThTriFunction)}</li>
  * </ul>
+ * All methods calls are intercepted by interceptors registered in {@link UncheckedInterceptors}.
  */
 public final class UncheckedLambdas {
 
@@ -46,7 +47,15 @@ public final class UncheckedLambdas {
    */
   public static void unchecked(final ThRunnable<?> runnable) {
     if (runnable == null) { throw new NullPointerException("runnable arg is null"); }
-    runnable.asUnchecked().run();
+    final UncheckedInterceptor interceptor = UncheckedInterceptors.current();
+    if (interceptor == null) {
+      runnable.asUnchecked().run();
+    } else {
+      UncheckedInterceptors.intercept(interceptor, runnable, () -> {
+        runnable.run();
+        return null;
+      });
+    }
   }
 
   /**
@@ -60,7 +69,15 @@ public final class UncheckedLambdas {
   public static <T> void unchecked(final T t,
                                    final ThConsumer<? super T, ?> consumer) {
     if (consumer == null) { throw new NullPointerException("consumer arg is null"); }
-    consumer.asUnchecked().accept(t);
+    final UncheckedInterceptor interceptor = UncheckedInterceptors.current();
+    if (interceptor == null) {
+      consumer.asUnchecked().accept(t);
+    } else {
+      UncheckedInterceptors.intercept(interceptor, consumer, () -> {
+        consumer.accept(t);
+        return null;
+      });
+    }
   }
 
   /**
@@ -77,7 +94,15 @@ public final class UncheckedLambdas {
                                       final U u,
                                       final ThBiConsumer<? super T, ? super U, ?> biConsumer) {
     if (biConsumer == null) { throw new NullPointerException("biConsumer arg is null"); }
-    biConsumer.asUnchecked().accept(t, u);
+    final UncheckedInterceptor interceptor = UncheckedInterceptors.current();
+    if (interceptor == null) {
+      biConsumer.asUnchecked().accept(t, u);
+    } else {
+      UncheckedInterceptors.intercept(interceptor, biConsumer, () -> {
+        biConsumer.accept(t, u);
+        return null;
+      });
+    }
   }
 
   /**
@@ -97,7 +122,15 @@ public final class UncheckedLambdas {
                                          final V v,
                                          final ThTriConsumer<? super T, ? super U, ? super V, ?> triConsumer) {
     if (triConsumer == null) { throw new NullPointerException("triConsumer arg is null"); }
-    triConsumer.asUnchecked().accept(t, u, v);
+    final UncheckedInterceptor interceptor = UncheckedInterceptors.current();
+    if (interceptor == null) {
+      triConsumer.asUnchecked().accept(t, u, v);
+    } else {
+      UncheckedInterceptors.intercept(interceptor, triConsumer, () -> {
+        triConsumer.accept(t, u, v);
+        return null;
+      });
+    }
   }
 
   /**
@@ -110,7 +143,10 @@ public final class UncheckedLambdas {
    */
   public static <R> R uncheckedRes(final ThSupplier<? extends R, ?> supplier) {
     if (supplier == null) { throw new NullPointerException("supplier arg is null"); }
-    return supplier.asUnchecked().get();
+    final UncheckedInterceptor interceptor = UncheckedInterceptors.current();
+    return interceptor == null
+      ? supplier.asUnchecked().get()
+      : UncheckedInterceptors.intercept(interceptor, supplier, supplier::get);
   }
 
   /**
@@ -126,7 +162,10 @@ public final class UncheckedLambdas {
   public static <T, R> R uncheckedRes(final T t,
                                       final ThFunction<? super T, ? extends R, ?> function) {
     if (function == null) { throw new NullPointerException("function arg is null"); }
-    return function.asUnchecked().apply(t);
+    final UncheckedInterceptor interceptor = UncheckedInterceptors.current();
+    return interceptor == null
+      ? function.asUnchecked().apply(t)
+      : UncheckedInterceptors.intercept(interceptor, function, () -> function.apply(t));
   }
 
   /**
@@ -145,7 +184,10 @@ public final class UncheckedLambdas {
                                          final U u,
                                          final ThBiFunction<? super T, ? super U, ? extends R, ?> biFunction) {
     if (biFunction == null) { throw new NullPointerException("biFunction arg is null"); }
-    return biFunction.asUnchecked().apply(t, u);
+    final UncheckedInterceptor interceptor = UncheckedInterceptors.current();
+    return interceptor == null
+      ? biFunction.asUnchecked().apply(t, u)
+      : UncheckedInterceptors.intercept(interceptor, biFunction, () -> biFunction.apply(t, u));
   }
 
   /**
@@ -167,6 +209,9 @@ public final class UncheckedLambdas {
                                             final V v,
                                             final ThTriFunction<? super T, ? super U, ? super V, ? extends R, ?> triFunction) {
     if (triFunction == null) { throw new NullPointerException("triFunction arg is null"); }
-    return triFunction.asUnchecked().apply(t, u, v);
+    final UncheckedInterceptor interceptor = UncheckedInterceptors.current();
+    return interceptor == null
+      ? triFunction.asUnchecked().apply(t, u, v)
+      : UncheckedInterceptors.intercept(interceptor, triFunction, () -> triFunction.apply(t, u, v));
   }
 }
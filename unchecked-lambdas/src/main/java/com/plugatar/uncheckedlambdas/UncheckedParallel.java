@@ -0,0 +1,153 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+
+/**
+ * Utility class. Bounded concurrency parallel processing of the lazily consumed elements.
+ * <pre>{@code
+ * try (Stream<Page> pages = UncheckedParallel.mapOrdered(urls.iterator(), this::download, 16).stream()) {
+ *   pages.forEach(this::index);
+ * }
+ * }</pre>
+ */
+public final class UncheckedParallel {
+
+  /**
+   * Utility class ctor.
+   */
+  private UncheckedParallel() {
+  }
+
+  /**
+   * Returns iterator over the results of given function applied to the elements of given iterator on the shared
+   * executor threads. On Java 21+ it is a virtual thread per function call.
+   *
+   * @param iterator    the iterator
+   * @param function    the function
+   * @param concurrency the max number of function calls in flight
+   * @param <T>         the type of the elements
+   * @param <R>         the type of the results
+   * @param <E>         the type of the throwing exception
+   * @return iterator over the results in the iterator order
+   * @throws NullPointerException     if {@code iterator} arg or {@code function} arg is null
+   * @throws IllegalArgumentException if {@code concurrency} arg is not positive
+   * @see #mapOrdered(ThIterator, ThFunction, int, Executor)
+   */
+  public static <T, R, E extends Throwable> ThIterator<R, E> mapOrdered(
+    final Iterator<? extends T> iterator,
+    final ThFunction<? super T, ? extends R, ? extends E> function,
+    final int concurrency
+  ) {
+    return mapOrdered(iterator, function, concurrency, SharedExecutor.get());
+  }
+
+  /**
+   * Returns iterator over the results of given function applied to the elements of given iterator on the given
+   * executor threads.
+   *
+   * @param iterator    the iterator
+   * @param function    the function
+   * @param concurrency the max number of function calls in flight
+   * @param executor    the executor
+   * @param <T>         the type of the elements
+   * @param <R>         the type of the results
+   * @param <E>         the type of the throwing exception
+   * @return iterator over the results in the iterator order
+   * @throws NullPointerException     if {@code iterator} arg or {@code function} arg or {@code executor} arg is null
+   * @throws IllegalArgumentException if {@code concurrency} arg is not positive
+   * @see #mapOrdered(ThIterator, ThFunction, int, Executor)
+   */
+  public static <T, R, E extends Throwable> ThIterator<R, E> mapOrdered(
+    final Iterator<? extends T> iterator,
+    final ThFunction<? super T, ? extends R, ? extends E> function,
+    final int concurrency,
+    final Executor executor
+  ) {
+    if (iterator == null) { throw new NullPointerException("iterator arg is null"); }
+    return newIterator(ThIterator.<T>of(iterator), function, concurrency, executor);
+  }
+
+  /**
+   * Returns iterator over the results of given function applied to the elements of given iterator on the shared
+   * executor threads. On Java 21+ it is a virtual thread per function call.
+   *
+   * @param iterator    the iterator
+   * @param function    the function
+   * @param concurrency the max number of function calls in flight
+   * @param <T>         the type of the elements
+   * @param <R>         the type of the results
+   * @param <E>         the type of the throwing exception
+   * @return iterator over the results in the iterator order
+   * @throws NullPointerException     if {@code iterator} arg or {@code function} arg is null
+   * @throws IllegalArgumentException if {@code concurrency} arg is not positive
+   * @see #mapOrdered(ThIterator, ThFunction, int, Executor)
+   */
+  public static <T, R, E extends Throwable> ThIterator<R, E> mapOrdered(
+    final ThIterator<? extends T, ? extends E> iterator,
+    final ThFunction<? super T, ? extends R, ? extends E> function,
+    final int concurrency
+  ) {
+    return mapOrdered(iterator, function, concurrency, SharedExecutor.get());
+  }
+
+  /**
+   * Returns iterator over the results of given function applied to the elements of given iterator on the given
+   * executor threads.
+   * <p>
+   * The returned iterator is consumed lazily: it reads the elements of given iterator on the consumer thread and keeps
+   * at most {@code concurrency} function calls in flight. Completed results wait in the reorder window until all
+   * results of the previous elements are returned, so the window holds at most {@code concurrency} calls and results
+   * in total. The first exception in the iterator order is rethrown unchanged, the remaining calls are cancelled and
+   * the iteration ends. If the executor rejects the call, the call is performed on the consumer thread.
+   * <p>
+   * The returned iterator {@link ThIterator#close()} method cancels the calls in flight and closes given iterator.
+   *
+   * @param iterator    the iterator
+   * @param function    the function
+   * @param concurrency the max number of function calls in flight
+   * @param executor    the executor
+   * @param <T>         the type of the elements
+   * @param <R>         the type of the results
+   * @param <E>         the type of the throwing exception
+   * @return iterator over the results in the iterator order
+   * @throws NullPointerException     if {@code iterator} arg or {@code function} arg or {@code executor} arg is null
+   * @throws IllegalArgumentException if {@code concurrency} arg is not positive
+   */
+  public static <T, R, E extends Throwable> ThIterator<R, E> mapOrdered(
+    final ThIterator<? extends T, ? extends E> iterator,
+    final ThFunction<? super T, ? extends R, ? extends E> function,
+    final int concurrency,
+    final Executor executor
+  ) {
+    if (iterator == null) { throw new NullPointerException("iterator arg is null"); }
+    return newIterator(iterator, function, concurrency, executor);
+  }
+
+  private static <T, R, E extends Throwable> ThIterator<R, E> newIterator(
+    final ThIterator<? extends T, ?> iterator,
+    final ThFunction<? super T, ? extends R, ? extends E> function,
+    final int concurrency,
+    final Executor executor
+  ) {
+    if (function == null) { throw new NullPointerException("function arg is null"); }
+    if (executor == null) { throw new NullPointerException("executor arg is null"); }
+    if (concurrency < 1) { throw new IllegalArgumentException("concurrency arg is not positive"); }
+    return new OrderedParallelThIterator<>(iterator, function, concurrency, executor);
+  }
+}
@@ -0,0 +1,481 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Structured concurrency scope. Forks {@link ThSupplier} subtasks and joins them, the scope is intended to be used in
+ * a try-with-resources statement.
+ * <pre>{@code
+ * try (final UncheckedScope<Object, IOException> scope = UncheckedScope.open(Duration.ofSeconds(1))) {
+ *   final UncheckedScope.Subtask<User> user = scope.fork(() -> loadUser(id));
+ *   final UncheckedScope.Subtask<Order> order = scope.fork(() -> loadOrder(id));
+ *   scope.joinAll();
+ *   return new Response(user.get(), order.get());
+ * }
+ * }</pre>
+ * If any subtask fails all other subtasks are cancelled (interrupted) and the first exception is rethrown unchanged.
+ * Closing the scope cancels all unfinished subtasks and waits for them to complete, so no subtask outlives the scope.
+ * <p>
+ * By default, subtasks are performed on virtual threads on Java 21+ and on the shared pool of daemon threads on older
+ * Java versions. Subtasks are performed with the contexts of the registered {@link ContextCarrier}s captured by the
+ * {@link #fork(ThSupplier)} method.
+ * <p>
+ * If the scope is opened within a {@link Deadline} the join methods throw {@link TimeoutException} after the earlier
+ * of the deadline and the scope timeout.
+ * <p>
+ * The scope is not thread safe, all methods of the scope must be invoked by the thread that opened the scope.
+ *
+ * @param <R> the type of the subtasks results
+ * @param <E> the type of the subtasks exceptions
+ */
+public final class UncheckedScope<R, E extends Throwable> implements AutoCloseable {
+
+  /**
+   * Max scope timeout, about 146 years.
+   */
+  private static final long MAX_TIMEOUT_NANOS = Long.MAX_VALUE / 2L;
+
+  private final Executor executor;
+  private final boolean hasDeadline;
+  private final long deadlineNanos;
+  private final Thread owner;
+  private final List<SubtaskImpl<? extends R>> subtasks;
+  private final BlockingQueue<SubtaskImpl<? extends R>> completed;
+  private int joined;
+  private Throwable failure;
+  private boolean timedOut;
+  private boolean closed;
+
+  /**
+   * Ctor.
+   *
+   * @param executor the executor
+   * @param timeout  the timeout or null
+   */
+  private UncheckedScope(final Executor executor,
+                         final Duration timeout) {
+    this.executor = executor;
+    final Deadline current = Deadline.current();
+    final long timeoutDeadlineNanos = timeout == null ? 0L : System.nanoTime() + timeoutNanos(timeout);
+    if (current != null && (timeout == null || current.deadlineNanos() - timeoutDeadlineNanos < 0L)) {
+      this.hasDeadline = true;
+      this.deadlineNanos = current.deadlineNanos();
+    } else {
+      this.hasDeadline = timeout != null;
+      this.deadlineNanos = timeoutDeadlineNanos;
+    }
+    this.owner = Thread.currentThread();
+    this.subtasks = new ArrayList<>();
+    this.completed = new LinkedBlockingQueue<>();
+    this.joined = 0;
+    this.failure = null;
+    this.timedOut = false;
+    this.closed = false;
+  }
+
+  /**
+   * Opens new scope without deadline.
+   *
+   * @param <R> the type of the subtasks results
+   * @param <E> the type of the subtasks exceptions
+   * @return new scope
+   */
+  public static <R, E extends Throwable> UncheckedScope<R, E> open() {
+    return new UncheckedScope<>(SharedExecutor.get(), null);
+  }
+
+  /**
+   * Opens new scope with given deadline.
+   *
+   * @param timeout the time after which the join methods throw {@link TimeoutException}
+   * @param <R>     the type of the subtasks results
+   * @param <E>     the type of the subtasks exceptions
+   * @return new scope
+   * @throws NullPointerException if {@code timeout} arg is null
+   */
+  public static <R, E extends Throwable> UncheckedScope<R, E> open(final Duration timeout) {
+    if (timeout == null) { throw new NullPointerException("timeout arg is null"); }
+    return new UncheckedScope<>(SharedExecutor.get(), timeout);
+  }
+
+  /**
+   * Opens new scope without deadline that performs subtasks on the given executor.
+   *
+   * @param executor the executor
+   * @param <R>      the type of the subtasks results
+   * @param <E>      the type of the subtasks exceptions
+   * @return new scope
+   * @throws NullPointerException if {@code executor} arg is null
+   */
+  public static <R, E extends Throwable> UncheckedScope<R, E> open(final Executor executor) {
+    if (executor == null) { throw new NullPointerException("executor arg is null"); }
+    return new UncheckedScope<>(executor, null);
+  }
+
+  /**
+   * Opens new scope with given deadline that performs subtasks on the given executor.
+   *
+   * @param executor the executor
+   * @param timeout  the time after which the join methods throw {@link TimeoutException}
+   * @param <R>      the type of the subtasks results
+   * @param <E>      the type of the subtasks exceptions
+   * @return new scope
+   * @throws NullPointerException if {@code executor} arg or {@code timeout} arg is null
+   */
+  public static <R, E extends Throwable> UncheckedScope<R, E> open(final Executor executor,
+                                                                   final Duration timeout) {
+    if (executor == null) { throw new NullPointerException("executor arg is null"); }
+    if (timeout == null) { throw new NullPointerException("timeout arg is null"); }
+    return new UncheckedScope<>(executor, timeout);
+  }
+
+  /**
+   * Starts new subtask that performs given supplier.
+   *
+   * @param supplier the supplier
+   * @param <T>      the type of the subtask result
+   * @return subtask handle
+   * @throws NullPointerException if {@code supplier} arg is null
+   * @throws IllegalStateException if the scope is closed or the current thread is not the scope owner
+   */
+  public <T extends R> Subtask<T> fork(final ThSupplier<? extends T, ? extends E> supplier) {
+    if (supplier == null) { throw new NullPointerException("supplier arg is null"); }
+    this.ensureOwnerAndOpen();
+    final SubtaskImpl<T> subtask = new SubtaskImpl<>(ContextPropagation.wrapRes(supplier), this.completed);
+    this.subtasks.add(subtask);
+    try {
+      this.executor.execute(subtask);
+    } catch (final RejectedExecutionException ex) {
+      this.subtasks.remove(subtask);
+      throw ex;
+    }
+    return subtask;
+  }
+
+  /**
+   * Waits for all subtasks to complete successfully. If any subtask fails all other subtasks are cancelled and the
+   * exception of the first failed subtask is rethrown.
+   *
+   * @throws E                     if any subtask threw exception
+   * @throws InterruptedException  if the current thread was interrupted while waiting
+   * @throws TimeoutException      if the scope deadline was exceeded, all unfinished subtasks are cancelled; each
+   *                               next join throws this exception too
+   * @throws IllegalStateException if the scope is closed or the current thread is not the scope owner
+   */
+  public void joinAll() throws E, InterruptedException, TimeoutException {
+    this.ensureOwnerAndOpen();
+    this.rethrowTimeout();
+    this.rethrowFailure();
+    while (this.joined < this.subtasks.size()) {
+      final SubtaskImpl<? extends R> subtask = this.nextCompleted();
+      if (subtask.state == Subtask.State.FAILED) {
+        this.failure = subtask.exception;
+        this.cancelAll();
+        this.rethrowFailure();
+      }
+    }
+  }
+
+  /**
+   * Waits for the first subtask to complete successfully and returns its result, all other subtasks are cancelled. If
+   * all subtasks fail the exception of the first failed subtask is rethrown.
+   *
+   * @return the result of the first successful subtask
+   * @throws E                     if all subtasks threw exceptions
+   * @throws InterruptedException  if the current thread was interrupted while waiting
+   * @throws TimeoutException      if the scope deadline was exceeded, all unfinished subtasks are cancelled; each
+   *                               next join throws this exception too
+   * @throws IllegalStateException if no subtask was forked, if the scope is closed or the current thread is not the
+   *                               scope owner
+   */
+  public R joinFirstSuccess() throws E, InterruptedException, TimeoutException {
+    this.ensureOwnerAndOpen();
+    this.rethrowTimeout();
+    for (final SubtaskImpl<? extends R> subtask : this.subtasks) {
+      if (subtask.state == Subtask.State.SUCCESS) {
+        this.cancelAll();
+        return subtask.result;
+      }
+    }
+    while (this.joined < this.subtasks.size()) {
+      final SubtaskImpl<? extends R> subtask = this.nextCompleted();
+      if (subtask.state == Subtask.State.SUCCESS) {
+        this.cancelAll();
+        return subtask.result;
+      } else if (subtask.state == Subtask.State.FAILED && this.failure == null) {
+        this.failure = subtask.exception;
+      }
+    }
+    this.rethrowFailure();
+    throw new IllegalStateException("No subtask completed successfully");
+  }
+
+  /**
+   * Closes the scope. Cancels all unfinished subtasks and waits for them to complete.
+   *
+   * @throws IllegalStateException if the current thread is not the scope owner
+   */
+  @Override
+  public void close() {
+    if (this.closed) { return; }
+    this.ensureOwner();
+    this.closed = true;
+    this.cancelAll();
+    boolean interrupted = false;
+    for (final SubtaskImpl<? extends R> subtask : this.subtasks) {
+      while (true) {
+        try {
+          subtask.done.await();
+          break;
+        } catch (final InterruptedException ex) {
+          interrupted = true;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private SubtaskImpl<? extends R> nextCompleted() throws InterruptedException, TimeoutException {
+    final SubtaskImpl<? extends R> subtask;
+    if (this.hasDeadline) {
+      final long remaining = this.deadlineNanos - System.nanoTime();
+      subtask = remaining > 0L
+        ? this.completed.poll(remaining, TimeUnit.NANOSECONDS)
+        : this.completed.poll();
+      if (subtask == null) {
+        this.timedOut = true;
+        this.cancelAll();
+        throw new TimeoutException("Scope deadline exceeded");
+      }
+    } else {
+      subtask = this.completed.take();
+    }
+    this.joined++;
+    return subtask;
+  }
+
+  private void cancelAll() {
+    for (final SubtaskImpl<? extends R> subtask : this.subtasks) {
+      subtask.cancel();
+    }
+  }
+
+  private void rethrowTimeout() throws TimeoutException {
+    if (this.timedOut) {
+      throw new TimeoutException("Scope deadline exceeded");
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void rethrowFailure() throws E {
+    if (this.failure != null) {
+      throw (E) this.failure;
+    }
+  }
+
+  private void ensureOwner() {
+    if (Thread.currentThread() != this.owner) {
+      throw new IllegalStateException("Current thread is not the scope owner");
+    }
+  }
+
+  private void ensureOwnerAndOpen() {
+    this.ensureOwner();
+    if (this.closed) {
+      throw new IllegalStateException("Scope is closed");
+    }
+  }
+
+  private static long timeoutNanos(final Duration timeout) {
+    if (timeout.compareTo(Duration.ofNanos(MAX_TIMEOUT_NANOS)) > 0) {
+      return MAX_TIMEOUT_NANOS;
+    }
+    return timeout.isNegative() ? 0L : timeout.toNanos();
+  }
+
+  /**
+   * Forked subtask handle.
+   *
+   * @param <T> the type of the subtask result
+   */
+  public interface Subtask<T> {
+
+    /**
+     * Returns the subtask state.
+     *
+     * @return subtask state
+     */
+    State state();
+
+    /**
+     * Returns the subtask result.
+     *
+     * @return subtask result
+     * @throws IllegalStateException if the subtask is not completed successfully
+     */
+    T get();
+
+    /**
+     * Returns the subtask exception.
+     *
+     * @return subtask exception
+     * @throws IllegalStateException if the subtask is not failed
+     */
+    Throwable exception();
+
+    /**
+     * Subtask state.
+     */
+    enum State {
+
+      /**
+       * The subtask is not completed yet.
+       */
+      RUNNING,
+
+      /**
+       * The subtask completed successfully.
+       */
+      SUCCESS,
+
+      /**
+       * The subtask threw exception.
+       */
+      FAILED,
+
+      /**
+       * The subtask was cancelled.
+       */
+      CANCELLED
+    }
+  }
+
+  /**
+   * Default {@link Subtask} implementation.
+   *
+   * @param <T> the type of the subtask result
+   */
+  private static final class SubtaskImpl<T> implements Subtask<T>, Runnable {
+    private final ThSupplier<? extends T, ?> supplier;
+    private final BlockingQueue<? super SubtaskImpl<T>> completed;
+    private final CountDownLatch done;
+    private volatile State state;
+    private T result;
+    private Throwable exception;
+    private Thread runner;
+    private boolean runnerInterrupted;
+
+    /**
+     * Ctor.
+     *
+     * @param supplier  the supplier
+     * @param completed the queue of completed subtasks
+     */
+    private SubtaskImpl(final ThSupplier<? extends T, ?> supplier,
+                        final BlockingQueue<? super SubtaskImpl<T>> completed) {
+      this.supplier = supplier;
+      this.completed = completed;
+      this.done = new CountDownLatch(1);
+      this.state = State.RUNNING;
+      this.runnerInterrupted = false;
+    }
+
+    @Override
+    public void run() {
+      try {
+        final boolean wasInterrupted;
+        synchronized (this) {
+          if (this.state != State.RUNNING) { return; }
+          this.runner = Thread.currentThread();
+          wasInterrupted = this.runner.isInterrupted();
+        }
+        try {
+          final T value = this.supplier.asUnchecked().get();
+          this.complete(State.SUCCESS, value, null);
+        } catch (final Throwable ex) {
+          this.complete(State.FAILED, null, ex);
+        } finally {
+          final boolean cancelInterrupted;
+          synchronized (this) {
+            this.runner = null;
+            cancelInterrupted = this.runnerInterrupted;
+          }
+          /* clears only interrupt status set by the cancel method, the runner can be the scope owner */
+          if (cancelInterrupted && !wasInterrupted) {
+            Thread.interrupted();
+          }
+        }
+      } finally {
+        this.completed.add(this);
+        this.done.countDown();
+      }
+    }
+
+    private synchronized void complete(final State newState,
+                                       final T newResult,
+                                       final Throwable newException) {
+      if (this.state == State.RUNNING) {
+        this.result = newResult;
+        this.exception = newException;
+        this.state = newState;
+      }
+    }
+
+    private synchronized void cancel() {
+      if (this.state == State.RUNNING) {
+        this.state = State.CANCELLED;
+        if (this.runner != null) {
+          this.runnerInterrupted = true;
+          this.runner.interrupt();
+        }
+      }
+    }
+
+    @Override
+    public State state() {
+      return this.state;
+    }
+
+    @Override
+    public T get() {
+      if (this.state != State.SUCCESS) {
+        throw new IllegalStateException("Subtask is not completed successfully, state: " + this.state);
+      }
+      return this.result;
+    }
+
+    @Override
+    public Throwable exception() {
+      if (this.state != State.FAILED) {
+        throw new IllegalStateException("Subtask is not failed, state: " + this.state);
+      }
+      return this.exception;
+    }
+  }
+}
@@ -0,0 +1,378 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The asynchronous {@link ThConsumer} that publishes events into a preallocated multi-producer ring buffer. The ring
+ * buffer is drained by a dedicated daemon thread that passes events to the batch consumer in batches.
+ * <p>
+ * Publishing an event claims a sequence with a single CAS and stores the event reference into the ring buffer, no
+ * objects are allocated per event. The batch consumer receives the same reused list on each call, so the batch
+ * consumer must not keep a reference to the list. The batch consumer is never invoked concurrently.
+ * <p>
+ * Exceptions of the batch consumer thrown on the consumer thread are rethrown unchanged by the next {@link #flush()}
+ * or {@link #close()} method call. Both methods might be used as {@link ThRunnable}s, for example
+ * {@code writer::close}.
+ *
+ * @param <T> the type of the events
+ * @param <E> the type of the batch consumer exception
+ */
+public final class WriteBehindThConsumer<T, E extends Throwable> implements ThConsumer<T, E> {
+
+  /**
+   * Claim sequence bit marking the closed ring buffer.
+   */
+  private static final long CLOSED_BIT = 1L << 62;
+
+  /**
+   * Consumer threads counter.
+   */
+  private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+  private final ThConsumer<? super List<T>, ? extends E> batchConsumer;
+  private final int maxBatchSize;
+  private final WaitStrategy waitStrategy;
+  private final OverflowPolicy overflowPolicy;
+  private final Object[] entries;
+  private final int mask;
+  private final AtomicLongArray published;
+  private final AtomicLong claimed;
+  private final List<T> batch;
+  private final List<T> batchView;
+  private final Object batchLock;
+  private final AtomicLong droppedCount;
+  private final AtomicLong failureCount;
+  private final AtomicReference<Throwable> failure;
+  private final Thread consumerThread;
+  private volatile long consumed;
+  private volatile boolean consumerWaiting;
+
+  /**
+   * Ctor.
+   *
+   * @param batchConsumer  the batch consumer
+   * @param capacity       the ring buffer capacity, power of 2
+   * @param maxBatchSize   the max batch size
+   * @param waitStrategy   the consumer thread wait strategy
+   * @param overflowPolicy the overflow policy
+   */
+  private WriteBehindThConsumer(final ThConsumer<? super List<T>, ? extends E> batchConsumer,
+                                final int capacity,
+                                final int maxBatchSize,
+                                final WaitStrategy waitStrategy,
+                                final OverflowPolicy overflowPolicy) {
+    this.batchConsumer = batchConsumer;
+    this.maxBatchSize = maxBatchSize;
+    this.waitStrategy = waitStrategy;
+    this.overflowPolicy = overflowPolicy;
+    this.entries = new Object[capacity];
+    this.mask = capacity - 1;
+    this.published = new AtomicLongArray(capacity);
+    this.claimed = new AtomicLong();
+    this.batch = new ArrayList<>(maxBatchSize);
+    this.batchView = Collections.unmodifiableList(this.batch);
+    this.batchLock = new Object();
+    this.droppedCount = new AtomicLong();
+    this.failureCount = new AtomicLong();
+    this.failure = new AtomicReference<>();
+    this.consumerThread = new Thread(this::consume, "unchecked-lambdas-write-behind-" + THREAD_COUNTER.incrementAndGet());
+    this.consumerThread.setDaemon(true);
+    this.consumed = 0L;
+    this.consumerWaiting = false;
+  }
+
+  /**
+   * Returns new started write-behind consumer with batches of up to 256 events, {@link WaitStrategy#BLOCKING} wait
+   * strategy and {@link OverflowPolicy#BLOCK} overflow policy.
+   *
+   * @param batchConsumer the batch consumer
+   * @param capacity      the ring buffer capacity, rounded up to a power of 2
+   * @param <T>           the type of the events
+   * @param <E>           the type of the batch consumer exception
+   * @return new write-behind consumer
+   * @throws NullPointerException     if {@code batchConsumer} arg is null
+   * @throws IllegalArgumentException if {@code capacity} arg is not positive or greater than 2^30
+   */
+  public static <T, E extends Throwable> WriteBehindThConsumer<T, E> of(
+    final ThConsumer<? super List<T>, ? extends E> batchConsumer,
+    final int capacity
+  ) {
+    return of(batchConsumer, capacity, 256, WaitStrategy.BLOCKING, OverflowPolicy.BLOCK);
+  }
+
+  /**
+   * Returns new started write-behind consumer.
+   *
+   * @param batchConsumer  the batch consumer
+   * @param capacity       the ring buffer capacity, rounded up to a power of 2
+   * @param maxBatchSize   the max number of events in a batch
+   * @param waitStrategy   the consumer thread wait strategy
+   * @param overflowPolicy the policy for events published into the full ring buffer
+   * @param <T>            the type of the events
+   * @param <E>            the type of the batch consumer exception
+   * @return new write-behind consumer
+   * @throws NullPointerException     if {@code batchConsumer} arg or {@code waitStrategy} arg or
+   *                                  {@code overflowPolicy} arg is null
+   * @throws IllegalArgumentException if {@code capacity} arg is not positive or greater than 2^30 or if
+   *                                  {@code maxBatchSize} arg is not positive
+   */
+  public static <T, E extends Throwable> WriteBehindThConsumer<T, E> of(
+    final ThConsumer<? super List<T>, ? extends E> batchConsumer,
+    final int capacity,
+    final int maxBatchSize,
+    final WaitStrategy waitStrategy,
+    final OverflowPolicy overflowPolicy
+  ) {
+    if (batchConsumer == null) { throw new NullPointerException("batchConsumer arg is null"); }
+    if (waitStrategy == null) { throw new NullPointerException("waitStrategy arg is null"); }
+    if (overflowPolicy == null) { throw new NullPointerException("overflowPolicy arg is null"); }
+    if (capacity < 1 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("capacity arg is not in range [1, 2^30]");
+    }
+    if (maxBatchSize < 1) { throw new IllegalArgumentException("maxBatchSize arg is not positive"); }
+    final int powerOf2Capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    final WriteBehindThConsumer<T, E> consumer =
+      new WriteBehindThConsumer<>(batchConsumer, powerOf2Capacity, maxBatchSize, waitStrategy, overflowPolicy);
+    consumer.consumerThread.start();
+    return consumer;
+  }
+
+  /**
+   * Publishes given event.
+   *
+   * @param event the event
+   * @throws E                     if the ring buffer is full, the overflow policy is
+   *                               {@link OverflowPolicy#CALLER_RUNS} and the batch consumer threw exception
+   * @throws IllegalStateException if this consumer is closed
+   */
+  @Override
+  public void accept(final T event) throws E {
+    while (true) {
+      final long current = this.claimed.get();
+      if ((current & CLOSED_BIT) != 0L) { throw new IllegalStateException("Consumer is closed"); }
+      if (current - this.consumed >= this.entries.length) {
+        if (this.overflowPolicy == OverflowPolicy.DROP) {
+          this.droppedCount.incrementAndGet();
+          return;
+        } else if (this.overflowPolicy == OverflowPolicy.CALLER_RUNS) {
+          synchronized (this.batchLock) {
+            this.batchConsumer.accept(Collections.singletonList(event));
+          }
+          return;
+        }
+        if (!this.consumerThread.isAlive()) { throw new IllegalStateException("Consumer thread is terminated"); }
+        this.wakeUpConsumer();
+        LockSupport.parkNanos(1_000L);
+        continue;
+      }
+      if (this.claimed.compareAndSet(current, current + 1L)) {
+        final int index = (int) current & this.mask;
+        this.entries[index] = event;
+        this.published.set(index, current + 1L);
+        this.wakeUpConsumer();
+        return;
+      }
+    }
+  }
+
+  /**
+   * Waits until all events published before this method call are passed to the batch consumer.
+   *
+   * @throws E if the batch consumer threw exception since the last flush or close
+   */
+  public void flush() throws E {
+    final long target = this.claimed.get() & ~CLOSED_BIT;
+    while (this.consumed < target && this.consumerThread.isAlive()) {
+      this.wakeUpConsumer();
+      LockSupport.parkNanos(10_000L);
+    }
+    this.rethrowFailure();
+  }
+
+  /**
+   * Closes this consumer. Passes all published events to the batch consumer and stops the consumer thread. Events
+   * can't be published after this method call.
+   *
+   * @throws E if the batch consumer threw exception since the last flush or close
+   */
+  public void close() throws E {
+    while (true) {
+      final long current = this.claimed.get();
+      if ((current & CLOSED_BIT) != 0L || this.claimed.compareAndSet(current, current | CLOSED_BIT)) { break; }
+    }
+    LockSupport.unpark(this.consumerThread);
+    boolean interrupted = false;
+    while (this.consumerThread.isAlive()) {
+      try {
+        this.consumerThread.join();
+      } catch (final InterruptedException ex) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    this.rethrowFailure();
+  }
+
+  /**
+   * Returns the number of events dropped by the {@link OverflowPolicy#DROP} overflow policy.
+   *
+   * @return number of dropped events
+   */
+  public long droppedCount() {
+    return this.droppedCount.get();
+  }
+
+  /**
+   * Returns the number of the batch consumer failures on the consumer thread.
+   *
+   * @return number of failures
+   */
+  public long failureCount() {
+    return this.failureCount.get();
+  }
+
+  private void consume() {
+    while (true) {
+      final long next = this.consumed;
+      int count = 0;
+      while (count < this.maxBatchSize) {
+        final long sequence = next + count;
+        final int index = (int) sequence & this.mask;
+        if (this.published.get(index) != sequence + 1L) { break; }
+        @SuppressWarnings("unchecked") final T event = (T) this.entries[index];
+        this.entries[index] = null;
+        this.batch.add(event);
+        count++;
+      }
+      if (count != 0) {
+        this.deliverBatch();
+        this.consumed = next + count;
+        continue;
+      }
+      final long claimedSequence = this.claimed.get();
+      if ((claimedSequence & CLOSED_BIT) != 0L && (claimedSequence & ~CLOSED_BIT) == next) {
+        return;
+      }
+      this.waitForEvents(next);
+    }
+  }
+
+  private void deliverBatch() {
+    try {
+      synchronized (this.batchLock) {
+        this.batchConsumer.asUnchecked().accept(this.batchView);
+      }
+    } catch (final Throwable ex) {
+      this.failureCount.incrementAndGet();
+      this.failure.compareAndSet(null, ex);
+    } finally {
+      this.batch.clear();
+    }
+  }
+
+  private void waitForEvents(final long next) {
+    switch (this.waitStrategy) {
+      case BLOCKING:
+        this.consumerWaiting = true;
+        if (this.published.get((int) next & this.mask) != next + 1L
+          && (this.claimed.get() & CLOSED_BIT) == 0L) {
+          LockSupport.park(this);
+        }
+        this.consumerWaiting = false;
+        break;
+      case SLEEPING:
+        LockSupport.parkNanos(100_000L);
+        break;
+      case YIELDING:
+        Thread.yield();
+        break;
+      default:
+        break;
+    }
+  }
+
+  private void wakeUpConsumer() {
+    if (this.consumerWaiting) {
+      LockSupport.unpark(this.consumerThread);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void rethrowFailure() throws E {
+    final Throwable ex = this.failure.getAndSet(null);
+    if (ex != null) {
+      throw (E) ex;
+    }
+  }
+
+  /**
+   * The consumer thread wait strategy for the empty ring buffer.
+   */
+  public enum WaitStrategy {
+
+    /**
+     * Parks the consumer thread until an event is published. Lowest CPU usage, producers unpark the consumer thread.
+     */
+    BLOCKING,
+
+    /**
+     * Parks the consumer thread for 100 microseconds.
+     */
+    SLEEPING,
+
+    /**
+     * Yields the consumer thread.
+     */
+    YIELDING,
+
+    /**
+     * Busy spins. Lowest latency, occupies a CPU core.
+     */
+    BUSY_SPIN
+  }
+
+  /**
+   * The policy for events published into the full ring buffer.
+   */
+  public enum OverflowPolicy {
+
+    /**
+     * Waits for free space in the ring buffer.
+     */
+    BLOCK,
+
+    /**
+     * Drops the event, see {@link WriteBehindThConsumer#droppedCount()}.
+     */
+    DROP,
+
+    /**
+     * Passes the event to the batch consumer on the caller thread, the event might be consumed out of order.
+     */
+    CALLER_RUNS
+  }
+}
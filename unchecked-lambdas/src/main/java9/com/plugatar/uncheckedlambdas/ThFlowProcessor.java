@@ -0,0 +1,367 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The {@link Flow.Processor} that transforms items with {@link ThFunction}. Requires Java 9+.
+ * <p>
+ * The processor requests at most {@code bufferSize} items from the upstream and replenishes the demand in batches
+ * when three quarters of the buffer were emitted to the downstream. Up to {@code parallelism} function invocations
+ * are performed concurrently on the executor, results are emitted either in the input order or in the completion
+ * order.
+ * <p>
+ * If the function throws an exception the upstream is cancelled and the original exception is passed to the
+ * downstream {@link Flow.Subscriber#onError(Throwable)} method. Function {@code null} results are reported as
+ * {@link NullPointerException}.
+ *
+ * @param <T> the type of the input items
+ * @param <R> the type of the output items
+ * @param <E> the type of the function exception
+ */
+public final class ThFlowProcessor<T, R, E extends Throwable> implements Flow.Processor<T, R> {
+  private final ThFunction<? super T, ? extends R, ? extends E> function;
+  private final Executor executor;
+  private final int parallelism;
+  private final boolean ordered;
+  private final int bufferSize;
+  private final int replenishLimit;
+  private final Queue<Slot<T, R>> inputs;
+  private final Queue<Slot<T, R>> outputs;
+  private final AtomicInteger inFlight;
+  private final AtomicInteger wip;
+  private final AtomicLong requested;
+  private final AtomicReference<Flow.Subscription> upstream;
+  private final AtomicReference<Flow.Subscriber<? super R>> downstream;
+  private final AtomicReference<Throwable> error;
+  private volatile boolean upstreamDone;
+  private volatile boolean cancelled;
+  private int consumed;
+
+  /**
+   * Ctor.
+   *
+   * @param function    the function
+   * @param executor    the executor
+   * @param parallelism the max number of concurrent function invocations
+   * @param ordered     the flag of emitting results in the input order
+   * @param bufferSize  the max number of items requested from the upstream and not emitted to the downstream
+   */
+  private ThFlowProcessor(final ThFunction<? super T, ? extends R, ? extends E> function,
+                          final Executor executor,
+                          final int parallelism,
+                          final boolean ordered,
+                          final int bufferSize) {
+    this.function = function;
+    this.executor = executor;
+    this.parallelism = parallelism;
+    this.ordered = ordered;
+    this.bufferSize = bufferSize;
+    this.replenishLimit = Math.max(1, bufferSize - (bufferSize >> 2));
+    this.inputs = new ConcurrentLinkedQueue<>();
+    this.outputs = new ConcurrentLinkedQueue<>();
+    this.inFlight = new AtomicInteger();
+    this.wip = new AtomicInteger();
+    this.requested = new AtomicLong();
+    this.upstream = new AtomicReference<>();
+    this.downstream = new AtomicReference<>();
+    this.error = new AtomicReference<>();
+    this.upstreamDone = false;
+    this.cancelled = false;
+    this.consumed = 0;
+  }
+
+  /**
+   * Returns new processor that performs given function sequentially on the calling thread with a buffer of 256
+   * items.
+   *
+   * @param function the function
+   * @param <T>      the type of the input items
+   * @param <R>      the type of the output items
+   * @param <E>      the type of the function exception
+   * @return new processor
+   * @throws NullPointerException if {@code function} arg is null
+   */
+  public static <T, R, E extends Throwable> ThFlowProcessor<T, R, E> of(
+    final ThFunction<? super T, ? extends R, ? extends E> function
+  ) {
+    if (function == null) { throw new NullPointerException("function arg is null"); }
+    return new ThFlowProcessor<>(function, Runnable::run, 1, true, 256);
+  }
+
+  /**
+   * Returns new processor.
+   *
+   * @param function    the function
+   * @param executor    the executor for function invocations
+   * @param parallelism the max number of concurrent function invocations
+   * @param ordered     {@code true} to emit results in the input order, {@code false} to emit results in the
+   *                    completion order
+   * @param bufferSize  the max number of items requested from the upstream and not emitted to the downstream
+   * @param <T>         the type of the input items
+   * @param <R>         the type of the output items
+   * @param <E>         the type of the function exception
+   * @return new processor
+   * @throws NullPointerException     if {@code function} arg or {@code executor} arg is null
+   * @throws IllegalArgumentException if {@code parallelism} arg or {@code bufferSize} arg is not positive or
+   *                                  {@code parallelism} arg is greater than {@code bufferSize} arg
+   */
+  public static <T, R, E extends Throwable> ThFlowProcessor<T, R, E> of(
+    final ThFunction<? super T, ? extends R, ? extends E> function,
+    final Executor executor,
+    final int parallelism,
+    final boolean ordered,
+    final int bufferSize
+  ) {
+    if (function == null) { throw new NullPointerException("function arg is null"); }
+    if (executor == null) { throw new NullPointerException("executor arg is null"); }
+    if (parallelism < 1) { throw new IllegalArgumentException("parallelism arg is not positive"); }
+    if (bufferSize < 1) { throw new IllegalArgumentException("bufferSize arg is not positive"); }
+    if (parallelism > bufferSize) {
+      throw new IllegalArgumentException("parallelism arg is greater than bufferSize arg");
+    }
+    return new ThFlowProcessor<>(function, executor, parallelism, ordered, bufferSize);
+  }
+
+  @Override
+  public void subscribe(final Flow.Subscriber<? super R> subscriber) {
+    if (subscriber == null) { throw new NullPointerException("subscriber arg is null"); }
+    if (this.downstream.compareAndSet(null, subscriber)) {
+      subscriber.onSubscribe(new DownstreamSubscription());
+      this.drain();
+    } else {
+      subscriber.onSubscribe(new NoopSubscription());
+      subscriber.onError(new IllegalStateException("Processor allows only a single subscriber"));
+    }
+  }
+
+  @Override
+  public void onSubscribe(final Flow.Subscription subscription) {
+    if (subscription == null) { throw new NullPointerException("subscription arg is null"); }
+    if (!this.upstream.compareAndSet(null, subscription)) {
+      subscription.cancel();
+      return;
+    }
+    if (this.cancelled) {
+      subscription.cancel();
+    } else {
+      subscription.request(this.bufferSize);
+    }
+  }
+
+  @Override
+  public void onNext(final T item) {
+    if (item == null) { throw new NullPointerException("item arg is null"); }
+    if (this.upstreamDone || this.cancelled) { return; }
+    final Slot<T, R> slot = new Slot<>(item);
+    if (this.ordered) {
+      this.outputs.offer(slot);
+    }
+    this.inputs.offer(slot);
+    this.dispatch();
+  }
+
+  @Override
+  public void onError(final Throwable throwable) {
+    if (throwable == null) { throw new NullPointerException("throwable arg is null"); }
+    this.error.compareAndSet(null, throwable);
+    this.upstreamDone = true;
+    this.drain();
+  }
+
+  @Override
+  public void onComplete() {
+    this.upstreamDone = true;
+    this.drain();
+  }
+
+  private void dispatch() {
+    while (true) {
+      final int current = this.inFlight.get();
+      if (current >= this.parallelism || this.inputs.isEmpty()) { return; }
+      if (!this.inFlight.compareAndSet(current, current + 1)) { continue; }
+      final Slot<T, R> slot = this.inputs.poll();
+      if (slot == null) {
+        this.inFlight.decrementAndGet();
+        continue;
+      }
+      try {
+        this.executor.execute(() -> this.process(slot));
+      } catch (final RuntimeException ex) {
+        this.inFlight.decrementAndGet();
+        this.fail(ex);
+        return;
+      }
+    }
+  }
+
+  private void process(final Slot<T, R> slot) {
+    if (!this.cancelled && this.error.get() == null) {
+      try {
+        final R result = this.function.asUnchecked().apply(slot.item);
+        if (result == null) {
+          this.fail(new NullPointerException("function result is null"));
+        } else {
+          slot.result = result;
+          if (!this.ordered) {
+            this.outputs.offer(slot);
+          }
+        }
+      } catch (final Throwable ex) {
+        this.fail(ex);
+      }
+    }
+    this.inFlight.decrementAndGet();
+    this.dispatch();
+    this.drain();
+  }
+
+  private void fail(final Throwable throwable) {
+    if (this.error.compareAndSet(null, throwable)) {
+      final Flow.Subscription subscription = this.upstream.get();
+      if (subscription != null) {
+        subscription.cancel();
+      }
+    }
+    this.drain();
+  }
+
+  private void drain() {
+    if (this.wip.getAndIncrement() != 0) { return; }
+    int missed = 1;
+    while (true) {
+      final Flow.Subscriber<? super R> subscriber = this.downstream.get();
+      if (subscriber != null) {
+        final long req = this.requested.get();
+        long emitted = 0L;
+        while (true) {
+          if (this.cancelled) {
+            this.clear();
+            return;
+          }
+          final Throwable ex = this.error.get();
+          if (ex != null) {
+            this.cancelled = true;
+            this.clear();
+            subscriber.onError(ex);
+            return;
+          }
+          final boolean done = this.upstreamDone && this.inputs.isEmpty() && this.inFlight.get() == 0;
+          final Slot<T, R> head = this.outputs.peek();
+          if (head == null || head.result == null) {
+            if (done && head == null) {
+              this.cancelled = true;
+              subscriber.onComplete();
+              return;
+            }
+            break;
+          }
+          if (emitted == req) { break; }
+          this.outputs.poll();
+          subscriber.onNext(head.result);
+          emitted++;
+          if (++this.consumed == this.replenishLimit) {
+            this.consumed = 0;
+            final Flow.Subscription subscription = this.upstream.get();
+            if (subscription != null) {
+              subscription.request(this.replenishLimit);
+            }
+          }
+        }
+        if (emitted != 0L && req != Long.MAX_VALUE) {
+          this.requested.addAndGet(-emitted);
+        }
+      }
+      missed = this.wip.addAndGet(-missed);
+      if (missed == 0) { return; }
+    }
+  }
+
+  private void clear() {
+    this.inputs.clear();
+    this.outputs.clear();
+  }
+
+  /**
+   * Item holder.
+   *
+   * @param <T> the type of the input item
+   * @param <R> the type of the output item
+   */
+  private static final class Slot<T, R> {
+    private final T item;
+    private volatile R result;
+
+    /**
+     * Ctor.
+     *
+     * @param item the input item
+     */
+    private Slot(final T item) {
+      this.item = item;
+    }
+  }
+
+  /**
+   * Downstream subscription.
+   */
+  private final class DownstreamSubscription implements Flow.Subscription {
+
+    @Override
+    public void request(final long n) {
+      if (n <= 0L) {
+        ThFlowProcessor.this.fail(new IllegalArgumentException("non-positive request: " + n));
+        return;
+      }
+      ThFlowProcessor.this.requested.getAndUpdate(current -> {
+        final long sum = current + n;
+        return sum < 0L ? Long.MAX_VALUE : sum;
+      });
+      ThFlowProcessor.this.drain();
+    }
+
+    @Override
+    public void cancel() {
+      ThFlowProcessor.this.cancelled = true;
+      final Flow.Subscription subscription = ThFlowProcessor.this.upstream.get();
+      if (subscription != null) {
+        subscription.cancel();
+      }
+      ThFlowProcessor.this.drain();
+    }
+  }
+
+  /**
+   * Subscription that does nothing.
+   */
+  private static final class NoopSubscription implements Flow.Subscription {
+
+    @Override
+    public void request(final long n) {
+    }
+
+    @Override
+    public void cancel() {
+    }
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * The {@link Flow.Subscriber} sink that performs {@link ThConsumer} on each item. Requires Java 9+.
+ * <p>
+ * The subscriber requests {@code bufferSize} items and replenishes the demand in batches when three quarters of the
+ * requested items were consumed. If the consumer throws an exception the subscription is cancelled and the
+ * {@link #completion()} future completes exceptionally with the original exception.
+ *
+ * @param <T> the type of the items
+ * @param <E> the type of the consumer exception
+ */
+public final class ThFlowSubscriber<T, E extends Throwable> implements Flow.Subscriber<T> {
+  private final ThConsumer<? super T, ? extends E> consumer;
+  private final int bufferSize;
+  private final int replenishLimit;
+  private final CompletableFuture<Void> completion;
+  private Flow.Subscription subscription;
+  private int consumed;
+
+  /**
+   * Ctor.
+   *
+   * @param consumer   the consumer
+   * @param bufferSize the number of requested items
+   */
+  private ThFlowSubscriber(final ThConsumer<? super T, ? extends E> consumer,
+                           final int bufferSize) {
+    this.consumer = consumer;
+    this.bufferSize = bufferSize;
+    this.replenishLimit = Math.max(1, bufferSize - (bufferSize >> 2));
+    this.completion = new CompletableFuture<>();
+    this.subscription = null;
+    this.consumed = 0;
+  }
+
+  /**
+   * Returns new subscriber with a buffer of 256 items.
+   *
+   * @param consumer the consumer
+   * @param <T>      the type of the items
+   * @param <E>      the type of the consumer exception
+   * @return new subscriber
+   * @throws NullPointerException if {@code consumer} arg is null
+   */
+  public static <T, E extends Throwable> ThFlowSubscriber<T, E> of(final ThConsumer<? super T, ? extends E> consumer) {
+    if (consumer == null) { throw new NullPointerException("consumer arg is null"); }
+    return new ThFlowSubscriber<>(consumer, 256);
+  }
+
+  /**
+   * Returns new subscriber.
+   *
+   * @param consumer   the consumer
+   * @param bufferSize the max number of requested and not consumed items
+   * @param <T>        the type of the items
+   * @param <E>        the type of the consumer exception
+   * @return new subscriber
+   * @throws NullPointerException     if {@code consumer} arg is null
+   * @throws IllegalArgumentException if {@code bufferSize} arg is not positive
+   */
+  public static <T, E extends Throwable> ThFlowSubscriber<T, E> of(final ThConsumer<? super T, ? extends E> consumer,
+                                                                   final int bufferSize) {
+    if (consumer == null) { throw new NullPointerException("consumer arg is null"); }
+    if (bufferSize < 1) { throw new IllegalArgumentException("bufferSize arg is not positive"); }
+    return new ThFlowSubscriber<>(consumer, bufferSize);
+  }
+
+  /**
+   * Returns the future that completes when the stream completes or fails.
+   *
+   * @return completion future
+   */
+  public CompletableFuture<Void> completion() {
+    return this.completion;
+  }
+
+  @Override
+  public void onSubscribe(final Flow.Subscription newSubscription) {
+    if (newSubscription == null) { throw new NullPointerException("newSubscription arg is null"); }
+    if (this.subscription != null || this.completion.isDone()) {
+      newSubscription.cancel();
+      return;
+    }
+    this.subscription = newSubscription;
+    newSubscription.request(this.bufferSize);
+  }
+
+  @Override
+  public void onNext(final T item) {
+    if (item == null) { throw new NullPointerException("item arg is null"); }
+    if (this.completion.isDone()) { return; }
+    try {
+      this.consumer.asUnchecked().accept(item);
+    } catch (final Throwable ex) {
+      this.subscription.cancel();
+      this.completion.completeExceptionally(ex);
+      return;
+    }
+    if (++this.consumed == this.replenishLimit) {
+      this.consumed = 0;
+      this.subscription.request(this.replenishLimit);
+    }
+  }
+
+  @Override
+  public void onError(final Throwable throwable) {
+    if (throwable == null) { throw new NullPointerException("throwable arg is null"); }
+    this.completion.completeExceptionally(throwable);
+  }
+
+  @Override
+  public void onComplete() {
+    this.completion.complete(null);
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link ChaosInjector}.
+ */
+final class ChaosInjectorTest {
+
+  @Test
+  void methodsThrowExceptionsForIncorrectArgs() {
+    final ChaosInjector chaos = ChaosInjector.create();
+    assertThatThrownBy(() -> chaos.activate(null))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> chaos.wrap((ThRunnable<RuntimeException>) null))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> ChaosInjector.Fault.builder().failure(1.5, IOException::new))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> ChaosInjector.Fault.builder()
+      .failure(0.6, IOException::new)
+      .failure(0.6, IOException::new)
+    ).isInstanceOf(IllegalArgumentException.class);
+    assertThatCode(() -> ChaosInjector.Fault.builder()
+      .failure(0.1, IOException::new)
+      .failure(0.2, IOException::new)
+      .failure(0.7, IOException::new)
+      .build()
+    ).doesNotThrowAnyException();
+    assertThatThrownBy(() -> ChaosInjector.Latency.uniform(Duration.ofMillis(2), Duration.ofMillis(1)))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> ChaosInjector.Latency.fixed(Duration.ofMillis(-1)))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void inactiveInjectorPerformsOriginLambdasUnchanged() throws Exception {
+    final IOException exception = new IOException();
+    final ChaosInjector chaos = ChaosInjector.create();
+    final ThFunction<Integer, Integer, IOException> function = chaos.wrapRes(value -> value + 1);
+    final ThRunnable<IOException> runnable = chaos.wrap(() -> {
+      throw exception;
+    });
+
+    assertThat(chaos.isActive()).isFalse();
+    assertThat(function.apply(1)).isEqualTo(2);
+    assertThatThrownBy(runnable::run)
+      .isSameAs(exception);
+    assertThat(chaos.injectedFailureCount()).isZero();
+    assertThat(chaos.injectedLatencyCount()).isZero();
+  }
+
+  @Test
+  void activeFaultThrowsConfiguredCheckedException() {
+    final IOException exception = new IOException("injected");
+    final ChaosInjector chaos = ChaosInjector.create();
+    final ThSupplier<String, RuntimeException> supplier = chaos.wrapRes(() -> "value");
+    chaos.activate(ChaosInjector.Fault.builder().failure(1.0, () -> exception).build());
+
+    assertThatThrownBy(supplier::get)
+      .isSameAs(exception);
+    assertThat(chaos.injectedFailureCount()).isEqualTo(1L);
+  }
+
+  @Test
+  void activeFaultThrowsNPEIfExceptionSupplierReturnsNull() {
+    final ChaosInjector chaos = ChaosInjector.create();
+    final ThSupplier<String, RuntimeException> supplier = chaos.wrapRes(() -> "value");
+    chaos.activate(ChaosInjector.Fault.builder().failure(1.0, () -> null).build());
+
+    assertThatThrownBy(supplier::get)
+      .isInstanceOf(NullPointerException.class)
+      .hasMessage("exception supplier returned null");
+    assertThat(chaos.injectedFailureCount()).isZero();
+  }
+
+  @Test
+  void faultCanBeSwitchedAtRuntime() throws Exception {
+    final ChaosInjector chaos = ChaosInjector.create();
+    final ThBiFunction<Integer, Integer, Integer, RuntimeException> function = chaos.wrapRes(Integer::sum);
+    chaos.activate(ChaosInjector.Fault.builder().failure(1.0, IOException::new).build());
+
+    assertThatThrownBy(() -> function.apply(1, 2))
+      .isInstanceOf(IOException.class);
+    chaos.deactivate();
+    assertThat(function.apply(1, 2)).isEqualTo(3);
+  }
+
+  @Test
+  void activeFaultInjectsLatency() throws Exception {
+    final ChaosInjector chaos = ChaosInjector.create();
+    final ThConsumer<String, RuntimeException> consumer = chaos.wrap(value -> { });
+    chaos.activate(ChaosInjector.Fault.builder()
+      .latency(1.0, ChaosInjector.Latency.uniform(Duration.ofMillis(20), Duration.ofMillis(30)))
+      .build());
+    final long start = System.nanoTime();
+    consumer.accept("value");
+
+    assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20));
+    assertThat(chaos.injectedLatencyCount()).isEqualTo(1L);
+  }
+
+  @Test
+  void exceptionsAreInjectedWithConfiguredProbabilities() {
+    final ChaosInjector chaos = ChaosInjector.create();
+    final ThRunnable<RuntimeException> runnable = chaos.wrap(() -> { });
+    chaos.activate(ChaosInjector.Fault.builder()
+      .failure(0.2, IOException::new)
+      .failure(0.3, IllegalStateException::new)
+      .latency(0.5, ChaosInjector.Latency.fixed(Duration.ZERO))
+      .build());
+    int ioExceptions = 0;
+    int stateExceptions = 0;
+    for (int idx = 0; idx < 10_000; idx++) {
+      try {
+        runnable.run();
+      } catch (final IllegalStateException ex) {
+        stateExceptions++;
+      } catch (final Throwable ex) {
+        ioExceptions++;
+      }
+    }
+
+    assertThat(ioExceptions).isBetween(1_700, 2_300);
+    assertThat(stateExceptions).isBetween(2_700, 3_300);
+    assertThat(chaos.injectedFailureCount()).isEqualTo(ioExceptions + stateExceptions);
+    assertThat(chaos.injectedLatencyCount()).isBetween(4_600L, 5_400L);
+  }
+}
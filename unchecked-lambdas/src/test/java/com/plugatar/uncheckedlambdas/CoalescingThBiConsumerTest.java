@@ -0,0 +1,103 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link CoalescingThBiConsumer}.
+ */
+final class CoalescingThBiConsumerTest {
+
+  @Test
+  void factoryMethodsThrowExceptionsForIncorrectArgs() {
+    assertThatThrownBy(() -> CoalescingThBiConsumer.coalesceLatest(null))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> CoalescingThBiConsumer.throttle((t, u) -> { }, Duration.ZERO))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> CoalescingThBiConsumer.debounce((t, u) -> { }, null))
+      .isInstanceOf(NullPointerException.class);
+  }
+
+  @Test
+  void coalesceLatestMethodInvokesOriginBiConsumerOnceWithLatestArgs() {
+    final List<Runnable> tasks = new ArrayList<>();
+    final List<String> events = new ArrayList<>();
+    final CoalescingThBiConsumer<String, Integer, IOException> consumer =
+      CoalescingThBiConsumer.coalesceLatest((t, u) -> events.add(t + u), tasks::add);
+    for (int idx = 1; idx <= 100; idx++) {
+      consumer.accept("key", idx);
+    }
+
+    assertThat(tasks).hasSize(1);
+    tasks.get(0).run();
+    assertThat(events).containsExactly("key100");
+    assertThat(consumer.invocationCount()).isEqualTo(1L);
+  }
+
+  @Test
+  void originBiConsumerExceptionIsExposed() {
+    final IOException exception = new IOException();
+    final CoalescingThBiConsumer<String, Integer, IOException> consumer =
+      CoalescingThBiConsumer.coalesceLatest((t, u) -> {
+        throw exception;
+      }, Runnable::run);
+    consumer.accept("key", 1);
+
+    assertThat(consumer.failureCount()).isEqualTo(1L);
+    assertThat(consumer.lastFailure()).isSameAs(exception);
+  }
+
+  @Test
+  void originBiConsumerGetsArgsPublishedTogetherByConcurrentPublishers() throws Exception {
+    final int publishers = 4;
+    final AtomicInteger mismatches = new AtomicInteger();
+    final CoalescingThBiConsumer<Integer, Integer, RuntimeException> consumer =
+      CoalescingThBiConsumer.coalesceLatest((t, u) -> {
+        if (!t.equals(u)) { mismatches.incrementAndGet(); }
+      }, SharedExecutor.get());
+    final Thread[] threads = new Thread[publishers];
+    for (int idx = 0; idx < publishers; idx++) {
+      final int offset = idx * 100_000;
+      threads[idx] = new Thread(() -> {
+        for (int value = offset; value < offset + 10_000; value++) {
+          consumer.accept(value, value);
+        }
+      });
+      threads[idx].start();
+    }
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+    consumer.accept(-1, -1);
+    final long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+    while (consumer.invocationCount() == 0L && System.nanoTime() - deadline < 0L) {
+      Thread.sleep(5);
+    }
+
+    assertThat(consumer.invocationCount()).isPositive();
+    assertThat(mismatches).hasValue(0);
+  }
+}
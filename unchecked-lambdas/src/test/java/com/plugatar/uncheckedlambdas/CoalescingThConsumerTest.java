@@ -0,0 +1,138 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link CoalescingThConsumer}.
+ */
+final class CoalescingThConsumerTest {
+
+  @Test
+  void factoryMethodsThrowExceptionsForIncorrectArgs() {
+    assertThatThrownBy(() -> CoalescingThConsumer.coalesceLatest(null))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> CoalescingThConsumer.throttle(value -> { }, null))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> CoalescingThConsumer.throttle(value -> { }, Duration.ZERO))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> CoalescingThConsumer.debounce(value -> { }, Duration.ofSeconds(-1)))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> CoalescingThConsumer.debounce(value -> { }, Duration.ofSeconds(1), null))
+      .isInstanceOf(NullPointerException.class);
+  }
+
+  @Test
+  void coalesceLatestMethodInvokesOriginConsumerOnceWithLatestEvent() {
+    final List<Runnable> tasks = new ArrayList<>();
+    final List<Integer> events = new ArrayList<>();
+    final CoalescingThConsumer<Integer, IOException> consumer =
+      CoalescingThConsumer.coalesceLatest(events::add, tasks::add);
+    for (int idx = 1; idx <= 1_000; idx++) {
+      consumer.accept(idx);
+    }
+
+    assertThat(tasks).hasSize(1);
+    tasks.get(0).run();
+    assertThat(events).containsExactly(1_000);
+    assertThat(consumer.invocationCount()).isEqualTo(1L);
+  }
+
+  @Test
+  void coalesceLatestMethodPassesNullEvent() {
+    final List<String> events = new ArrayList<>();
+    final CoalescingThConsumer<String, IOException> consumer =
+      CoalescingThConsumer.coalesceLatest(events::add, Runnable::run);
+    consumer.accept(null);
+
+    assertThat(events).containsExactly((String) null);
+  }
+
+  @Test
+  void throttleMethodInvokesOriginConsumerWithFirstAndLatestEvents() throws Exception {
+    final List<Integer> events = new CopyOnWriteArrayList<>();
+    final CoalescingThConsumer<Integer, IOException> consumer =
+      CoalescingThConsumer.throttle(events::add, Duration.ofMillis(200), Runnable::run);
+    for (int idx = 1; idx <= 1_000; idx++) {
+      consumer.accept(idx);
+    }
+
+    assertThat(events).containsExactly(1);
+    await(() -> events.size() == 2);
+    assertThat(events).containsExactly(1, 1_000);
+  }
+
+  @Test
+  void debounceMethodInvokesOriginConsumerAfterQuietPeriod() throws Exception {
+    final List<Integer> events = new CopyOnWriteArrayList<>();
+    final CoalescingThConsumer<Integer, IOException> consumer =
+      CoalescingThConsumer.debounce(events::add, Duration.ofMillis(50), Runnable::run);
+    for (int idx = 1; idx <= 1_000; idx++) {
+      consumer.accept(idx);
+    }
+    final List<Integer> eventsAfterBurst = new ArrayList<>(events);
+
+    assertThat(eventsAfterBurst).isEmpty();
+    await(() -> !events.isEmpty());
+    Thread.sleep(100);
+    assertThat(events).containsExactly(1_000);
+  }
+
+  @Test
+  void originConsumerExceptionIsExposed() {
+    final IOException exception = new IOException();
+    final CoalescingThConsumer<Integer, IOException> consumer = CoalescingThConsumer.coalesceLatest(value -> {
+      throw exception;
+    }, Runnable::run);
+    consumer.accept(1);
+
+    assertThat(consumer.failureCount()).isEqualTo(1L);
+    assertThat(consumer.lastFailure()).isSameAs(exception);
+  }
+
+  @Test
+  void debounceMethodDoesNotInvokeOriginConsumerOnTimerThreadIfExecutorRejectsDrain() throws Exception {
+    final List<Integer> events = new CopyOnWriteArrayList<>();
+    final CoalescingThConsumer<Integer, IOException> consumer = CoalescingThConsumer.debounce(events::add,
+      Duration.ofMillis(10), task -> { throw new RejectedExecutionException(); });
+    consumer.accept(1);
+
+    await(() -> consumer.failureCount() == 1L);
+    assertThat(consumer.lastFailure()).isInstanceOf(RejectedExecutionException.class);
+    assertThat(consumer.invocationCount()).isZero();
+    assertThat(events).isEmpty();
+  }
+
+  private static void await(final BooleanSupplier condition) throws InterruptedException {
+    final long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() - deadline > 0L) { throw new AssertionError("Condition is not met"); }
+      Thread.sleep(5);
+    }
+  }
+}
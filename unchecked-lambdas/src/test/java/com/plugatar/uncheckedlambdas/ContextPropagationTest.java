@@ -0,0 +1,170 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link ContextPropagation}.
+ */
+final class ContextPropagationTest {
+  private static final ThreadLocal<String> TENANT = new ThreadLocal<>();
+  private static final ContextCarrier<String> CARRIER = new ContextCarrier<String>() {
+    @Override
+    public String capture() {
+      return TENANT.get();
+    }
+
+    @Override
+    public String restore(final String context) {
+      final String previous = TENANT.get();
+      TENANT.set(context);
+      return previous;
+    }
+  };
+
+  @AfterEach
+  void unregisterCarriers() {
+    ContextPropagation.unregisterAll();
+    TENANT.remove();
+  }
+
+  @Test
+  void methodsThrowNPEForNullArgs() {
+    assertThatThrownBy(() -> ContextPropagation.register(null))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> ContextPropagation.unregister(null))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> ContextPropagation.wrap((ThRunnable<RuntimeException>) null))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> ContextPropagation.propagating(null))
+      .isInstanceOf(NullPointerException.class);
+  }
+
+  @Test
+  void wrapMethodReturnsSameLambdaWithoutCarriers() {
+    final ThRunnable<IOException> runnable = () -> { };
+    final ThSupplier<String, IOException> supplier = () -> "value";
+
+    assertThat(ContextPropagation.wrap(runnable)).isSameAs(runnable);
+    assertThat(ContextPropagation.wrapRes(supplier)).isSameAs(supplier);
+  }
+
+  @Test
+  void wrappedSupplierIsPerformedWithCapturedContext() throws Exception {
+    ContextPropagation.register(CARRIER);
+    TENANT.set("tenant");
+    final ThSupplier<String, RuntimeException> supplier = ContextPropagation.wrapRes(TENANT::get);
+    TENANT.remove();
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      assertThat(CompletableFuture.supplyAsync(supplier.asUnchecked()::get, executor).get()).isEqualTo("tenant");
+      assertThat(CompletableFuture.supplyAsync(TENANT::get, executor).get()).isNull();
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void wrappedLambdaRestoresReplacedContextAfterException() {
+    final IOException exception = new IOException();
+    ContextPropagation.register(CARRIER);
+    TENANT.set("captured");
+    final ThConsumer<String, IOException> consumer = ContextPropagation.wrap(value -> {
+      assertThat(TENANT.get()).isEqualTo("captured");
+      throw exception;
+    });
+    TENANT.set("current");
+
+    assertThatThrownBy(() -> consumer.accept("value"))
+      .isSameAs(exception);
+    assertThat(TENANT.get()).isEqualTo("current");
+  }
+
+  @Test
+  void contextsAreRestoredInReverseOrder() throws Exception {
+    final List<String> events = new ArrayList<>();
+    ContextPropagation.register(new RecordingCarrier("first", events));
+    ContextPropagation.register(new RecordingCarrier("second", events));
+    final ThFunction<Integer, Integer, IOException> function = ContextPropagation.wrapRes(value -> value + 1);
+
+    assertThat(function.apply(1)).isEqualTo(2);
+    assertThat(events).containsExactly(
+      "capture first", "capture second", "restore first", "restore second", "restore second", "restore first"
+    );
+  }
+
+  @Test
+  void propagatingExecutorPerformsTasksWithSubmitterContext() throws Exception {
+    ContextPropagation.register(CARRIER);
+    TENANT.set("tenant");
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      assertThat(CompletableFuture.supplyAsync(TENANT::get, ContextPropagation.propagating(executor)).get())
+        .isEqualTo("tenant");
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void uncheckedScopeSubtasksArePerformedWithForkContext() throws Exception {
+    ContextPropagation.register(CARRIER);
+    TENANT.set("tenant");
+    try (final UncheckedScope<String, RuntimeException> scope = UncheckedScope.open()) {
+      final UncheckedScope.Subtask<String> subtask = scope.fork(TENANT::get);
+      scope.joinAll();
+      assertThat(subtask.get()).isEqualTo("tenant");
+    }
+  }
+
+  /**
+   * Carrier recording calls.
+   */
+  private static final class RecordingCarrier implements ContextCarrier<String> {
+    private final String name;
+    private final List<String> events;
+
+    private RecordingCarrier(final String name,
+                             final List<String> events) {
+      this.name = name;
+      this.events = events;
+    }
+
+    @Override
+    public String capture() {
+      this.events.add("capture " + this.name);
+      return this.name;
+    }
+
+    @Override
+    public String restore(final String context) {
+      this.events.add("restore " + this.name);
+      return context;
+    }
+  }
+}
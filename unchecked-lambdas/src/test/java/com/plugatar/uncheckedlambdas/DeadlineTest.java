@@ -0,0 +1,138 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.plugatar.uncheckedlambdas.UncheckedLambdas.uncheckedRes;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link Deadline}.
+ */
+final class DeadlineTest {
+
+  @AfterEach
+  void unregisterAll() {
+    ContextPropagation.unregisterAll();
+    UncheckedInterceptors.unregisterAll();
+  }
+
+  @Test
+  void withinMethodThrowsNPEForNullArgs() {
+    assertThatThrownBy(() -> Deadline.within(null, () -> 1))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> Deadline.within(Duration.ofSeconds(1), null))
+      .isInstanceOf(NullPointerException.class);
+  }
+
+  @Test
+  void withinMethodInstallsDeadlineForSupplier() throws Exception {
+    assertThat(Deadline.current()).isNull();
+    assertThat(Deadline.remainingNanos()).isEqualTo(Long.MAX_VALUE);
+
+    final long remaining = Deadline.within(Duration.ofSeconds(10), Deadline::remainingNanos);
+
+    assertThat(remaining).isPositive().isLessThanOrEqualTo(TimeUnit.SECONDS.toNanos(10));
+    assertThat(Deadline.current()).isNull();
+  }
+
+  @Test
+  void nestedWithinMethodCanOnlyShortenDeadline() throws Exception {
+    final long remaining = Deadline.within(Duration.ofSeconds(1),
+      () -> Deadline.within(Duration.ofSeconds(100), Deadline::remainingNanos));
+
+    assertThat(remaining).isLessThanOrEqualTo(TimeUnit.SECONDS.toNanos(1));
+  }
+
+  @Test
+  void withinMethodRethrowsSupplierExceptionAndRestoresPreviousDeadline() throws Exception {
+    final IOException exception = new IOException();
+    Deadline.within(Duration.ofSeconds(10), () -> {
+      final Deadline outer = Deadline.current();
+      assertThatThrownBy(() -> Deadline.within(Duration.ofSeconds(1), () -> {
+        throw exception;
+      })).isSameAs(exception);
+      assertThat(Deadline.current()).isSameAs(outer);
+      return null;
+    });
+  }
+
+  @Test
+  void nestedCallsFailFastWhenBudgetIsExhausted() throws Exception {
+    assertThatThrownBy(() -> Deadline.within(Duration.ofMillis(10), () -> {
+      Thread.sleep(20);
+      Deadline.check();
+      return null;
+    })).isInstanceOf(DeadlineExceededException.class);
+    assertThatThrownBy(() -> Deadline.within(Duration.ofMillis(10), () -> {
+      Thread.sleep(20);
+      return Deadline.within(Duration.ofSeconds(1), () -> 1);
+    })).isInstanceOf(DeadlineExceededException.class);
+    assertThatThrownBy(() -> Deadline.within(Duration.ZERO, () -> 1))
+      .isInstanceOf(DeadlineExceededException.class);
+  }
+
+  @Test
+  void interceptorFailsUncheckedLambdasCallsAfterDeadline() throws Exception {
+    UncheckedInterceptors.register(Deadline.interceptor());
+
+    assertThat(Deadline.within(Duration.ofSeconds(1), () -> uncheckedRes(() -> 1))).isEqualTo(1);
+    assertThatThrownBy(() -> Deadline.within(Duration.ofMillis(10), () -> {
+      Thread.sleep(20);
+      return uncheckedRes(() -> 1);
+    })).isInstanceOf(DeadlineExceededException.class);
+  }
+
+  @Test
+  void carrierPropagatesDeadlineAcrossAsyncHandoff() throws Exception {
+    ContextPropagation.register(Deadline.carrier());
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final Long remaining = Deadline.within(Duration.ofSeconds(10),
+        () -> CompletableFuture.supplyAsync(Deadline::remainingNanos, ContextPropagation.propagating(executor)).get());
+
+      assertThat(remaining).isLessThanOrEqualTo(TimeUnit.SECONDS.toNanos(10));
+      assertThat(CompletableFuture.supplyAsync(Deadline::current, executor).get()).isNull();
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void uncheckedScopeJoinRespectsCurrentDeadline() {
+    assertThatThrownBy(() -> Deadline.within(Duration.ofMillis(50), () -> {
+      try (final UncheckedScope<Object, InterruptedException> scope = UncheckedScope.open()) {
+        scope.fork(() -> {
+          Thread.sleep(10_000);
+          return null;
+        });
+        scope.joinAll();
+      }
+      return null;
+    })).isInstanceOf(TimeoutException.class);
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link FallbackThSupplier}.
+ */
+final class FallbackThSupplierTest {
+
+  @Test
+  void factoryMethodsThrowExceptionsForIncorrectArgs() {
+    assertThatThrownBy(() -> FallbackThSupplier.of(null))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> FallbackThSupplier.adaptive(Collections.emptyList()))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> FallbackThSupplier.of(Arrays.asList(() -> 1, null)))
+      .isInstanceOf(NullPointerException.class);
+  }
+
+  @Test
+  void getMethodFallsBackToNextSourceInOrder() throws Exception {
+    final List<String> calls = new ArrayList<>();
+    final FallbackThSupplier<String, IOException> supplier = FallbackThSupplier.of(Arrays.asList(
+      () -> {
+        calls.add("cache");
+        throw new IOException();
+      },
+      () -> {
+        calls.add("replica");
+        return "replica value";
+      },
+      () -> {
+        calls.add("primary");
+        return "primary value";
+      }
+    ));
+
+    assertThat(supplier.get()).isEqualTo("replica value");
+    assertThat(calls).containsExactly("cache", "replica");
+    assertThat(supplier.stats().get(0).failureCount()).isEqualTo(1L);
+    assertThat(supplier.stats().get(1).successCount()).isEqualTo(1L);
+    assertThat(supplier.stats().get(2).successCount()).isZero();
+  }
+
+  @Test
+  void getMethodRethrowsFirstExceptionWithOthersSuppressed() {
+    final IOException first = new IOException("first");
+    final IOException second = new IOException("second");
+    final FallbackThSupplier<String, IOException> supplier = FallbackThSupplier.of(Arrays.asList(
+      () -> {
+        throw first;
+      },
+      () -> {
+        throw second;
+      }
+    ));
+
+    assertThatThrownBy(supplier::get)
+      .isSameAs(first)
+      .hasSuppressedException(second);
+  }
+
+  @Test
+  void getMethodDoesNotGrowSuppressedExceptionsOfRepeatedlyThrownException() {
+    final IOException first = new IOException("first");
+    final IOException second = new IOException("second");
+    final FallbackThSupplier<String, IOException> supplier = FallbackThSupplier.of(Arrays.asList(
+      () -> {
+        throw first;
+      },
+      () -> {
+        throw second;
+      },
+      () -> {
+        throw first;
+      }
+    ));
+
+    for (int idx = 0; idx < 3; idx++) {
+      assertThatThrownBy(supplier::get)
+        .isSameAs(first);
+    }
+    assertThat(first.getSuppressed()).containsExactly(second);
+    assertThat(second.getSuppressed()).isEmpty();
+  }
+
+  @Test
+  void getMethodDoesNotGrowSuppressedExceptionsOfCachedExceptionWithFreshOtherExceptions() {
+    final IOException cached = new IOException("cached");
+    final FallbackThSupplier<String, IOException> supplier = FallbackThSupplier.of(Arrays.asList(
+      () -> {
+        throw cached;
+      },
+      () -> {
+        throw new IOException("fresh");
+      }
+    ));
+
+    for (int idx = 0; idx < 3; idx++) {
+      assertThatThrownBy(supplier::get)
+        .isSameAs(cached);
+    }
+    assertThat(cached.getSuppressed()).hasSize(1);
+  }
+
+  @Test
+  void getMethodRethrowsErrorWithoutFallback() {
+    final AssertionError error = new AssertionError();
+    final AtomicBoolean secondCalled = new AtomicBoolean();
+    final FallbackThSupplier<String, RuntimeException> supplier = FallbackThSupplier.of(Arrays.asList(
+      () -> {
+        throw error;
+      },
+      () -> {
+        secondCalled.set(true);
+        return "value";
+      }
+    ));
+
+    assertThatThrownBy(supplier::get)
+      .isSameAs(error);
+    assertThat(secondCalled).isFalse();
+  }
+
+  @Test
+  void adaptiveModePrefersFasterSource() throws Exception {
+    final AtomicLong clock = new AtomicLong();
+    final FallbackThSupplier<String, RuntimeException> supplier = new FallbackThSupplier<>(Arrays.asList(
+      () -> {
+        clock.addAndGet(1_000_000L);
+        return "slow";
+      },
+      () -> {
+        clock.addAndGet(1_000L);
+        return "fast";
+      }
+    ), true, clock::get);
+    for (int idx = 0; idx < 200; idx++) {
+      supplier.get();
+    }
+
+    assertThat(supplier.order()).containsExactly(1, 0);
+    assertThat(supplier.get()).isEqualTo("fast");
+    assertThat(supplier.stats().get(1).latencyNanos()).isEqualTo(1_000L);
+    assertThat(supplier.stats().get(0).latencyNanos()).isEqualTo(1_000_000L);
+  }
+
+  @Test
+  void adaptiveModeDemotesFailingSourceAndProbesItLater() throws Exception {
+    final AtomicLong clock = new AtomicLong();
+    final AtomicBoolean broken = new AtomicBoolean(true);
+    final FallbackThSupplier<String, IOException> supplier = new FallbackThSupplier<>(Arrays.asList(
+      () -> {
+        clock.addAndGet(1_000L);
+        if (broken.get()) { throw new IOException(); }
+        return "fast";
+      },
+      () -> {
+        clock.addAndGet(100_000L);
+        return "slow";
+      }
+    ), true, clock::get);
+    for (int idx = 0; idx < 200; idx++) {
+      assertThat(supplier.get()).isEqualTo("slow");
+    }
+    assertThat(supplier.order()).containsExactly(1, 0);
+    final long failuresWhileDemoted = supplier.stats().get(0).failureCount();
+    assertThat(failuresWhileDemoted).isLessThan(100L);
+
+    broken.set(false);
+    for (int idx = 0; idx < 2_000; idx++) {
+      supplier.get();
+    }
+    assertThat(supplier.order()).containsExactly(0, 1);
+    assertThat(supplier.stats().get(0).successRate()).isGreaterThan(0.9);
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link KeyedSerialExecutor}.
+ */
+final class KeyedSerialExecutorTest {
+
+  @Test
+  void ofMethodThrowsExceptionsForIncorrectArgs() {
+    assertThatThrownBy(() -> KeyedSerialExecutor.of(1, 1, null, (key, ex) -> { }))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> KeyedSerialExecutor.of(1, 1, Runnable::run, null))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> KeyedSerialExecutor.of(0, 1, Runnable::run, (key, ex) -> { }))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> KeyedSerialExecutor.of(1, 0, Runnable::run, (key, ex) -> { }))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void submitMethodThrowsExceptionsForIncorrectArgs() {
+    final KeyedSerialExecutor<String> executor = KeyedSerialExecutor.of();
+
+    assertThatThrownBy(() -> executor.submit(null, 1, value -> { }))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> executor.submit("key", 1, (ThConsumer<Integer, RuntimeException>) null))
+      .isInstanceOf(NullPointerException.class);
+    executor.close();
+    assertThatThrownBy(() -> executor.submit("key", 1, value -> { }))
+      .isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void tasksOfSameKeyAreExecutedInSubmissionOrder() throws Exception {
+    final int keys = 100;
+    final int tasksPerKey = 2_000;
+    final Map<Integer, List<Integer>> results = new ConcurrentHashMap<>();
+    final ExecutorService pool = Executors.newFixedThreadPool(8);
+    final KeyedSerialExecutor<Integer> executor = KeyedSerialExecutor.of(16, 64, pool, (key, ex) -> { });
+    for (int idx = 0; idx < keys; idx++) {
+      results.put(idx, new ArrayList<>());
+    }
+    for (int task = 0; task < tasksPerKey; task++) {
+      for (int key = 0; key < keys; key++) {
+        executor.submit(key, task, (k, value) -> results.get(k).add(value));
+      }
+    }
+    executor.close();
+    pool.shutdown();
+
+    assertThat(results.values()).allSatisfy(list -> {
+      assertThat(list).hasSize(tasksPerKey);
+      for (int idx = 0; idx < tasksPerKey; idx++) {
+        assertThat(list.get(idx)).isEqualTo(idx);
+      }
+    });
+  }
+
+  @Test
+  void tasksOfSameKeyAreExecutedInSubmissionOrderForConcurrentProducers() throws Exception {
+    final int producers = 4;
+    final int tasksPerProducer = 20_000;
+    final Map<Integer, List<Integer>> results = new ConcurrentHashMap<>();
+    final ExecutorService pool = Executors.newFixedThreadPool(4);
+    final KeyedSerialExecutor<Integer> executor = KeyedSerialExecutor.of(8, 16, pool, (key, ex) -> { });
+    final ExecutorService producerPool = Executors.newFixedThreadPool(producers);
+    for (int producer = 0; producer < producers; producer++) {
+      final int key = producer;
+      results.put(key, new ArrayList<>());
+      producerPool.execute(() -> {
+        for (int idx = 0; idx < tasksPerProducer; idx++) {
+          try {
+            executor.submit(key, idx, value -> results.get(key).add(value));
+          } catch (final InterruptedException ex) {
+            throw new IllegalStateException(ex);
+          }
+        }
+      });
+    }
+    producerPool.shutdown();
+    assertThat(producerPool.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+    executor.close();
+    pool.shutdown();
+
+    assertThat(results.values()).allSatisfy(list -> {
+      assertThat(list).hasSize(tasksPerProducer);
+      for (int idx = 0; idx < tasksPerProducer; idx++) {
+        assertThat(list.get(idx)).isEqualTo(idx);
+      }
+    });
+  }
+
+  @Test
+  void tasksOfDifferentKeysAreExecutedInParallel() throws Exception {
+    final ExecutorService pool = Executors.newFixedThreadPool(2);
+    final KeyedSerialExecutor<Integer> executor = KeyedSerialExecutor.of(2, 8, pool, (key, ex) -> { });
+    final CountDownLatch latch = new CountDownLatch(2);
+    final AtomicInteger completed = new AtomicInteger();
+    final ThConsumer<Integer, InterruptedException> task = value -> {
+      latch.countDown();
+      if (latch.await(10, TimeUnit.SECONDS)) { completed.incrementAndGet(); }
+    };
+    executor.submit(0, 0, task);
+    executor.submit(1, 1, task);
+    executor.close();
+    pool.shutdown();
+
+    assertThat(completed.get()).isEqualTo(2);
+  }
+
+  @Test
+  void taskExceptionIsPassedToFailureHandlerWithoutStallingOtherTasks() throws Exception {
+    final IOException exception = new IOException();
+    final Map<String, Throwable> failures = new ConcurrentHashMap<>();
+    final List<Integer> results = new ArrayList<>();
+    final KeyedSerialExecutor<String> executor = KeyedSerialExecutor.of(1, 8, SharedExecutor.get(), failures::put);
+    executor.submit("failed", 0, (ThConsumer<Integer, IOException>) value -> {
+      throw exception;
+    });
+    executor.submit("failed", 1, value -> results.add(value));
+    executor.submit("other", 2, value -> results.add(value));
+    executor.close();
+
+    assertThat(failures).containsOnlyKeys("failed");
+    assertThat(failures.get("failed")).isSameAs(exception);
+    assertThat(executor.failureCount()).isEqualTo(1L);
+    assertThat(results).containsExactly(1, 2);
+  }
+
+  @Test
+  void closeMethodWaitsForAllAcceptedTasksOfConcurrentProducers() throws Exception {
+    final int producers = 4;
+    final AtomicInteger accepted = new AtomicInteger();
+    final AtomicInteger executed = new AtomicInteger();
+    final KeyedSerialExecutor<Integer> executor = KeyedSerialExecutor.of(4, 16, SharedExecutor.get(), (key, ex) -> { });
+    final ExecutorService threads = Executors.newFixedThreadPool(producers);
+    final CountDownLatch started = new CountDownLatch(producers);
+    try {
+      for (int idx = 0; idx < producers; idx++) {
+        final int key = idx;
+        threads.execute(() -> {
+          started.countDown();
+          while (true) {
+            try {
+              executor.submit(key, key, value -> executed.incrementAndGet());
+              accepted.incrementAndGet();
+            } catch (final IllegalStateException | InterruptedException ex) {
+              return;
+            }
+          }
+        });
+      }
+      started.await();
+      executor.close();
+      final int executedAfterClose = executed.get();
+      threads.shutdown();
+      assertThat(threads.awaitTermination(10L, TimeUnit.SECONDS)).isTrue();
+
+      assertThat(executedAfterClose).isEqualTo(accepted.get());
+    } finally {
+      threads.shutdownNow();
+    }
+  }
+
+  @Test
+  void submitMethodThrowsISEIfTaskSubmitsToItsOwnFullLane() throws Exception {
+    final List<Throwable> exceptions = new ArrayList<>();
+    final List<Integer> results = new ArrayList<>();
+    final KeyedSerialExecutor<String> executor = KeyedSerialExecutor.of(1, 1, SharedExecutor.get(), (key, ex) -> { });
+    executor.submit("key", 0, value -> {
+      for (int idx = 1; idx <= 2; idx++) {
+        try {
+          executor.submit("key", idx, (ThConsumer<Integer, RuntimeException>) results::add);
+        } catch (final IllegalStateException ex) {
+          exceptions.add(ex);
+        }
+      }
+    });
+    executor.close();
+
+    assertThat(results).containsExactly(1);
+    assertThat(exceptions).hasSize(1);
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link RateLimiter}.
+ */
+final class RateLimiterTest {
+
+  @Test
+  void methodsThrowExceptionsForIncorrectArgs() {
+    final RateLimiter limiter = RateLimiter.of(10.0);
+    assertThatThrownBy(() -> RateLimiter.of(0.0))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> RateLimiter.of(Double.NaN))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> RateLimiter.of(10.0, 0))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> limiter.tryAcquire(0))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> limiter.tryAcquire(1, null))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> limiter.limit((ThRunnable<RuntimeException>) null))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> limiter.limitRes(0, null, (ThSupplier<Object, RuntimeException>) () -> 1))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void tryAcquireMethodAllowsBurstAndThenRejects() {
+    final RateLimiter limiter = RateLimiter.of(0.1, 3);
+
+    assertThat(limiter.tryAcquire(1)).isTrue();
+    assertThat(limiter.tryAcquire(2)).isTrue();
+    assertThat(limiter.tryAcquire(1)).isFalse();
+    assertThat(limiter.tryAcquire(1, Duration.ofMillis(10))).isFalse();
+  }
+
+  @Test
+  void acquireMethodWaitsForPermits() {
+    final RateLimiter limiter = RateLimiter.of(100.0);
+    final long start = System.nanoTime();
+    for (int idx = 0; idx < 6; idx++) {
+      limiter.acquire(1);
+    }
+    limiter.acquire(2);
+
+    assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(65));
+  }
+
+  @Test
+  void tryAcquireMethodWaitsWithinMaxWait() {
+    final RateLimiter limiter = RateLimiter.of(10.0);
+    assertThat(limiter.tryAcquire(1)).isTrue();
+    final long start = System.nanoTime();
+
+    assertThat(limiter.tryAcquire(1, Duration.ofSeconds(10))).isTrue();
+    assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(90));
+  }
+
+  @Test
+  void concurrentCallersNeverExceedBurst() throws Exception {
+    final RateLimiter limiter = RateLimiter.of(0.1, 10);
+    final AtomicInteger acquired = new AtomicInteger();
+    final List<Thread> threads = new ArrayList<>();
+    for (int idx = 0; idx < 8; idx++) {
+      final Thread thread = new Thread(() -> {
+        for (int call = 0; call < 1000; call++) {
+          if (limiter.tryAcquire(1)) {
+            acquired.incrementAndGet();
+          }
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+
+    assertThat(acquired.get()).isEqualTo(10);
+  }
+
+  @Test
+  void decoratedLambdasShareLimiterAndThrowRateLimitExceededException() throws Exception {
+    final RateLimiter limiter = RateLimiter.of(0.1, 3);
+    final AtomicInteger calls = new AtomicInteger();
+    final ThFunction<Integer, Integer, IOException> function = limiter.limitRes(1, Duration.ZERO, value -> {
+      calls.incrementAndGet();
+      return value + 1;
+    });
+    final ThRunnable<IOException> runnable = limiter.limit(2, Duration.ZERO, calls::incrementAndGet);
+
+    assertThat(function.apply(1)).isEqualTo(2);
+    runnable.run();
+    assertThatThrownBy(() -> function.apply(1))
+      .isInstanceOf(RateLimitExceededException.class);
+    assertThat(calls.get()).isEqualTo(2);
+  }
+
+  @Test
+  void decoratedLambdaRethrowsOriginException() {
+    final IOException exception = new IOException();
+    final ThConsumer<String, IOException> consumer = RateLimiter.of(1000.0).limit(value -> {
+      throw exception;
+    });
+
+    assertThatThrownBy(() -> consumer.accept("value"))
+      .isSameAs(exception);
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link RefreshingThSupplier}.
+ */
+final class RefreshingThSupplierTest {
+
+  @Test
+  void ofMethodThrowsExceptionsForIncorrectArgs() {
+    assertThatThrownBy(() -> RefreshingThSupplier.of(null, Duration.ZERO, Duration.ZERO))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> RefreshingThSupplier.of(() -> 1, Duration.ofSeconds(2), Duration.ofSeconds(1)))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> RefreshingThSupplier.of(() -> 1, Duration.ZERO, Duration.ZERO, null, Runnable::run))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> RefreshingThSupplier.of(() -> 1, Duration.ZERO, Duration.ZERO, Duration.ofNanos(-1),
+      Runnable::run))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void valueIsCachedUntilSoftTtl() throws Exception {
+    final AtomicLong clock = new AtomicLong();
+    final AtomicInteger counter = new AtomicInteger();
+    final RefreshingThSupplier<Integer, IOException> supplier =
+      new RefreshingThSupplier<>(counter::incrementAndGet, Duration.ofNanos(10), Duration.ofNanos(20), Duration.ZERO,
+        Runnable::run, clock::get);
+
+    assertThat(supplier.get()).isEqualTo(1);
+    clock.set(9);
+    assertThat(supplier.get()).isEqualTo(1);
+    assertThat(supplier.refreshCount()).isEqualTo(1L);
+  }
+
+  @Test
+  void staleValueIsReturnedAndRefreshedAsynchronously() throws Exception {
+    final AtomicLong clock = new AtomicLong();
+    final AtomicInteger counter = new AtomicInteger();
+    final List<Runnable> tasks = new ArrayList<>();
+    final RefreshingThSupplier<Integer, IOException> supplier =
+      new RefreshingThSupplier<>(counter::incrementAndGet, Duration.ofNanos(10), Duration.ofNanos(20), Duration.ZERO,
+        tasks::add, clock::get);
+
+    assertThat(supplier.get()).isEqualTo(1);
+    clock.set(15);
+    assertThat(supplier.get()).isEqualTo(1);
+    assertThat(supplier.get()).isEqualTo(1);
+    assertThat(tasks).hasSize(1);
+    tasks.get(0).run();
+    assertThat(supplier.get()).isEqualTo(2);
+  }
+
+  @Test
+  void failedRefreshKeepsLastGoodValue() throws Exception {
+    final IOException exception = new IOException();
+    final AtomicLong clock = new AtomicLong();
+    final AtomicBoolean fail = new AtomicBoolean();
+    final RefreshingThSupplier<String, IOException> supplier = new RefreshingThSupplier<>(() -> {
+      if (fail.get()) { throw exception; }
+      return "value";
+    }, Duration.ofNanos(10), Duration.ofNanos(20), Duration.ZERO, Runnable::run, clock::get);
+
+    assertThat(supplier.get()).isEqualTo("value");
+    fail.set(true);
+    clock.set(15);
+    assertThat(supplier.get()).isEqualTo("value");
+    assertThat(supplier.refreshFailureCount()).isEqualTo(1L);
+    assertThat(supplier.lastRefreshFailure()).isSameAs(exception);
+  }
+
+  @Test
+  void failedRefreshIsNotRetriedWithinRefreshRetryInterval() throws Exception {
+    final IOException exception = new IOException();
+    final AtomicLong clock = new AtomicLong();
+    final AtomicBoolean fail = new AtomicBoolean();
+    final AtomicInteger calls = new AtomicInteger();
+    final RefreshingThSupplier<String, IOException> supplier = new RefreshingThSupplier<>(() -> {
+      calls.incrementAndGet();
+      if (fail.get()) { throw exception; }
+      return "value";
+    }, Duration.ofNanos(10), Duration.ofNanos(100), Duration.ofNanos(20), Runnable::run, clock::get);
+
+    assertThat(supplier.get()).isEqualTo("value");
+    fail.set(true);
+    clock.set(15);
+    assertThat(supplier.get()).isEqualTo("value");
+    clock.set(34);
+    assertThat(supplier.get()).isEqualTo("value");
+    assertThat(calls.get()).isEqualTo(2);
+    assertThat(supplier.refreshFailureCount()).isEqualTo(1L);
+    fail.set(false);
+    clock.set(35);
+    assertThat(supplier.get()).isEqualTo("value");
+    assertThat(calls.get()).isEqualTo(3);
+    assertThat(supplier.refreshCount()).isEqualTo(2L);
+  }
+
+  @Test
+  void expiredValueIsLoadedSynchronously() throws Exception {
+    final IOException exception = new IOException();
+    final AtomicLong clock = new AtomicLong();
+    final AtomicBoolean fail = new AtomicBoolean();
+    final AtomicInteger counter = new AtomicInteger();
+    final RefreshingThSupplier<Integer, IOException> supplier = new RefreshingThSupplier<>(() -> {
+      if (fail.get()) { throw exception; }
+      return counter.incrementAndGet();
+    }, Duration.ofNanos(10), Duration.ofNanos(20), Duration.ZERO, task -> { }, clock::get);
+
+    assertThat(supplier.get()).isEqualTo(1);
+    clock.set(25);
+    assertThat(supplier.get()).isEqualTo(2);
+    clock.set(50);
+    fail.set(true);
+    assertThatThrownBy(supplier::get)
+      .isSameAs(exception);
+  }
+
+  @Test
+  void refreshDoesNotOverwriteValueLoadedAfterRefreshStart() throws Exception {
+    final AtomicLong clock = new AtomicLong();
+    final AtomicInteger counter = new AtomicInteger();
+    final List<RefreshingThSupplier<Integer, IOException>> holder = new ArrayList<>();
+    final RefreshingThSupplier<Integer, IOException> supplier = new RefreshingThSupplier<>(() -> {
+      final int value = counter.incrementAndGet();
+      if (value == 2) {
+        clock.set(25);
+        assertThat(holder.get(0).get()).isEqualTo(3);
+      }
+      return value;
+    }, Duration.ofNanos(10), Duration.ofNanos(20), Duration.ZERO, Runnable::run, clock::get);
+    holder.add(supplier);
+
+    assertThat(supplier.get()).isEqualTo(1);
+    clock.set(15);
+    assertThat(supplier.get()).isEqualTo(1);
+    assertThat(supplier.get()).isEqualTo(3);
+    assertThat(supplier.refreshCount()).isEqualTo(2L);
+  }
+
+  @Test
+  void hugeDurationsAreClamped() throws Exception {
+    final Duration huge = Duration.ofSeconds(Long.MAX_VALUE);
+    final AtomicInteger counter = new AtomicInteger();
+    final RefreshingThSupplier<Integer, IOException> supplier =
+      RefreshingThSupplier.of(counter::incrementAndGet, huge, huge, huge, Runnable::run);
+
+    assertThat(supplier.get()).isEqualTo(1);
+    assertThat(supplier.get()).isEqualTo(1);
+  }
+}
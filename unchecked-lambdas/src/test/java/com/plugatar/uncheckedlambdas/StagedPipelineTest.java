@@ -0,0 +1,234 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link StagedPipeline}.
+ */
+final class StagedPipelineTest {
+
+  @Test
+  void builderMethodsThrowExceptionsForIncorrectArgs() {
+    assertThatThrownBy(() -> StagedPipeline.builder(null))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> StagedPipeline.<String>builder(deadLetter -> { }).stage(null, 1, 1, String::length))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> StagedPipeline.<String>builder(deadLetter -> { }).stage("stage", 0, 1, String::length))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> StagedPipeline.<String>builder(deadLetter -> { }).sink("sink", 1, 0, str -> { }))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> StagedPipeline.<String>builder(deadLetter -> { }).batchSize(0))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void pipelineProcessesAllItemsThroughAllStages() throws Exception {
+    final AtomicLong sum = new AtomicLong();
+    final StagedPipeline<String> pipeline = StagedPipeline.<String>builder(deadLetter -> { })
+      .stage("parse", 2, 16, Integer::parseInt)
+      .stage("square", 4, 8, value -> (long) value * value)
+      .sink("sum", 2, 8, sum::addAndGet);
+    for (int idx = 1; idx <= 10_000; idx++) {
+      pipeline.submit(String.valueOf(idx));
+    }
+    pipeline.close();
+
+    long expected = 0L;
+    for (long idx = 1; idx <= 10_000; idx++) {
+      expected += idx * idx;
+    }
+    assertThat(sum.get()).isEqualTo(expected);
+    assertThat(pipeline.stages()).extracting(StagedPipeline.Stage::processedCount)
+      .containsExactly(10_000L, 10_000L, 10_000L);
+    assertThat(pipeline.stages()).extracting(StagedPipeline.Stage::queueDepth)
+      .containsExactly(0, 0, 0);
+  }
+
+  @Test
+  void stageExceptionIsRoutedToDeadLetterConsumer() throws Exception {
+    final IOException exception = new IOException();
+    final List<StagedPipeline.DeadLetter> deadLetters = Collections.synchronizedList(new ArrayList<>());
+    final List<Integer> results = Collections.synchronizedList(new ArrayList<>());
+    final StagedPipeline<Integer> pipeline = StagedPipeline.<Integer>builder(deadLetters::add)
+      .stage("check", 1, 4, (ThFunction<Integer, Integer, IOException>) value -> {
+        if (value == 2) { throw exception; }
+        return value;
+      })
+      .sink("collect", 1, 4, results::add);
+    pipeline.submit(1);
+    pipeline.submit(2);
+    pipeline.submit(3);
+    pipeline.close();
+
+    assertThat(results).containsExactly(1, 3);
+    assertThat(deadLetters).hasSize(1);
+    assertThat(deadLetters.get(0).stage()).isEqualTo("check");
+    assertThat(deadLetters.get(0).item()).isEqualTo(2);
+    assertThat(deadLetters.get(0).exception()).isSameAs(exception);
+    assertThat(pipeline.stages().get(0).failureCount()).isEqualTo(1L);
+  }
+
+  @Test
+  void interruptedWorkerPassesRestOfBatchToDeadLetterConsumer() throws Exception {
+    final List<Runnable> workers = new ArrayList<>();
+    final List<StagedPipeline.DeadLetter> deadLetters = Collections.synchronizedList(new ArrayList<>());
+    final CountDownLatch deadLetterSent = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final List<Object> items = Collections.synchronizedList(new ArrayList<>());
+    final StagedPipeline<Integer> pipeline = StagedPipeline.<Integer>builder(deadLetter -> {
+      deadLetters.add(deadLetter);
+      deadLetterSent.countDown();
+    }, workers::add)
+      .batchSize(4)
+      .stage("pass", 1, 16, value -> value)
+      .sink("blocked", 1, 1, value -> {
+        release.await();
+        items.add(value);
+      });
+    for (int idx = 0; idx < 4; idx++) {
+      pipeline.submit(idx);
+    }
+    final Thread passWorker = new Thread(workers.get(0));
+    passWorker.start();
+    new Thread(workers.get(1)).start();
+    /* the sink is blocked, so the pass worker blocks on the full sink queue in the middle of its batch */
+    while (pipeline.stages().get(1).queueDepth() != 1 || passWorker.getState() != Thread.State.WAITING) {
+      Thread.sleep(1);
+    }
+    passWorker.interrupt();
+    assertThat(deadLetterSent.await(10, TimeUnit.SECONDS)).isTrue();
+    release.countDown();
+    pipeline.close();
+
+    assertThat(deadLetters).isNotEmpty().allSatisfy(deadLetter -> {
+      assertThat(deadLetter.stage()).isEqualTo("pass");
+      assertThat(deadLetter.exception()).isInstanceOf(InterruptedException.class);
+    });
+    deadLetters.forEach(deadLetter -> items.add(deadLetter.item()));
+    assertThat(items).containsExactly(0, 1, 2, 3);
+    assertThat(pipeline.stages().get(0).failureCount()).isEqualTo(deadLetters.size());
+  }
+
+  @Test
+  void interruptedStagePassesQueuedItemsToDeadLetterConsumerAndRejectsSubmit() throws Exception {
+    final List<Runnable> workers = new ArrayList<>();
+    final List<StagedPipeline.DeadLetter> deadLetters = Collections.synchronizedList(new ArrayList<>());
+    final CountDownLatch deadLettersSent = new CountDownLatch(6);
+    final CountDownLatch release = new CountDownLatch(1);
+    final List<Object> items = Collections.synchronizedList(new ArrayList<>());
+    final StagedPipeline<Integer> pipeline = StagedPipeline.<Integer>builder(deadLetter -> {
+      deadLetters.add(deadLetter);
+      deadLettersSent.countDown();
+    }, workers::add)
+      .batchSize(1)
+      .stage("pass", 2, 16, value -> value)
+      .sink("blocked", 1, 1, value -> {
+        release.await();
+        items.add(value);
+      });
+    for (int idx = 0; idx < 8; idx++) {
+      pipeline.submit(idx);
+    }
+    final Thread firstPassWorker = new Thread(workers.get(0));
+    final Thread secondPassWorker = new Thread(workers.get(1));
+    firstPassWorker.start();
+    secondPassWorker.start();
+    new Thread(workers.get(2)).start();
+    /* the sink is blocked, so both pass workers block on the full sink queue with 4 items left in the pass queue */
+    while (pipeline.stages().get(0).queueDepth() != 4 || pipeline.stages().get(1).queueDepth() != 1
+      || firstPassWorker.getState() != Thread.State.WAITING || secondPassWorker.getState() != Thread.State.WAITING) {
+      Thread.sleep(1);
+    }
+    firstPassWorker.interrupt();
+    secondPassWorker.interrupt();
+    assertThat(deadLettersSent.await(10, TimeUnit.SECONDS)).isTrue();
+
+    assertThatThrownBy(() -> pipeline.submit(8))
+      .isInstanceOf(IllegalStateException.class);
+    release.countDown();
+    pipeline.close();
+    assertThat(deadLetters).hasSize(6).allSatisfy(deadLetter -> {
+      assertThat(deadLetter.stage()).isEqualTo("pass");
+      assertThat(deadLetter.exception()).isInstanceOf(InterruptedException.class);
+    });
+    deadLetters.forEach(deadLetter -> items.add(deadLetter.item()));
+    assertThat(items).containsExactlyInAnyOrder(0, 1, 2, 3, 4, 5, 6, 7);
+    assertThat(pipeline.stages().get(0).failureCount()).isEqualTo(6L);
+    assertThat(pipeline.stages().get(0).queueDepth()).isZero();
+  }
+
+  @Test
+  void fullStageQueueBlocksSubmit() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final StagedPipeline<Integer> pipeline = StagedPipeline.<Integer>builder(deadLetter -> { })
+      .batchSize(1)
+      .sink("blocked", 1, 1, value -> release.await());
+    pipeline.submit(1);
+    pipeline.submit(2);
+    final Thread submitter = new Thread(() -> {
+      try {
+        pipeline.submit(3);
+      } catch (final InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    submitter.start();
+    submitter.join(100);
+
+    assertThat(submitter.isAlive()).isTrue();
+    release.countDown();
+    submitter.join(TimeUnit.SECONDS.toMillis(10));
+    assertThat(submitter.isAlive()).isFalse();
+    pipeline.close();
+    assertThat(pipeline.stages().get(0).processedCount()).isEqualTo(3L);
+  }
+
+  @Test
+  void stagesExposeLatencyMetrics() throws Exception {
+    final StagedPipeline<Integer> pipeline = StagedPipeline.<Integer>builder(deadLetter -> { })
+      .sink("sleep", 1, 4, value -> Thread.sleep(10));
+    pipeline.submit(1);
+    pipeline.close();
+
+    final StagedPipeline.Stage stage = pipeline.stages().get(0);
+    assertThat(stage.name()).isEqualTo("sleep");
+    assertThat(stage.maxLatencyNanos()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(10));
+    assertThat(stage.averageLatencyNanos()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(10));
+  }
+
+  @Test
+  void submitMethodThrowsISEAfterClose() {
+    final StagedPipeline<Integer> pipeline = StagedPipeline.<Integer>builder(deadLetter -> { })
+      .sink("sink", 1, 4, value -> { });
+    pipeline.close();
+
+    assertThatThrownBy(() -> pipeline.submit(1))
+      .isInstanceOf(IllegalStateException.class);
+  }
+}
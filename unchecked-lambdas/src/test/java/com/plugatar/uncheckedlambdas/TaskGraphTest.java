@@ -0,0 +1,132 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link TaskGraph}.
+ */
+final class TaskGraphTest {
+
+  @Test
+  void nodeMethodThrowsExceptionsForIncorrectArgs() {
+    final TaskGraph<IOException> graph = TaskGraph.create();
+    final TaskGraph.Node<Integer> foreign = TaskGraph.<IOException>create().node("foreign", () -> 1);
+
+    assertThatThrownBy(() -> graph.node(null, () -> 1))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> graph.node("node", (ThSupplier<Integer, IOException>) null))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> graph.node("node", foreign, value -> value))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void runMethodComputesNodesFromUpstreamValues() throws Exception {
+    final TaskGraph<IOException> graph = TaskGraph.create();
+    final TaskGraph.Node<Integer> a = graph.node("a", () -> 1);
+    final TaskGraph.Node<Integer> b = graph.node("b", a, value -> value + 1);
+    final TaskGraph.Node<Integer> c = graph.node("c", a, b, Integer::sum);
+    final TaskGraph.Node<String> d = graph.node("d", a, b, c, (v1, v2, v3) -> v1 + "" + v2 + v3);
+    final TaskGraph.Result result = graph.run();
+
+    assertThat(result.get(a)).isEqualTo(1);
+    assertThat(result.get(b)).isEqualTo(2);
+    assertThat(result.get(c)).isEqualTo(3);
+    assertThat(result.get(d)).isEqualTo("123");
+    assertThat(result.criticalPath()).containsExactly(a, b, c, d);
+  }
+
+  @Test
+  void runMethodComputesSharedUpstreamNodeOnce() throws Exception {
+    final AtomicInteger counter = new AtomicInteger();
+    final TaskGraph<IOException> graph = TaskGraph.create();
+    final TaskGraph.Node<Integer> root = graph.node("root", counter::incrementAndGet);
+    final TaskGraph.Node<Integer> left = graph.node("left", root, value -> value);
+    final TaskGraph.Node<Integer> right = graph.node("right", root, value -> value);
+    final TaskGraph.Node<Integer> sum = graph.node("sum", left, right, Integer::sum);
+
+    assertThat(graph.run().get(sum)).isEqualTo(2);
+    assertThat(counter.get()).isEqualTo(1);
+  }
+
+  @Test
+  void runMethodComputesIndependentNodesInParallel() throws Exception {
+    final CountDownLatch latch = new CountDownLatch(2);
+    final ThSupplier<Boolean, InterruptedException> node = () -> {
+      latch.countDown();
+      return latch.await(10, TimeUnit.SECONDS);
+    };
+    final TaskGraph<InterruptedException> graph = TaskGraph.create();
+    final TaskGraph.Node<Boolean> first = graph.node("first", node);
+    final TaskGraph.Node<Boolean> second = graph.node("second", node);
+    final TaskGraph.Result result = graph.run();
+
+    assertThat(result.get(first)).isTrue();
+    assertThat(result.get(second)).isTrue();
+  }
+
+  @Test
+  void runMethodCancelsDownstreamNodesAndRethrowsException() {
+    final IOException exception = new IOException();
+    final AtomicBoolean downstreamComputed = new AtomicBoolean();
+    final AtomicBoolean independentComputed = new AtomicBoolean();
+    final TaskGraph<IOException> graph = TaskGraph.create();
+    final TaskGraph.Node<Integer> failed = graph.node("failed", () -> {
+      throw exception;
+    });
+    graph.node("downstream", failed, value -> {
+      downstreamComputed.set(true);
+      return value;
+    });
+    graph.node("independent", () -> {
+      independentComputed.set(true);
+      return 1;
+    });
+
+    assertThatThrownBy(() -> graph.run(Runnable::run))
+      .isSameAs(exception);
+    assertThat(downstreamComputed).isFalse();
+    assertThat(independentComputed).isTrue();
+  }
+
+  @Test
+  void resultReportsCriticalPathTiming() throws Exception {
+    final TaskGraph<InterruptedException> graph = TaskGraph.create();
+    final TaskGraph.Node<Integer> fast = graph.node("fast", () -> 1);
+    final TaskGraph.Node<Integer> slow = graph.node("slow", () -> {
+      Thread.sleep(50);
+      return 2;
+    });
+    final TaskGraph.Node<Integer> sum = graph.node("sum", fast, slow, Integer::sum);
+    final TaskGraph.Result result = graph.run();
+
+    assertThat(result.criticalPath()).containsExactly(slow, sum);
+    assertThat(result.elapsedNanos(slow)).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+    assertThat(result.criticalPathNanos()).isGreaterThanOrEqualTo(result.elapsedNanos(slow));
+    assertThat(result.totalNanos()).isGreaterThanOrEqualTo(result.criticalPathNanos());
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link ThIterable}.
+ */
+final class ThIterableTest {
+
+  @Test
+  void asUncheckedMethodExceptionLambdaResult() {
+    final Throwable throwable = new Throwable();
+    final ThIterable<Object, Throwable> originIterable = () -> { throw throwable; };
+
+    final ThIterable<Object, RuntimeException> unchecked = originIterable.asUnchecked();
+    assertThatThrownBy(() -> unchecked.iterator())
+      .isSameAs(throwable);
+  }
+
+  @Test
+  void forEachMethodConsumesAllElementsAndClosesIterator() throws Exception {
+    final AtomicBoolean closed = new AtomicBoolean();
+    final ThIterable<String, IOException> iterable = () -> {
+      final Iterator<String> source = Arrays.asList("a", "b").iterator();
+      return ThIterator.of(() -> source.hasNext() ? source.next() : null, () -> closed.set(true));
+    };
+
+    final List<String> result = new ArrayList<>();
+    iterable.forEach(result::add);
+    assertThat(result).containsExactly("a", "b");
+    assertThat(closed).isTrue();
+  }
+
+  @Test
+  void forEachMethodClosesIteratorIfConsumerThrowsException() {
+    final IOException exception = new IOException();
+    final AtomicBoolean closed = new AtomicBoolean();
+    final ThIterable<String, IOException> iterable =
+      () -> ThIterator.of(() -> "a", () -> closed.set(true));
+
+    assertThatThrownBy(() -> iterable.forEach(str -> { throw exception; }))
+      .isSameAs(exception);
+    assertThat(closed).isTrue();
+  }
+
+  @Test
+  void forEachMethodThrowsNPEForNullArg() {
+    final ThIterable<String, IOException> iterable = () -> ThIterator.of(() -> null, () -> { });
+
+    assertThatThrownBy(() -> iterable.forEach(null))
+      .isInstanceOf(NullPointerException.class);
+  }
+}
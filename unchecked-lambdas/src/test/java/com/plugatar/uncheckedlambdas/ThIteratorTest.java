@@ -0,0 +1,182 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link ThIterator}.
+ */
+final class ThIteratorTest {
+
+  @Test
+  void asUncheckedMethodExceptionLambdaResult() {
+    final Throwable throwable = new Throwable();
+    final ThIterator<Object, Throwable> originIterator = ThIterator.of(() -> { throw throwable; }, () -> { });
+
+    final ThIterator<Object, RuntimeException> unchecked = originIterator.asUnchecked();
+    assertThatThrownBy(() -> unchecked.hasNext())
+      .isSameAs(throwable);
+  }
+
+  @Test
+  void ofMethodIteratesUntilNullAndCloses() throws Exception {
+    final Iterator<String> source = Arrays.asList("a", "b").iterator();
+    final AtomicBoolean closed = new AtomicBoolean();
+    final ThIterator<String, IOException> iterator = ThIterator.of(
+      () -> source.hasNext() ? source.next() : null,
+      () -> closed.set(true)
+    );
+
+    assertThat(iterator.next()).isEqualTo("a");
+    assertThat(iterator.hasNext()).isTrue();
+    assertThat(iterator.next()).isEqualTo("b");
+    assertThat(iterator.hasNext()).isFalse();
+    assertThatThrownBy(iterator::next)
+      .isInstanceOf(NoSuchElementException.class);
+    iterator.close();
+    assertThat(closed).isTrue();
+  }
+
+  @Test
+  void asSpliteratorMethodSplitsSizedBatches() {
+    final Spliterator<Integer> spliterator = ThIterator.of(IntStream.range(0, 10).iterator()).asSpliterator(4);
+
+    final Spliterator<Integer> split = spliterator.trySplit();
+    assertThat(split.hasCharacteristics(Spliterator.SIZED)).isTrue();
+    assertThat(split.estimateSize()).isEqualTo(4L);
+  }
+
+  @Test
+  void streamMethodSupportsParallelProcessingAndClosesIterator() {
+    final AtomicBoolean closed = new AtomicBoolean();
+    final AtomicInteger counter = new AtomicInteger();
+    final ThIterator<Integer, IOException> iterator = ThIterator.of(
+      () -> counter.get() < 10_000 ? counter.getAndIncrement() : null,
+      () -> closed.set(true)
+    );
+
+    final List<Integer> result;
+    try (final Stream<Integer> stream = iterator.stream()) {
+      result = stream.parallel().map(i -> i * 2).collect(Collectors.toList());
+    }
+    assertThat(result)
+      .isEqualTo(IntStream.range(0, 10_000).map(i -> i * 2).boxed().collect(Collectors.toList()));
+    assertThat(closed).isTrue();
+  }
+
+  @Test
+  void prefetchingMethodReturnsAllElementsInOrder() throws Exception {
+    final AtomicInteger counter = new AtomicInteger();
+    final AtomicBoolean closed = new AtomicBoolean();
+    final ThIterator<Integer, IOException> iterator = ThIterator.<Integer, IOException>of(
+      () -> counter.get() < 1000 ? counter.getAndIncrement() : null,
+      () -> closed.set(true)
+    ).prefetching(16);
+
+    final List<Integer> result = new ArrayList<>();
+    while (iterator.hasNext()) {
+      result.add(iterator.next());
+    }
+    iterator.close();
+    assertThat(result)
+      .isEqualTo(IntStream.range(0, 1000).boxed().collect(Collectors.toList()));
+    assertThat(closed).isTrue();
+  }
+
+  @Test
+  void prefetchingMethodRethrowsOriginExceptionInPosition() throws Exception {
+    final IOException exception = new IOException();
+    final AtomicInteger counter = new AtomicInteger();
+    final ThIterator<Integer, IOException> iterator = ThIterator.<Integer, IOException>of(() -> {
+      if (counter.get() == 3) { throw exception; }
+      return counter.getAndIncrement();
+    }, () -> { }).prefetching(8, Runnable::run);
+
+    assertThat(iterator.next()).isEqualTo(0);
+    assertThat(iterator.next()).isEqualTo(1);
+    assertThat(iterator.next()).isEqualTo(2);
+    assertThatThrownBy(iterator::hasNext)
+      .isSameAs(exception);
+  }
+
+  @Test
+  void prefetchingMethodKeepsPrefetchedElementsIfProducerIsInterrupted() throws Exception {
+    final AtomicInteger counter = new AtomicInteger();
+    final List<Thread> producers = new ArrayList<>();
+    final ThIterator<Integer, IOException> iterator = ThIterator.<Integer, IOException>of(
+      counter::getAndIncrement, () -> { }
+    ).prefetching(2, task -> {
+      final Thread producer = new Thread(task);
+      producers.add(producer);
+      producer.start();
+    });
+    /* the producer blocks on the full buffer while putting the third element */
+    while (counter.get() != 3 || producers.get(0).getState() != Thread.State.WAITING) {
+      Thread.sleep(1);
+    }
+    producers.get(0).interrupt();
+
+    final List<Integer> result = new ArrayList<>();
+    assertThatThrownBy(() -> {
+      while (iterator.hasNext()) {
+        result.add(iterator.next());
+      }
+    }).isInstanceOf(InterruptedException.class);
+    assertThat(result)
+      .hasSizeGreaterThanOrEqualTo(3)
+      .isEqualTo(IntStream.range(0, result.size()).boxed().collect(Collectors.toList()));
+    assertThat(result).hasSize(counter.get());
+    iterator.close();
+  }
+
+  @Test
+  void prefetchingIteratorCloseMethodStopsProducerAndClosesOrigin() throws Exception {
+    final AtomicBoolean closed = new AtomicBoolean();
+    final ThIterator<Integer, IOException> iterator = ThIterator.<Integer, IOException>of(
+      () -> 1,
+      () -> closed.set(true)
+    ).prefetching(4);
+
+    assertThat(iterator.next()).isEqualTo(1);
+    iterator.close();
+    assertThat(closed).isTrue();
+  }
+
+  @Test
+  void prefetchingMethodThrowsIAEForNonPositiveDepth() {
+    final ThIterator<Object, RuntimeException> iterator = ThIterator.of(Arrays.asList().iterator());
+
+    assertThatThrownBy(() -> iterator.prefetching(0))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+}
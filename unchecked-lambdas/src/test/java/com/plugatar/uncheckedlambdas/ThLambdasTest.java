@@ -0,0 +1,179 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link ThLambdas}.
+ */
+final class ThLambdasTest {
+
+  @Test
+  void fromMethodMethodThrowsNPEForNullArgs() throws Exception {
+    final Method method = Target.class.getMethod("length", String.class);
+
+    assertThatThrownBy(() -> ThLambdas.fromMethod(null, ThFunction.class))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> ThLambdas.fromMethod(method, null))
+      .isInstanceOf(NullPointerException.class);
+  }
+
+  @Test
+  void fromMethodMethodThrowsIAEForIncorrectLambdaType() throws Exception {
+    final Method method = Target.class.getMethod("length", String.class);
+
+    assertThatThrownBy(() -> ThLambdas.fromMethod(method, Runnable.class))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> ThLambdas.fromMethod(method, ThBiFunction.class))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> ThLambdas.fromMethod(Target.class.getMethod("fail"), ThSupplier.class))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void fromMethodMethodForStaticMethod() throws Exception {
+    final ThFunction<String, Integer, IOException> function =
+      ThLambdas.fromMethod(Target.class.getMethod("length", String.class), ThFunction.class);
+
+    assertThat(function.apply("abc")).isEqualTo(3);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void fromMethodMethodForInstanceMethod() throws Exception {
+    final ThBiFunction<Target, String, String, IOException> function =
+      ThLambdas.fromMethod(Target.class.getMethod("concat", String.class), ThBiFunction.class);
+
+    assertThat(function.apply(new Target("a"), "b")).isEqualTo("ab");
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void fromMethodMethodForVoidMethod() throws Exception {
+    final ThBiConsumer<List<String>, String, IOException> consumer =
+      ThLambdas.fromMethod(Target.class.getMethod("add", List.class, String.class), ThBiConsumer.class);
+
+    final List<String> list = new ArrayList<>();
+    consumer.accept(list, "a");
+    assertThat(list).containsExactly("a");
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void fromMethodMethodRethrowsExceptionUnwrapped() throws Exception {
+    final ThRunnable<IOException> runnable = ThLambdas.fromMethod(Target.class.getMethod("fail"), ThRunnable.class);
+
+    assertThatThrownBy(runnable::run)
+      .isSameAs(Target.EXCEPTION);
+  }
+
+  @Test
+  void fromMethodMethodCachesAdapters() throws Exception {
+    final Method method = Target.class.getMethod("length", String.class);
+
+    assertThat(ThLambdas.fromMethod(method, ThFunction.class))
+      .isSameAs(ThLambdas.fromMethod(method, ThFunction.class));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void fromMethodMethodForNonPublicMethod() throws Exception {
+    final Method method = Target.class.getDeclaredMethod("hidden", String.class);
+    method.setAccessible(true);
+    final ThFunction<String, String, RuntimeException> function = ThLambdas.fromMethod(method, ThFunction.class);
+
+    assertThat(function.apply("a")).isEqualTo("hidden a");
+  }
+
+  @Test
+  void fromMethodMethodThrowsIAEForInaccessibleMethod() throws Exception {
+    final Method accessibleMethod = Target.class.getDeclaredMethod("hidden", String.class);
+    accessibleMethod.setAccessible(true);
+    ThLambdas.fromMethod(accessibleMethod, ThFunction.class);
+    final Method method = Target.class.getDeclaredMethod("hidden", String.class);
+
+    assertThatThrownBy(() -> ThLambdas.fromMethod(method, ThFunction.class))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void fromHandleMethodForDirectHandle() throws Throwable {
+    final MethodHandle handle = MethodHandles.lookup()
+      .findStatic(Target.class, "length", MethodType.methodType(int.class, String.class));
+    final ThFunction<String, Integer, IOException> function =
+      ThLambdas.fromHandle(MethodHandles.lookup(), handle, ThFunction.class);
+
+    assertThat(function.apply("abcd")).isEqualTo(4);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void fromHandleMethodForBoundHandle() throws Throwable {
+    final MethodHandle handle = MethodHandles.lookup()
+      .findVirtual(Target.class, "concat", MethodType.methodType(String.class, String.class))
+      .bindTo(new Target("x"));
+    final ThFunction<String, String, IOException> function = ThLambdas.fromHandle(handle, ThFunction.class);
+
+    assertThat(function.apply("y")).isEqualTo("xy");
+  }
+
+  /**
+   * Target class.
+   */
+  public static final class Target {
+    static final IOException EXCEPTION = new IOException();
+    private final String value;
+
+    public Target(final String value) {
+      this.value = value;
+    }
+
+    public static int length(final String str) throws IOException {
+      return str.length();
+    }
+
+    public static void add(final List<String> list,
+                           final String str) throws IOException {
+      list.add(str);
+    }
+
+    public static void fail() throws IOException {
+      throw EXCEPTION;
+    }
+
+    private static String hidden(final String str) {
+      return "hidden " + str;
+    }
+
+    public String concat(final String str) throws IOException {
+      return this.value + str;
+    }
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link UncheckedFiles}.
+ */
+final class UncheckedFilesTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void methodsThrowExceptionsForIncorrectArgs() {
+    final Path path = this.dir.resolve("file");
+    assertThatThrownBy(() -> UncheckedFiles.forEachChunk(null, 1, buffer -> { }))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> UncheckedFiles.forEachChunk(path, 0, buffer -> { }))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> UncheckedFiles.reduceMapped(path, 1, buffer -> 1, null))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> UncheckedFiles.reduceMapped(path, 0, buffer -> 1, Integer::sum))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> UncheckedFiles.forEachLine(path, null))
+      .isInstanceOf(NullPointerException.class);
+  }
+
+  @Test
+  void forEachChunkMethodPassesFixedSizeChunksInSingleReusedBuffer() throws Exception {
+    final Path path = Files.write(this.dir.resolve("file"), bytes(10));
+    final Set<ByteBuffer> buffers = Collections.newSetFromMap(new IdentityHashMap<>());
+    final List<Integer> sizes = new ArrayList<>();
+    final List<Byte> content = new ArrayList<>();
+    UncheckedFiles.forEachChunk(path, 4, buffer -> {
+      buffers.add(buffer);
+      sizes.add(buffer.remaining());
+      while (buffer.hasRemaining()) {
+        content.add(buffer.get());
+      }
+    });
+
+    assertThat(sizes).containsExactly(4, 4, 2);
+    assertThat(buffers).hasSize(1);
+    assertThat(buffers.iterator().next().isDirect()).isTrue();
+    assertThat(content).hasSize(10).startsWith((byte) 0).endsWith((byte) 9);
+  }
+
+  @Test
+  void forEachChunkMethodRethrowsConsumerExceptionAndClosesChannel() throws Exception {
+    final Path path = Files.write(this.dir.resolve("file"), bytes(10));
+    final IOException exception = new IOException();
+
+    assertThatThrownBy(() -> UncheckedFiles.forEachChunk(path, 4, buffer -> {
+      throw exception;
+    })).isSameAs(exception);
+    Files.delete(path);
+    assertThat(path).doesNotExist();
+  }
+
+  @Test
+  void reduceMappedMethodReducesRegionsInFileOrder() throws Exception {
+    final Path path = Files.write(this.dir.resolve("file"), bytes(1000));
+
+    final long sum = UncheckedFiles.reduceMapped(path, 64, buffer -> {
+      long regionSum = 0L;
+      while (buffer.hasRemaining()) {
+        regionSum += buffer.get() & 0xFF;
+      }
+      return regionSum;
+    }, Long::sum);
+    final String firstBytes = UncheckedFiles.reduceMapped(path, 3, buffer -> String.valueOf(buffer.get(0)),
+      (left, right) -> left.length() < 20 ? left + "," + right : left);
+
+    long expected = 0L;
+    for (int idx = 0; idx < 1000; idx++) {
+      expected += (byte) idx & 0xFF;
+    }
+    assertThat(sum).isEqualTo(expected);
+    assertThat(firstBytes).startsWith("0,3,6,9,12,15");
+  }
+
+  @Test
+  void reduceMappedMethodRethrowsFirstMapperExceptionUnchanged() throws Exception {
+    final Path path = Files.write(this.dir.resolve("file"), bytes(1000));
+    final IOException exception = new IOException();
+
+    assertThatThrownBy(() -> UncheckedFiles.reduceMapped(path, 10, buffer -> {
+      throw exception;
+    }, (left, right) -> left)).isSameAs(exception);
+  }
+
+  @Test
+  void forEachLineMethodSplitsLinesAcrossRegions() throws Exception {
+    final Path path = Files.write(this.dir.resolve("file"),
+      "first\r\nsecond line\n\na very long line\nlast".getBytes(StandardCharsets.US_ASCII));
+    final List<String> lines = new ArrayList<>();
+    UncheckedFiles.forEachLine(path, 4, line -> lines.add(StandardCharsets.US_ASCII.decode(line).toString()));
+
+    assertThat(lines).containsExactly("first", "second line", "", "a very long line", "last");
+  }
+
+  @Test
+  void forEachLineMethodRethrowsConsumerException() throws Exception {
+    final Path path = Files.write(this.dir.resolve("file"), "line\n".getBytes(StandardCharsets.US_ASCII));
+    final IOException exception = new IOException();
+
+    assertThatThrownBy(() -> UncheckedFiles.forEachLine(path, line -> {
+      throw exception;
+    })).isSameAs(exception);
+  }
+
+  private static byte[] bytes(final int size) {
+    final byte[] bytes = new byte[size];
+    for (int idx = 0; idx < size; idx++) {
+      bytes[idx] = (byte) idx;
+    }
+    return bytes;
+  }
+}
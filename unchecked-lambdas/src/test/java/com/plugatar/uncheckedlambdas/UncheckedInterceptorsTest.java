@@ -0,0 +1,117 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link UncheckedInterceptors}.
+ */
+final class UncheckedInterceptorsTest {
+
+  @AfterEach
+  void afterEach() {
+    UncheckedInterceptors.unregisterAll();
+  }
+
+  @Test
+  void registerMethodThrowsNPEForNullArg() {
+    assertThatThrownBy(() -> UncheckedInterceptors.register(null))
+      .isInstanceOf(NullPointerException.class);
+  }
+
+  @Test
+  void registeredInterceptorInterceptsAllMethods() {
+    final List<Object> intercepted = new ArrayList<>();
+    UncheckedInterceptors.register((lambda, invocation) -> {
+      intercepted.add(lambda);
+      return invocation.get();
+    });
+    final Object arg = new Object();
+    final ThRunnable<Throwable> runnable = () -> { };
+    final ThConsumer<Object, Throwable> consumer = t -> { };
+    final ThBiConsumer<Object, Object, Throwable> biConsumer = (t, u) -> { };
+    final ThTriConsumer<Object, Object, Object, Throwable> triConsumer = (t, u, v) -> { };
+    final ThSupplier<Object, Throwable> supplier = () -> arg;
+    final ThFunction<Object, Object, Throwable> function = t -> t;
+    final ThBiFunction<Object, Object, Object, Throwable> biFunction = (t, u) -> u;
+    final ThTriFunction<Object, Object, Object, Object, Throwable> triFunction = (t, u, v) -> v;
+
+    UncheckedLambdas.unchecked(runnable);
+    UncheckedLambdas.unchecked(arg, consumer);
+    UncheckedLambdas.unchecked(arg, arg, biConsumer);
+    UncheckedLambdas.unchecked(arg, arg, arg, triConsumer);
+    assertThat(UncheckedLambdas.<Object>uncheckedRes(supplier)).isSameAs(arg);
+    assertThat(UncheckedLambdas.uncheckedRes(arg, function)).isSameAs(arg);
+    assertThat(UncheckedLambdas.uncheckedRes(arg, arg, biFunction)).isSameAs(arg);
+    assertThat(UncheckedLambdas.uncheckedRes(arg, arg, arg, triFunction)).isSameAs(arg);
+    assertThat(intercepted)
+      .containsExactly(runnable, consumer, biConsumer, triConsumer, supplier, function, biFunction, triFunction);
+  }
+
+  @Test
+  void interceptorCanReplaceResultAndInjectException() {
+    final IOException exception = new IOException();
+    final UncheckedInterceptor interceptor = (lambda, invocation) -> {
+      if (lambda instanceof ThRunnable) { throw exception; }
+      return "intercepted";
+    };
+    UncheckedInterceptors.register(interceptor);
+
+    assertThat(UncheckedLambdas.<Object>uncheckedRes(() -> "origin")).isEqualTo("intercepted");
+    assertThatThrownBy(() -> UncheckedLambdas.unchecked(() -> { }))
+      .isSameAs(exception);
+  }
+
+  @Test
+  void interceptorsAreAppliedInRegistrationOrder() {
+    final List<String> calls = new ArrayList<>();
+    UncheckedInterceptors.register((lambda, invocation) -> {
+      calls.add("first");
+      return invocation.get();
+    });
+    UncheckedInterceptors.register((lambda, invocation) -> {
+      calls.add("second");
+      return invocation.get();
+    });
+
+    UncheckedLambdas.unchecked(() -> calls.add("lambda"));
+    assertThat(calls).containsExactly("first", "second", "lambda");
+  }
+
+  @Test
+  void unregisterMethodRemovesInterceptor() {
+    final List<Object> intercepted = new ArrayList<>();
+    final UncheckedInterceptor interceptor = (lambda, invocation) -> {
+      intercepted.add(lambda);
+      return invocation.get();
+    };
+    UncheckedInterceptors.register(interceptor);
+
+    assertThat(UncheckedInterceptors.unregister(interceptor)).isTrue();
+    assertThat(UncheckedInterceptors.unregister(interceptor)).isFalse();
+    UncheckedLambdas.unchecked(() -> { });
+    assertThat(intercepted).isEmpty();
+  }
+}
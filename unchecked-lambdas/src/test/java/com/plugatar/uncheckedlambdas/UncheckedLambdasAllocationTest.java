@@ -0,0 +1,259 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.sun.management.ThreadMXBean;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Allocation tests for {@link UncheckedLambdas} methods, {@code asUnchecked()} decorators and the fast paths of the
+ * lambda decorators. Checks that unchecked performing of non-capturing lambdas, lambdas wrapped by an inactive
+ * {@link ChaosInjector}, lambdas limited by a {@link RateLimiter} with free permits and {@link ContextPropagation}
+ * wrapping without registered carriers allocate nothing per call.
+ */
+final class UncheckedLambdasAllocationTest {
+
+  /**
+   * Number of measured invocations.
+   */
+  private static final int INVOCATIONS = 2_000_000;
+
+  /**
+   * Allowed allocation of the whole measurement, covers the measurement itself but not a single allocation per call.
+   */
+  private static final long ALLOWED_BYTES = 64 * 1024;
+
+  private static final Object ARG1 = new Object();
+  private static final Object ARG2 = new Object();
+  private static final Object ARG3 = new Object();
+  private static final Object RESULT = new Object();
+  private static volatile boolean fail = false;
+  private static volatile Object sink;
+
+  private static final ThRunnable<IOException> RUNNABLE = () -> { if (fail) { throw new IOException(); } };
+  private static final ThConsumer<Object, IOException> CONSUMER = t -> { if (fail) { throw new IOException(); } };
+  private static final ThBiConsumer<Object, Object, IOException> BI_CONSUMER =
+    (t, u) -> { if (fail) { throw new IOException(); } };
+  private static final ThTriConsumer<Object, Object, Object, IOException> TRI_CONSUMER =
+    (t, u, v) -> { if (fail) { throw new IOException(); } };
+  private static final ThSupplier<Object, IOException> SUPPLIER = () -> {
+    if (fail) { throw new IOException(); }
+    return RESULT;
+  };
+  private static final ThFunction<Object, Object, IOException> FUNCTION = t -> {
+    if (fail) { throw new IOException(); }
+    return t;
+  };
+  private static final ThBiFunction<Object, Object, Object, IOException> BI_FUNCTION = (t, u) -> {
+    if (fail) { throw new IOException(); }
+    return u;
+  };
+  private static final ThTriFunction<Object, Object, Object, Object, IOException> TRI_FUNCTION = (t, u, v) -> {
+    if (fail) { throw new IOException(); }
+    return v;
+  };
+
+  private static ThreadMXBean threadBean;
+
+  @BeforeAll
+  static void beforeAll() {
+    final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    assumeTrue(bean instanceof ThreadMXBean, "com.sun.management.ThreadMXBean is not available");
+    threadBean = (ThreadMXBean) bean;
+    assumeTrue(threadBean.isThreadAllocatedMemorySupported(), "Thread allocated memory measurement is not supported");
+    threadBean.setThreadAllocatedMemoryEnabled(true);
+  }
+
+  @Test
+  void uncheckedRunnableMethod() {
+    assertNoAllocation(() -> {
+      for (int i = 0; i < INVOCATIONS; i++) {
+        UncheckedLambdas.unchecked(RUNNABLE);
+      }
+    });
+  }
+
+  @Test
+  void uncheckedConsumerMethod() {
+    assertNoAllocation(() -> {
+      for (int i = 0; i < INVOCATIONS; i++) {
+        UncheckedLambdas.unchecked(ARG1, CONSUMER);
+      }
+    });
+  }
+
+  @Test
+  void uncheckedBiConsumerMethod() {
+    assertNoAllocation(() -> {
+      for (int i = 0; i < INVOCATIONS; i++) {
+        UncheckedLambdas.unchecked(ARG1, ARG2, BI_CONSUMER);
+      }
+    });
+  }
+
+  @Test
+  void uncheckedTriConsumerMethod() {
+    assertNoAllocation(() -> {
+      for (int i = 0; i < INVOCATIONS; i++) {
+        UncheckedLambdas.unchecked(ARG1, ARG2, ARG3, TRI_CONSUMER);
+      }
+    });
+  }
+
+  @Test
+  void uncheckedResSupplierMethod() {
+    assertNoAllocation(() -> {
+      for (int i = 0; i < INVOCATIONS; i++) {
+        sink = UncheckedLambdas.uncheckedRes(SUPPLIER);
+      }
+    });
+  }
+
+  @Test
+  void uncheckedResFunctionMethod() {
+    assertNoAllocation(() -> {
+      for (int i = 0; i < INVOCATIONS; i++) {
+        sink = UncheckedLambdas.uncheckedRes(ARG1, FUNCTION);
+      }
+    });
+  }
+
+  @Test
+  void uncheckedResBiFunctionMethod() {
+    assertNoAllocation(() -> {
+      for (int i = 0; i < INVOCATIONS; i++) {
+        sink = UncheckedLambdas.uncheckedRes(ARG1, ARG2, BI_FUNCTION);
+      }
+    });
+  }
+
+  @Test
+  void uncheckedResTriFunctionMethod() {
+    assertNoAllocation(() -> {
+      for (int i = 0; i < INVOCATIONS; i++) {
+        sink = UncheckedLambdas.uncheckedRes(ARG1, ARG2, ARG3, TRI_FUNCTION);
+      }
+    });
+  }
+
+  @Test
+  void asUncheckedMethods() {
+    assertNoAllocation(() -> {
+      for (int i = 0; i < INVOCATIONS; i++) {
+        RUNNABLE.asUnchecked().run();
+        CONSUMER.asUnchecked().accept(ARG1);
+        BI_CONSUMER.asUnchecked().accept(ARG1, ARG2);
+        TRI_CONSUMER.asUnchecked().accept(ARG1, ARG2, ARG3);
+        sink = SUPPLIER.asUnchecked().get();
+        sink = FUNCTION.asUnchecked().apply(ARG1);
+        sink = BI_FUNCTION.asUnchecked().apply(ARG1, ARG2);
+        sink = TRI_FUNCTION.asUnchecked().apply(ARG1, ARG2, ARG3);
+      }
+    });
+  }
+
+  @Test
+  void inactiveChaosInjectorWrappers() {
+    final ChaosInjector injector = ChaosInjector.create();
+    final ThRunnable<IOException> runnable = injector.wrap(RUNNABLE);
+    final ThConsumer<Object, IOException> consumer = injector.wrap(CONSUMER);
+    final ThBiConsumer<Object, Object, IOException> biConsumer = injector.wrap(BI_CONSUMER);
+    final ThTriConsumer<Object, Object, Object, IOException> triConsumer = injector.wrap(TRI_CONSUMER);
+    final ThSupplier<Object, IOException> supplier = injector.wrapRes(SUPPLIER);
+    final ThFunction<Object, Object, IOException> function = injector.wrapRes(FUNCTION);
+    final ThBiFunction<Object, Object, Object, IOException> biFunction = injector.wrapRes(BI_FUNCTION);
+    final ThTriFunction<Object, Object, Object, Object, IOException> triFunction = injector.wrapRes(TRI_FUNCTION);
+    assertNoAllocation(() -> {
+      for (int i = 0; i < INVOCATIONS; i++) {
+        runnable.asUnchecked().run();
+        consumer.asUnchecked().accept(ARG1);
+        biConsumer.asUnchecked().accept(ARG1, ARG2);
+        triConsumer.asUnchecked().accept(ARG1, ARG2, ARG3);
+        sink = supplier.asUnchecked().get();
+        sink = function.asUnchecked().apply(ARG1);
+        sink = biFunction.asUnchecked().apply(ARG1, ARG2);
+        sink = triFunction.asUnchecked().apply(ARG1, ARG2, ARG3);
+      }
+    });
+  }
+
+  @Test
+  void rateLimiterDecoratorsWithFreePermits() {
+    /* 1 ns interval and max burst so that the measurement never runs out of permits */
+    final RateLimiter limiter = RateLimiter.of(1_000_000_000.0, Integer.MAX_VALUE);
+    final ThRunnable<IOException> runnable = limiter.limit(RUNNABLE);
+    final ThRunnable<IOException> tryRunnable = limiter.limit(1, Duration.ZERO, RUNNABLE);
+    final ThConsumer<Object, IOException> consumer = limiter.limit(CONSUMER);
+    final ThBiConsumer<Object, Object, IOException> biConsumer = limiter.limit(BI_CONSUMER);
+    final ThTriConsumer<Object, Object, Object, IOException> triConsumer = limiter.limit(TRI_CONSUMER);
+    final ThSupplier<Object, IOException> supplier = limiter.limitRes(SUPPLIER);
+    final ThFunction<Object, Object, IOException> function = limiter.limitRes(FUNCTION);
+    final ThBiFunction<Object, Object, Object, IOException> biFunction = limiter.limitRes(BI_FUNCTION);
+    final ThTriFunction<Object, Object, Object, Object, IOException> triFunction = limiter.limitRes(TRI_FUNCTION);
+    assertNoAllocation(() -> {
+      for (int i = 0; i < INVOCATIONS; i++) {
+        runnable.asUnchecked().run();
+        tryRunnable.asUnchecked().run();
+        consumer.asUnchecked().accept(ARG1);
+        biConsumer.asUnchecked().accept(ARG1, ARG2);
+        triConsumer.asUnchecked().accept(ARG1, ARG2, ARG3);
+        sink = supplier.asUnchecked().get();
+        sink = function.asUnchecked().apply(ARG1);
+        sink = biFunction.asUnchecked().apply(ARG1, ARG2);
+        sink = triFunction.asUnchecked().apply(ARG1, ARG2, ARG3);
+      }
+    });
+  }
+
+  @Test
+  void contextPropagationWithoutCarriers() {
+    ContextPropagation.unregisterAll();
+    assertNoAllocation(() -> {
+      for (int i = 0; i < INVOCATIONS; i++) {
+        ContextPropagation.wrap(RUNNABLE).asUnchecked().run();
+        ContextPropagation.wrap(CONSUMER).asUnchecked().accept(ARG1);
+        sink = ContextPropagation.wrapRes(SUPPLIER).asUnchecked().get();
+        sink = ContextPropagation.wrapRes(FUNCTION).asUnchecked().apply(ARG1);
+      }
+    });
+  }
+
+  private static void assertNoAllocation(final Runnable measuredLoop) {
+    /* warm up so that the loop is measured in compiled form as well */
+    measuredLoop.run();
+    measuredLoop.run();
+    final long allocated = allocatedBytes(measuredLoop);
+    assertThat(allocated)
+      .as("bytes allocated by %s invocations", INVOCATIONS)
+      .isLessThan(ALLOWED_BYTES);
+  }
+
+  private static long allocatedBytes(final Runnable runnable) {
+    final long threadId = Thread.currentThread().getId();
+    final long before = threadBean.getThreadAllocatedBytes(threadId);
+    runnable.run();
+    return threadBean.getThreadAllocatedBytes(threadId) - before;
+  }
+}
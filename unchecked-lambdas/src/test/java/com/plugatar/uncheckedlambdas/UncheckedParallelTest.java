@@ -0,0 +1,180 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link UncheckedParallel}.
+ */
+final class UncheckedParallelTest {
+
+  @Test
+  void mapOrderedMethodThrowsExceptionsForIncorrectArgs() {
+    final Iterator<Integer> iterator = Collections.<Integer>emptyList().iterator();
+    assertThatThrownBy(() -> UncheckedParallel.mapOrdered((Iterator<Integer>) null, value -> value, 1))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> UncheckedParallel.mapOrdered(iterator, null, 1))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> UncheckedParallel.mapOrdered(iterator, value -> value, 1, null))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> UncheckedParallel.mapOrdered(iterator, value -> value, 0))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void mapOrderedMethodReturnsResultsInIteratorOrder() throws Exception {
+    final List<Integer> input = IntStream.range(0, 200).boxed().collect(Collectors.toList());
+    final ThIterator<Integer, InterruptedException> results = UncheckedParallel.mapOrdered(input.iterator(), value -> {
+      Thread.sleep(value % 5);
+      return value * 2;
+    }, 8);
+
+    final List<Integer> actual = new ArrayList<>();
+    while (results.hasNext()) {
+      actual.add(results.next());
+    }
+    assertThat(actual).isEqualTo(input.stream().map(value -> value * 2).collect(Collectors.toList()));
+  }
+
+  @Test
+  void mapOrderedMethodKeepsAtMostConcurrencyCallsInFlight() throws Exception {
+    final AtomicInteger inFlight = new AtomicInteger();
+    final AtomicInteger maxInFlight = new AtomicInteger();
+    final ExecutorService executor = Executors.newCachedThreadPool();
+    try {
+      final ThIterator<Integer, InterruptedException> results = UncheckedParallel.mapOrdered(
+        IntStream.range(0, 100).iterator(), value -> {
+          maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+          Thread.sleep(2);
+          inFlight.decrementAndGet();
+          return value;
+        }, 4, executor);
+      int count = 0;
+      while (results.hasNext()) {
+        results.next();
+        count++;
+      }
+
+      assertThat(count).isEqualTo(100);
+      assertThat(maxInFlight.get()).isBetween(1, 4);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void mapOrderedMethodConsumesIteratorLazily() throws Exception {
+    final AtomicInteger consumed = new AtomicInteger();
+    final Iterator<Integer> iterator = Stream.iterate(0, value -> value + 1)
+      .peek(value -> consumed.incrementAndGet())
+      .iterator();
+    final ThIterator<Integer, RuntimeException> results = UncheckedParallel.mapOrdered(iterator, value -> value, 3);
+
+    assertThat(consumed.get()).isZero();
+    assertThat(results.next()).isZero();
+    assertThat(results.next()).isEqualTo(1);
+    assertThat(consumed.get()).isLessThanOrEqualTo(5);
+    results.close();
+  }
+
+  @Test
+  void mapOrderedMethodRethrowsFirstExceptionInIteratorOrderAndCancelsRemainingCalls() throws Exception {
+    final IOException first = new IOException();
+    final IOException second = new IOException();
+    final CountDownLatch cancelled = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newCachedThreadPool();
+    try {
+      final ThIterator<Integer, Exception> results = UncheckedParallel.mapOrdered(
+        Arrays.asList(0, 1, 2, 3).iterator(), (ThFunction<Integer, Integer, Exception>) value -> {
+          if (value == 1) {
+            Thread.sleep(20);
+            throw first;
+          }
+          if (value == 2) { throw second; }
+          if (value == 3) {
+            try {
+              Thread.sleep(10_000);
+            } catch (final InterruptedException ex) {
+              cancelled.countDown();
+            }
+          }
+          return value;
+        }, 4, executor);
+
+      assertThat(results.next()).isZero();
+      assertThatThrownBy(results::next)
+        .isSameAs(first);
+      assertThat(results.hasNext()).isFalse();
+      assertThat(cancelled.await(10, TimeUnit.SECONDS)).isTrue();
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void mapOrderedMethodReturnsAllResultsComputedBeforeIteratorFailure() throws Exception {
+    final IOException failure = new IOException();
+    for (final int concurrency : new int[]{1, 2, 4}) {
+      final AtomicInteger counter = new AtomicInteger();
+      final ThIterator<Integer, IOException> source = ThIterator.of(() -> {
+        final int value = counter.getAndIncrement();
+        if (value == 2) { throw failure; }
+        return value;
+      }, () -> { });
+      final ThIterator<Integer, IOException> results = UncheckedParallel.mapOrdered(source, value -> value, concurrency);
+
+      assertThat(results.next()).isZero();
+      assertThat(results.next()).isEqualTo(1);
+      assertThatThrownBy(results::next)
+        .isSameAs(failure);
+      assertThat(results.hasNext()).isFalse();
+    }
+  }
+
+  @Test
+  void streamOfResultsClosesIterator() {
+    final AtomicInteger closed = new AtomicInteger();
+    final Iterator<Integer> source = Arrays.asList(1, 2, 3).iterator();
+    final ThIterator<Integer, RuntimeException> iterator = ThIterator.of(
+      () -> source.hasNext() ? source.next() : null, closed::incrementAndGet);
+    final List<String> actual;
+    try (final Stream<String> stream = UncheckedParallel.mapOrdered(iterator, String::valueOf, 2).stream()) {
+      actual = stream.collect(Collectors.toList());
+    }
+
+    assertThat(actual).containsExactly("1", "2", "3");
+    assertThat(closed.get()).isEqualTo(1);
+  }
+}
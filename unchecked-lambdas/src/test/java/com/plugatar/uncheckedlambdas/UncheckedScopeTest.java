@@ -0,0 +1,194 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link UncheckedScope}.
+ */
+final class UncheckedScopeTest {
+
+  @Test
+  void openMethodsThrowNPEForNullArgs() {
+    assertThatThrownBy(() -> UncheckedScope.open((Duration) null))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> UncheckedScope.open(null, Duration.ofSeconds(1)))
+      .isInstanceOf(NullPointerException.class);
+  }
+
+  @Test
+  void joinAllMethodWaitsForAllSubtasks() throws Exception {
+    try (final UncheckedScope<Object, Exception> scope = UncheckedScope.open()) {
+      final UncheckedScope.Subtask<String> subtask1 = scope.fork(() -> "a");
+      final UncheckedScope.Subtask<Integer> subtask2 = scope.fork(() -> {
+        Thread.sleep(50);
+        return 1;
+      });
+      scope.joinAll();
+
+      assertThat(subtask1.state()).isSameAs(UncheckedScope.Subtask.State.SUCCESS);
+      assertThat(subtask1.get()).isEqualTo("a");
+      assertThat(subtask2.state()).isSameAs(UncheckedScope.Subtask.State.SUCCESS);
+      assertThat(subtask2.get()).isEqualTo(1);
+    }
+  }
+
+  @Test
+  void joinAllMethodRethrowsExceptionAndCancelsSiblings() throws Exception {
+    final IOException exception = new IOException();
+    final AtomicBoolean siblingInterrupted = new AtomicBoolean();
+    final UncheckedScope.Subtask<Object> sibling;
+    try (final UncheckedScope<Object, IOException> scope = UncheckedScope.open()) {
+      sibling = scope.fork(() -> {
+        try {
+          Thread.sleep(10_000);
+        } catch (final InterruptedException ex) {
+          siblingInterrupted.set(true);
+        }
+        return null;
+      });
+      scope.fork(() -> { throw exception; });
+
+      assertThatThrownBy(scope::joinAll)
+        .isSameAs(exception);
+    }
+    assertThat(sibling.state()).isSameAs(UncheckedScope.Subtask.State.CANCELLED);
+    assertThat(siblingInterrupted).isTrue();
+  }
+
+  @Test
+  void joinFirstSuccessMethodReturnsFirstSuccessfulResult() throws Exception {
+    try (final UncheckedScope<String, Exception> scope = UncheckedScope.open()) {
+      scope.fork(() -> { throw new IOException(); });
+      scope.fork(() -> "result");
+      final UncheckedScope.Subtask<String> slow = scope.fork(() -> {
+        Thread.sleep(10_000);
+        return "slow";
+      });
+
+      assertThat(scope.joinFirstSuccess()).isEqualTo("result");
+      assertThat(slow.state()).isSameAs(UncheckedScope.Subtask.State.CANCELLED);
+    }
+  }
+
+  @Test
+  void joinFirstSuccessMethodRethrowsExceptionIfAllSubtasksFailed() {
+    final IOException exception = new IOException();
+    try (final UncheckedScope<String, IOException> scope = UncheckedScope.open()) {
+      scope.fork(() -> { throw exception; });
+
+      assertThatThrownBy(scope::joinFirstSuccess)
+        .isSameAs(exception);
+    }
+  }
+
+  @Test
+  void joinAllMethodThrowsTimeoutExceptionIfDeadlineExceeded() {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final UncheckedScope.Subtask<Object> subtask;
+    try (final UncheckedScope<Object, Exception> scope = UncheckedScope.open(Duration.ofMillis(50))) {
+      subtask = scope.fork(() -> {
+        latch.await();
+        return null;
+      });
+
+      assertThatThrownBy(scope::joinAll)
+        .isInstanceOf(TimeoutException.class);
+      assertThatThrownBy(scope::joinAll)
+        .isInstanceOf(TimeoutException.class);
+      assertThatThrownBy(scope::joinFirstSuccess)
+        .isInstanceOf(TimeoutException.class);
+    }
+    assertThat(subtask.state()).isSameAs(UncheckedScope.Subtask.State.CANCELLED);
+  }
+
+  @Test
+  void openMethodAcceptsTimeoutsOutOfNanoTimeRange() throws Exception {
+    try (final UncheckedScope<Object, Exception> scope = UncheckedScope.open(Duration.ofSeconds(Long.MAX_VALUE))) {
+      final UncheckedScope.Subtask<Object> subtask = scope.fork(() -> "value");
+      scope.joinAll();
+
+      assertThat(subtask.get()).isEqualTo("value");
+    }
+    try (final UncheckedScope<Object, Exception> scope = UncheckedScope.open(Duration.ofSeconds(Long.MIN_VALUE))) {
+      scope.fork(() -> {
+        Thread.sleep(10_000);
+        return null;
+      });
+
+      assertThatThrownBy(scope::joinAll)
+        .isInstanceOf(TimeoutException.class);
+    }
+  }
+
+  @Test
+  void closeMethodCancelsAndWaitsForUnfinishedSubtasks() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final AtomicBoolean finished = new AtomicBoolean();
+    try (final UncheckedScope<Object, Exception> scope = UncheckedScope.open()) {
+      scope.fork(() -> {
+        started.countDown();
+        try {
+          Thread.sleep(10_000);
+        } finally {
+          finished.set(true);
+        }
+        return null;
+      });
+      started.await();
+    }
+    assertThat(finished).isTrue();
+  }
+
+  @Test
+  void forkMethodThrowsISEForClosedScope() {
+    final UncheckedScope<Object, Exception> scope = UncheckedScope.open();
+    scope.close();
+
+    assertThatThrownBy(() -> scope.fork(() -> null))
+      .isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void forkMethodKeepsOwnerInterruptStatusForCallerRunsExecutor() throws Exception {
+    try (final UncheckedScope<Object, Exception> scope = UncheckedScope.open(Runnable::run)) {
+      Thread.currentThread().interrupt();
+      try {
+        scope.fork(() -> 1);
+
+        assertThat(Thread.currentThread().isInterrupted()).isTrue();
+      } finally {
+        Thread.interrupted();
+      }
+      scope.fork(() -> {
+        Thread.currentThread().interrupt();
+        return 2;
+      });
+
+      assertThat(Thread.interrupted()).isTrue();
+    }
+  }
+}
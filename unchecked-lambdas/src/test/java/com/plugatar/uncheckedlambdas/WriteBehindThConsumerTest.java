@@ -0,0 +1,153 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link WriteBehindThConsumer}.
+ */
+final class WriteBehindThConsumerTest {
+
+  @Test
+  void ofMethodThrowsExceptionsForIncorrectArgs() {
+    assertThatThrownBy(() -> WriteBehindThConsumer.of(null, 8))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> WriteBehindThConsumer.of(batch -> { }, 0))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void singleProducerEventsAreConsumedInOrder() throws Exception {
+    final List<Integer> consumed = new ArrayList<>();
+    final WriteBehindThConsumer<Integer, IOException> writer = WriteBehindThConsumer.of(consumed::addAll, 16);
+    for (int idx = 0; idx < 10_000; idx++) {
+      writer.accept(idx);
+    }
+    writer.close();
+
+    assertThat(consumed)
+      .isEqualTo(IntStream.range(0, 10_000).boxed().collect(Collectors.toList()));
+  }
+
+  @Test
+  void multipleProducersEventsAreConsumed() throws Exception {
+    final AtomicInteger consumed = new AtomicInteger();
+    final WriteBehindThConsumer<Integer, IOException> writer = WriteBehindThConsumer.of(
+      batch -> consumed.addAndGet(batch.size()), 64, 16,
+      WriteBehindThConsumer.WaitStrategy.YIELDING, WriteBehindThConsumer.OverflowPolicy.BLOCK
+    );
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      for (int producer = 0; producer < 4; producer++) {
+        executor.execute(() -> {
+          for (int idx = 0; idx < 25_000; idx++) {
+            writer.asUnchecked().accept(idx);
+          }
+        });
+      }
+      executor.shutdown();
+      assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+    } finally {
+      executor.shutdownNow();
+    }
+    writer.flush();
+
+    assertThat(consumed.get()).isEqualTo(100_000);
+    writer.close();
+  }
+
+  @Test
+  void dropOverflowPolicyDropsEventsOfFullRingBuffer() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch started = new CountDownLatch(1);
+    final WriteBehindThConsumer<Integer, InterruptedException> writer = WriteBehindThConsumer.of(batch -> {
+      started.countDown();
+      release.await();
+    }, 2, 1, WriteBehindThConsumer.WaitStrategy.BLOCKING, WriteBehindThConsumer.OverflowPolicy.DROP);
+    writer.accept(0);
+    started.await();
+    writer.accept(1);
+    writer.accept(2);
+    writer.accept(3);
+    release.countDown();
+    writer.close();
+
+    assertThat(writer.droppedCount()).isEqualTo(2L);
+  }
+
+  @Test
+  void callerRunsOverflowPolicyConsumesEventOnCallerThread() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch started = new CountDownLatch(1);
+    final List<Thread> threads = new ArrayList<>();
+    final WriteBehindThConsumer<Integer, InterruptedException> writer = WriteBehindThConsumer.of(batch -> {
+      if (batch.get(0) == 0) {
+        started.countDown();
+        release.await();
+      } else {
+        threads.add(Thread.currentThread());
+      }
+    }, 1, 1, WriteBehindThConsumer.WaitStrategy.BLOCKING, WriteBehindThConsumer.OverflowPolicy.CALLER_RUNS);
+    writer.accept(0);
+    started.await();
+    final Thread caller = new Thread(() -> writer.asUnchecked().accept(1));
+    caller.start();
+    Thread.sleep(50);
+    release.countDown();
+    caller.join();
+    writer.close();
+
+    assertThat(threads).contains(caller);
+  }
+
+  @Test
+  void flushMethodRethrowsBatchConsumerException() throws Exception {
+    final IOException exception = new IOException();
+    final WriteBehindThConsumer<Integer, IOException> writer = WriteBehindThConsumer.of(batch -> {
+      throw exception;
+    }, 8);
+    writer.accept(1);
+
+    assertThatThrownBy(writer::flush)
+      .isSameAs(exception);
+    assertThat(writer.failureCount()).isEqualTo(1L);
+    writer.close();
+  }
+
+  @Test
+  void acceptMethodThrowsISEAfterClose() throws Exception {
+    final WriteBehindThConsumer<Integer, IOException> writer = WriteBehindThConsumer.of(batch -> { }, 8);
+    writer.close();
+
+    assertThatThrownBy(() -> writer.accept(1))
+      .isInstanceOf(IllegalStateException.class);
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link ThFlowProcessor}.
+ */
+final class ThFlowProcessorTest {
+
+  @Test
+  void ofMethodThrowsNPEForNullArgs() {
+    assertThatThrownBy(() -> ThFlowProcessor.of(null))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> ThFlowProcessor.of(x -> x, null, 1, true, 1))
+      .isInstanceOf(NullPointerException.class);
+  }
+
+  @Test
+  void ofMethodThrowsIAEForIncorrectArgs() {
+    assertThatThrownBy(() -> ThFlowProcessor.of(x -> x, Runnable::run, 0, true, 1))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> ThFlowProcessor.of(x -> x, Runnable::run, 2, true, 1))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void orderedParallelProcessorEmitsResultsInInputOrder() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final ThFlowProcessor<Integer, Integer, InterruptedException> processor = ThFlowProcessor.of(i -> {
+        Thread.sleep(i % 3);
+        return i * 2;
+      }, executor, 4, true, 16);
+      final List<Integer> results = new ArrayList<>();
+      final ThFlowSubscriber<Integer, RuntimeException> subscriber = ThFlowSubscriber.of(results::add, 8);
+      processor.subscribe(subscriber);
+      try (final SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>()) {
+        publisher.subscribe(processor);
+        IntStream.range(0, 200).forEach(publisher::submit);
+      }
+      subscriber.completion().get(10, TimeUnit.SECONDS);
+
+      assertThat(results)
+        .isEqualTo(IntStream.range(0, 200).map(i -> i * 2).boxed().collect(Collectors.toList()));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void unorderedParallelProcessorEmitsAllResults() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final ThFlowProcessor<Integer, Integer, RuntimeException> processor =
+        ThFlowProcessor.of(i -> i + 1, executor, 4, false, 16);
+      final List<Integer> results = new ArrayList<>();
+      final ThFlowSubscriber<Integer, RuntimeException> subscriber = ThFlowSubscriber.of(results::add);
+      processor.subscribe(subscriber);
+      try (final SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>()) {
+        publisher.subscribe(processor);
+        IntStream.range(0, 200).forEach(publisher::submit);
+      }
+      subscriber.completion().get(10, TimeUnit.SECONDS);
+
+      assertThat(results)
+        .containsExactlyInAnyOrderElementsOf(IntStream.range(1, 201).boxed().collect(Collectors.toList()));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void processorPassesOriginalExceptionToOnError() throws Exception {
+    final IOException exception = new IOException();
+    final ThFlowProcessor<Integer, Integer, IOException> processor = ThFlowProcessor.of(i -> {
+      if (i == 5) { throw exception; }
+      return i;
+    });
+    final ThFlowSubscriber<Integer, RuntimeException> subscriber = ThFlowSubscriber.of(i -> { });
+    processor.subscribe(subscriber);
+    try (final SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>()) {
+      publisher.subscribe(processor);
+      IntStream.range(0, 10).forEach(publisher::submit);
+    }
+
+    assertThatThrownBy(() -> subscriber.completion().get(10, TimeUnit.SECONDS))
+      .isInstanceOf(ExecutionException.class)
+      .hasCauseReference(exception);
+  }
+
+  @Test
+  void processorRequestsBoundedDemandInBatches() {
+    final List<Long> requests = new ArrayList<>();
+    final List<Integer> results = new ArrayList<>();
+    final ThFlowProcessor<Integer, Integer, RuntimeException> processor =
+      ThFlowProcessor.of(i -> i, Runnable::run, 1, true, 8);
+    processor.subscribe(ThFlowSubscriber.of(results::add, 100));
+    final int[] next = {0};
+    processor.onSubscribe(new Flow.Subscription() {
+      @Override
+      public void request(final long n) {
+        requests.add(n);
+        if (next[0] < 20) {
+          final long limit = Math.min(next[0] + n, 20);
+          while (next[0] < limit) {
+            processor.onNext(next[0]++);
+          }
+        }
+      }
+
+      @Override
+      public void cancel() {
+      }
+    });
+
+    assertThat(requests.get(0)).isEqualTo(8L);
+    assertThat(requests.subList(1, requests.size())).allMatch(n -> n == 6L);
+    assertThat(results).hasSize(20);
+  }
+}
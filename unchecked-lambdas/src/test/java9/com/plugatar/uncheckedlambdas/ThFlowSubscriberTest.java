@@ -0,0 +1,78 @@
+/*
+ * Copyright 2024 Evgenii Plugatar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.plugatar.uncheckedlambdas;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link ThFlowSubscriber}.
+ */
+final class ThFlowSubscriberTest {
+
+  @Test
+  void ofMethodThrowsNPEForNullArg() {
+    assertThatThrownBy(() -> ThFlowSubscriber.of(null))
+      .isInstanceOf(NullPointerException.class);
+  }
+
+  @Test
+  void onNextAndOnErrorMethodsThrowNPEForNullArgs() {
+    final ThFlowSubscriber<Object, RuntimeException> subscriber = ThFlowSubscriber.of(item -> { });
+
+    assertThatThrownBy(() -> subscriber.onNext(null))
+      .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> subscriber.onError(null))
+      .isInstanceOf(NullPointerException.class);
+  }
+
+  @Test
+  void subscriberConsumesAllItems() throws Exception {
+    final List<Integer> items = new ArrayList<>();
+    final ThFlowSubscriber<Integer, RuntimeException> subscriber = ThFlowSubscriber.of(items::add, 4);
+    try (final SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>()) {
+      publisher.subscribe(subscriber);
+      IntStream.range(0, 50).forEach(publisher::submit);
+    }
+    subscriber.completion().get(10, TimeUnit.SECONDS);
+
+    assertThat(items).hasSize(50);
+  }
+
+  @Test
+  void subscriberCompletesExceptionallyWithOriginalException() {
+    final IOException exception = new IOException();
+    final ThFlowSubscriber<Integer, IOException> subscriber = ThFlowSubscriber.of(i -> { throw exception; });
+    try (final SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>()) {
+      publisher.subscribe(subscriber);
+      publisher.submit(1);
+    }
+
+    assertThatThrownBy(() -> subscriber.completion().get(10, TimeUnit.SECONDS))
+      .isInstanceOf(ExecutionException.class)
+      .hasCauseReference(exception);
+  }
+}